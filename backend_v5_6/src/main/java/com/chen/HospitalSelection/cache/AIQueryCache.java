@@ -0,0 +1,213 @@
+package com.chen.HospitalSelection.cache;
+
+import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * AI查询解析结果缓存
+ *
+ * 调用大模型解析一次查询需要1~5秒，而很多用户输入的是几乎相同的句子（如"北京最好的心内科医院"）。
+ * 按归一化后的查询（全角转半角、去除空白和标点、英文小写）缓存解析出的筛选条件，写入后按TTL过期，条目数有上限；
+ * 同一查询并发到达时只有第一个请求调用上游，其余请求等待它的结果（single-flight）。
+ *
+ * 上游失败或返回无法解析时不缓存，下一次请求会重新调用。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class AIQueryCache {
+
+    /**
+     * 空白、标点和分隔符（归一化时全部去除）
+     */
+    private static final Pattern IGNORED = Pattern.compile("[\\p{P}\\p{Z}\\s]+");
+
+    @Value("${zhipu.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${zhipu.cache.ttl-seconds:1800}")
+    private long ttlSeconds;
+
+    @Value("${zhipu.cache.max-size:2000}")
+    private long maxSize;
+
+    /**
+     * 等待同一查询的进行中请求的最长时间
+     */
+    @Value("${zhipu.cache.wait-seconds:30}")
+    private long waitSeconds;
+
+    private Cache<String, HospitalFilterDTO> cache;
+
+    /**
+     * 进行中的上游调用：归一化查询 -> 结果
+     */
+    private final Map<String, CompletableFuture<HospitalFilterDTO>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 合并到进行中请求的次数
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 上游调用失败（含无法解析）的次数
+     */
+    private final LongAdder failures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+        log.info("AI查询缓存初始化完成，启用：{}，TTL：{}秒，最大条目数：{}", enabled, ttlSeconds, maxSize);
+    }
+
+    /**
+     * 读取缓存，未命中时调用上游解析（同一查询并发时只调用一次）
+     *
+     * @param query  用户原始查询
+     * @param loader 上游解析方法（返回null表示无法解析，不缓存；抛出异常时同样不缓存）
+     * @return 筛选条件副本（调用方可以修改），上游无法解析时返回null
+     */
+    public HospitalFilterDTO get(String query, Function<String, HospitalFilterDTO> loader) {
+        String key = normalize(query);
+        if (!enabled || key.isEmpty()) {
+            return copy(loader.apply(query));
+        }
+
+        HospitalFilterDTO cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+
+        CompletableFuture<HospitalFilterDTO> mine = new CompletableFuture<>();
+        CompletableFuture<HospitalFilterDTO> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return copy(await(running));
+        }
+
+        try {
+            // 抢到调用权前可能已有请求完成并写入缓存
+            cached = cache.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                mine.complete(cached);
+                return copy(cached);
+            }
+
+            misses.increment();
+            HospitalFilterDTO result = loader.apply(query);
+            if (result == null) {
+                failures.increment();
+            } else {
+                cache.put(key, result);
+            }
+            mine.complete(result);
+            return copy(result);
+        } catch (RuntimeException e) {
+            failures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 查询归一化：全角转半角（NFKC）、去除空白和标点、英文转小写
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        return IGNORED.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        log.info("AI查询缓存已清空");
+    }
+
+    /**
+     * 缓存统计（命中率、合并请求数、上游失败数等）
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long requests = hitCount + missCount + coalescedCount;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("maxSize", maxSize);
+        result.put("size", cache.estimatedSize());
+        result.put("inFlight", inFlight.size());
+        result.put("hitCount", hitCount);
+        result.put("missCount", missCount);
+        result.put("coalescedCount", coalescedCount);
+        result.put("failureCount", failures.sum());
+        // 合并的请求同样没有调用上游，计入命中
+        result.put("hitRate", requests == 0 ? 0.0 : (double) (hitCount + coalescedCount) / requests);
+        return result;
+    }
+
+    /**
+     * 等待进行中的上游调用，失败时按未命中处理（返回null，由调用方降级）
+     */
+    private HospitalFilterDTO await(CompletableFuture<HospitalFilterDTO> running) {
+        try {
+            return running.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("等待相同AI查询的结果失败：{}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 缓存中的对象由所有请求共享，返回副本（调用方会修改分页参数）
+     */
+    private static HospitalFilterDTO copy(HospitalFilterDTO source) {
+        if (source == null) {
+            return null;
+        }
+        HospitalFilterDTO target = new HospitalFilterDTO();
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+}
@@ -0,0 +1,202 @@
+package com.chen.HospitalSelection.cache;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 目录数据读缓存
+ *
+ * 医院、科室、医生的公开查询接口读多写少，在服务层按区域缓存查询结果（Caffeine，W-TinyLFU淘汰，写入后按TTL过期）。
+ * 每个缓存条目带一个医院ID标签：管理端增删改医院、科室、医生后发布的目录变更事件（事务提交后）
+ * 会精确清除该医院的条目以及不属于单个医院的全局条目（标签为null，如全部科室列表）；
+ * 批量变更（事件中医院ID为null）清空全部缓存。TTL兜底其他途径的修改（如评分更新）。
+ *
+ * 缓存的对象由所有请求共享，调用方不能修改。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class CatalogCache {
+
+    /**
+     * 缓存区域
+     */
+    public enum Region {
+        HOSPITAL_DETAIL,
+        HOSPITAL_FULL,
+        HOSPITAL_DEPARTMENTS,
+        HOSPITAL_DOCTORS,
+        DOCTOR_DETAIL,
+        DOCTORS_BY_DEPT,
+        DOCTORS_BY_HOSPITAL_DEPT,
+        DEPARTMENT_DETAIL,
+        DEPARTMENTS_ALL,
+        DEPARTMENTS_BY_HOSPITAL,
+        DEPARTMENTS_BY_HOSPITAL_DOCTORS,
+        DEPARTMENT_TYPES
+    }
+
+    @Value("${catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${catalog.cache.max-size:5000}")
+    private long maxSize;
+
+    private final Map<Region, Cache<Object, Entry>> caches = new EnumMap<>(Region.class);
+
+    /**
+     * 因目录变更被清除的条目数
+     */
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (Region region : Region.values()) {
+            caches.put(region, Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build());
+        }
+        log.info("目录读缓存初始化完成，启用：{}，TTL：{}秒，每区域最大条目数：{}", enabled, ttlSeconds, maxSize);
+    }
+
+    /**
+     * 读取缓存，未命中时加载并写入
+     *
+     * @param region     缓存区域
+     * @param key        缓存键
+     * @param hospitalId 所属医院ID（用于失效），为null表示全局条目，任何目录变更都会清除
+     * @param loader     加载方法（返回null或抛出异常时不缓存）
+     */
+    public <T> T get(Region region, Object key, Long hospitalId, Supplier<T> loader) {
+        return get(region, key, value -> hospitalId, loader);
+    }
+
+    /**
+     * 读取不属于单个医院的全局条目（任何目录变更都会清除）
+     */
+    public <T> T getGlobal(Region region, Object key, Supplier<T> loader) {
+        return get(region, key, value -> null, loader);
+    }
+
+    /**
+     * 读取缓存，所属医院ID从加载结果中获取（如医生详情）
+     *
+     * @param region     缓存区域
+     * @param key        缓存键
+     * @param hospitalOf 从加载结果中取所属医院ID
+     * @param loader     加载方法（返回null或抛出异常时不缓存）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Region region, Object key, Function<? super T, Long> hospitalOf, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Entry entry = caches.get(region).get(key, k -> {
+            T value = loader.get();
+            return value == null ? null : new Entry(hospitalOf.apply(value), value);
+        });
+        return entry == null ? null : (T) entry.value;
+    }
+
+    /**
+     * 管理端目录变更（事务提交后）精确清除相关缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        if (event.getHospitalId() == null) {
+            invalidateAll();
+            return;
+        }
+        Long hospitalId = event.getHospitalId();
+        long removed = 0;
+        for (Cache<Object, Entry> cache : caches.values()) {
+            int before = cache.asMap().size();
+            cache.asMap().values().removeIf(entry -> entry.hospitalId == null
+                    || Objects.equals(entry.hospitalId, hospitalId));
+            removed += before - cache.asMap().size();
+        }
+        invalidations.add(removed);
+        log.debug("目录变更清除缓存，类型：{}，医院ID：{}，清除条目：{}", event.getTarget(), hospitalId, removed);
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        long removed = 0;
+        for (Cache<Object, Entry> cache : caches.values()) {
+            removed += cache.estimatedSize();
+            cache.invalidateAll();
+        }
+        invalidations.add(removed);
+        log.info("目录读缓存已清空，清除条目约：{}", removed);
+    }
+
+    /**
+     * 清空某个区域
+     */
+    public void invalidate(Region region) {
+        Cache<Object, Entry> cache = caches.get(region);
+        invalidations.add(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存统计（各区域命中、未命中、淘汰次数等）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("maxSizePerRegion", maxSize);
+        result.put("invalidationCount", invalidations.sum());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (Map.Entry<Region, Cache<Object, Entry>> entry : caches.entrySet()) {
+            CacheStats stats = entry.getValue().stats();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("size", entry.getValue().estimatedSize());
+            item.put("hitCount", stats.hitCount());
+            item.put("missCount", stats.missCount());
+            item.put("hitRate", stats.hitRate());
+            item.put("evictionCount", stats.evictionCount());
+            item.put("loadFailureCount", stats.loadFailureCount());
+            regions.put(entry.getKey().name(), item);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+
+    /**
+     * 缓存条目（值 + 所属医院ID）
+     */
+    @AllArgsConstructor
+    private static class Entry {
+        private final Long hospitalId;
+        private final Object value;
+    }
+}
@@ -0,0 +1,77 @@
+package com.chen.HospitalSelection.cache;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目录数据版本戳
+ *
+ * 用于HTTP条件请求（ETag / Last-Modified）：版本戳为最后一次变更的时间（毫秒，严格递增）。
+ * 全局版本在任何目录变更后更新，用于列表、搜索等接口；医院版本只在该医院（含其科室、医生）变更后更新，用于详情类接口。
+ * 应用启动时以启动时间作为初始版本，重启后客户端会重新获取一次完整内容。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong lastStamp = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 全局版本（任何变更）
+     */
+    private volatile long globalStamp = lastStamp.get();
+
+    /**
+     * 最后一次批量变更的版本（所有医院的版本都不低于它）
+     */
+    private volatile long bulkStamp = lastStamp.get();
+
+    /**
+     * 医院ID -> 版本
+     */
+    private final Map<Long, Long> hospitalStamps = new ConcurrentHashMap<>();
+
+    /**
+     * 目录变更（事务提交后）更新版本
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        long stamp = nextStamp();
+        if (event.getHospitalId() == null) {
+            bulkStamp = stamp;
+            hospitalStamps.clear();
+        } else {
+            hospitalStamps.put(event.getHospitalId(), stamp);
+        }
+        globalStamp = stamp;
+    }
+
+    /**
+     * 全局版本
+     */
+    public long global() {
+        return globalStamp;
+    }
+
+    /**
+     * 医院版本
+     *
+     * @param hospitalId 医院ID
+     */
+    public long hospital(Long hospitalId) {
+        Long stamp = hospitalId == null ? null : hospitalStamps.get(hospitalId);
+        return stamp == null ? bulkStamp : Math.max(stamp, bulkStamp);
+    }
+
+    private long nextStamp() {
+        long now = System.currentTimeMillis();
+        return lastStamp.updateAndGet(last -> Math.max(now, last + 1));
+    }
+}
@@ -0,0 +1,264 @@
+package com.chen.HospitalSelection.cache;
+
+import com.chen.HospitalSelection.index.HotTopicIndex;
+import com.chen.HospitalSelection.mapper.TopicMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 话题浏览数写缓冲（write-behind）
+ *
+ * 原来每次打开话题详情都同步执行 view_count = view_count + 1，热门话题的同一行被频繁加行锁。
+ * 现在浏览只在内存中累加（每个话题一个LongAdder，计数时不加锁），
+ * 定时把各话题的增量合并为一条多行UPDATE写入数据库，应用正常关闭时再写一次。
+ * 读取时以数据库中的值加上尚未写入的增量作为展示值。
+ * 每轮写入成功的增量再整批同步给话题热度索引，浏览不再逐次更新热度。
+ *
+ * 每个话题记录累计浏览数和已写入数，写入成功后才推进已写入数，写入失败时增量保留到下一轮。
+ * 连续两轮没有新增浏览且增量已全部写入的话题从缓冲中移除：移除时先把计数标记为退役，再确认没有进行中的计数和未写入的增量；
+ * 计数时先登记进行中再检查退役标记，看到退役的浏览改在该话题的哈希桶锁内计入，不会计入已移除的计数。
+ * 进程异常退出时最多丢失一个写入周期内的浏览数。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class TopicViewCounter {
+
+    /**
+     * 写入周期（毫秒）
+     */
+    private static final long FLUSH_MILLIS = 5000L;
+
+    /**
+     * 每条UPDATE最多包含的话题数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private TopicMapper topicMapper;
+
+    @Autowired
+    private HotTopicIndex hotTopicIndex;
+
+    /**
+     * 话题ID -> 计数
+     */
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder flushedViews = new LongAdder();
+
+    private final LongAdder flushBatches = new LongAdder();
+
+    private final LongAdder flushFailures = new LongAdder();
+
+    /**
+     * 记录一次浏览
+     */
+    public void increment(Long topicId) {
+        if (topicId == null) {
+            return;
+        }
+        Counter counter = counters.get(topicId);
+        if (counter != null) {
+            // 先登记再检查退役标记：移除方要么看到登记（保留计数），要么这里看到退役标记（改走加锁路径）
+            counter.inFlight.increment();
+            try {
+                if (!counter.retired) {
+                    counter.added.increment();
+                    return;
+                }
+            } finally {
+                counter.inFlight.decrement();
+            }
+        }
+        // 计数不存在或正在被移除：在哈希桶锁内计入（计数已被移除时新建）
+        counters.compute(topicId, (k, current) -> {
+            Counter target = current == null ? new Counter() : current;
+            target.added.increment();
+            return target;
+        });
+    }
+
+    /**
+     * 尚未写入数据库的浏览数
+     */
+    public long pending(Long topicId) {
+        Counter counter = topicId == null ? null : counters.get(topicId);
+        return counter == null ? 0 : counter.pending();
+    }
+
+    /**
+     * 展示用浏览数：数据库中的值 + 尚未写入的增量
+     *
+     * 数据库写入与推进已写入数无法原子完成：UPDATE提交后、推进已写入数前读到新值的请求，
+     * 会把这一轮的增量多算一次。这段窗口只有写入线程遍历本批结果的时间，
+     * 多算的量不超过该话题本轮写入的增量，下一次读取即恢复准确。
+     * 浏览数只用于展示和热度，不为此在读取路径上加锁。
+     */
+    public Integer merge(Long topicId, Integer persisted) {
+        long pending = pending(topicId);
+        if (pending == 0) {
+            return persisted;
+        }
+        long total = (persisted == null ? 0 : persisted) + pending;
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 把缓冲的增量批量写入数据库（定时执行，同一时刻只有一个线程写入）
+     */
+    @Scheduled(fixedDelay = FLUSH_MILLIS, initialDelay = FLUSH_MILLIS)
+    public synchronized void flush() {
+        Map<Long, Long> written = new LinkedHashMap<>();
+        Map<Long, Long> batch = new LinkedHashMap<>();
+        Map<Long, Long> targets = new LinkedHashMap<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long added = counter.added.sum();
+            long delta = added - counter.flushed;
+            if (delta > 0) {
+                counter.idleRounds = 0;
+                batch.put(entry.getKey(), delta);
+                targets.put(entry.getKey(), added);
+                if (batch.size() >= BATCH_SIZE) {
+                    write(batch, targets, written);
+                    batch = new LinkedHashMap<>();
+                    targets = new LinkedHashMap<>();
+                }
+            } else if (++counter.idleRounds >= 2) {
+                evict(entry.getKey(), counter);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, targets, written);
+        }
+        if (!written.isEmpty()) {
+            try {
+                hotTopicIndex.applyViews(written);
+            } catch (Exception e) {
+                log.warn("话题浏览数同步到热度索引失败，等待下次校正：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 应用关闭时写入剩余的增量
+     */
+    @PreDestroy
+    public void drain() {
+        flush();
+        log.info("话题浏览数缓冲已写入，累计写入：{}，批次：{}，失败：{}",
+                flushedViews.sum(), flushBatches.sum(), flushFailures.sum());
+    }
+
+    /**
+     * 缓冲统计
+     */
+    public Map<String, Object> stats() {
+        long pendingViews = 0;
+        for (Counter counter : counters.values()) {
+            pendingViews += counter.pending();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("trackedTopics", counters.size());
+        result.put("pendingViews", pendingViews);
+        result.put("flushedViews", flushedViews.sum());
+        result.put("flushBatches", flushBatches.sum());
+        result.put("flushFailures", flushFailures.sum());
+        return result;
+    }
+
+    /**
+     * 写入一批增量，成功后推进各话题的已写入数
+     *
+     * @param batch   话题ID -> 本次写入的增量
+     * @param targets 话题ID -> 写入成功后的已写入数
+     * @param written 写入成功的增量汇总到这里
+     */
+    private void write(Map<Long, Long> batch, Map<Long, Long> targets, Map<Long, Long> written) {
+        try {
+            topicMapper.batchIncrementViewCount(batch);
+        } catch (Exception e) {
+            // 增量保留在缓冲中，下一轮重试
+            flushFailures.increment();
+            log.error("话题浏览数批量写入失败，话题数：{}，将在下一轮重试", batch.size(), e);
+            return;
+        }
+        // 紧接着推进已写入数，缩短merge()可能多算的窗口
+        long views = 0;
+        for (Map.Entry<Long, Long> entry : targets.entrySet()) {
+            Counter counter = counters.get(entry.getKey());
+            if (counter != null) {
+                counter.flushed = entry.getValue();
+            }
+            views += batch.get(entry.getKey());
+        }
+        written.putAll(batch);
+        flushedViews.add(views);
+        flushBatches.increment();
+        log.debug("话题浏览数批量写入完成，话题数：{}，浏览数：{}", batch.size(), views);
+    }
+
+    /**
+     * 移除空闲话题（与计数互斥：判断期间有新浏览时保留，下一轮照常写入）
+     */
+    private void evict(Long topicId, Counter counter) {
+        counters.computeIfPresent(topicId, (k, current) -> {
+            if (current != counter) {
+                return current;
+            }
+            // 先标记退役再检查：并发的浏览要么被这里看到（保留），要么看到退役标记后改走加锁路径
+            current.retired = true;
+            if (current.inFlight.sum() == 0 && current.pending() == 0) {
+                return null;
+            }
+            current.retired = false;
+            return current;
+        });
+    }
+
+    /**
+     * 单个话题的计数
+     */
+    private static final class Counter {
+
+        /**
+         * 累计浏览数
+         */
+        private final LongAdder added = new LongAdder();
+
+        /**
+         * 已写入数据库的浏览数（只由写入线程修改）
+         */
+        private volatile long flushed;
+
+        /**
+         * 进行中的无锁计数（登记后检查退役标记，计数完成后注销）
+         */
+        private final LongAdder inFlight = new LongAdder();
+
+        /**
+         * 正在被移除（只在哈希桶锁内修改）
+         */
+        private volatile boolean retired;
+
+        /**
+         * 连续没有新增浏览的写入轮数（只由写入线程访问）
+         */
+        private int idleRounds;
+
+        long pending() {
+            return Math.max(0, added.sum() - flushed);
+        }
+    }
+}
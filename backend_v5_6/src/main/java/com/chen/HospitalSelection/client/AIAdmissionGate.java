@@ -0,0 +1,205 @@
+package com.chen.HospitalSelection.client;
+
+import com.chen.HospitalSelection.exception.BusinessException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 智谱AI调用准入控制
+ *
+ * 智谱API按调用计费且有速率限制，这里在真正发起调用前做准入：
+ * - 单用户令牌桶：登录用户按用户ID、匿名用户按IP限速，超出时立即拒绝，不进入排队；
+ *   之后被全局限速拒绝的调用会归还单用户令牌；
+ * - 全局令牌桶：限制整体调用速率，令牌不足时在有界队列中按先来后到等待，
+ *   队列已满或预计等待超过期限时拒绝。
+ *
+ * 相同查询的并发请求在AIQueryCache中已合并为一次加载，只有实际调用API的请求经过准入，
+ * 排队期间到达的重复查询直接等待同一结果，不再占用令牌和队列位置。
+ *
+ * 被拒绝时抛出BusinessException（429），由ZhipuAIService降级为本地规则解析结果或空筛选条件。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class AIAdmissionGate {
+
+    @Value("${zhipu.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${zhipu.admission.global-rate:5}")
+    private double globalRate;
+
+    @Value("${zhipu.admission.global-burst:10}")
+    private int globalBurst;
+
+    @Value("${zhipu.admission.user-rate:0.2}")
+    private double userRate;
+
+    @Value("${zhipu.admission.user-burst:5}")
+    private int userBurst;
+
+    @Value("${zhipu.admission.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${zhipu.admission.max-wait-ms:3000}")
+    private long maxWaitMs;
+
+    private TokenBucket globalBucket;
+
+    /**
+     * 单用户令牌桶（长时间不活跃的用户自动淘汰）
+     */
+    private Cache<String, TokenBucket> userBuckets;
+
+    /**
+     * 当前排队等待全局令牌的请求数
+     */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder admitted = new LongAdder();
+
+    /**
+     * 经过排队后放行的请求数
+     */
+    private final LongAdder queued = new LongAdder();
+
+    private final LongAdder totalWaitMillis = new LongAdder();
+
+    private final LongAccumulator maxWaitMillis = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder rejectedUser = new LongAdder();
+
+    private final LongAdder rejectedQueueFull = new LongAdder();
+
+    private final LongAdder rejectedDeadline = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        globalBucket = new TokenBucket(globalRate, globalBurst);
+        userBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .maximumSize(10000)
+                .build();
+        log.info("AI调用准入控制初始化完成，全局：{}/s（突发{}），单用户：{}/s（突发{}），队列容量：{}，最长等待：{}ms",
+                globalRate, globalBurst, userRate, userBurst, queueCapacity, maxWaitMs);
+    }
+
+    /**
+     * 申请一次AI调用，必要时排队等待
+     *
+     * @param clientKey 调用方标识（如"user:1"、"ip:127.0.0.1"），为空时只受全局限速
+     * @throws BusinessException 单用户超限、队列已满或等待超时
+     */
+    public void acquire(String clientKey) {
+        if (!enabled) {
+            return;
+        }
+
+        TokenBucket userBucket = clientKey == null ? null
+                : userBuckets.get(clientKey, k -> new TokenBucket(userRate, userBurst));
+        if (userBucket != null && !userBucket.tryAcquire()) {
+            rejectedUser.increment();
+            log.warn("AI调用超出单用户限额，调用方：{}", clientKey);
+            throw new BusinessException("429", "AI查询过于频繁，请稍后再试");
+        }
+
+        try {
+            acquireGlobal();
+        } catch (BusinessException e) {
+            // 全局拒绝的调用没有实际执行，不占用户的额度
+            if (userBucket != null) {
+                userBucket.refund();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 申请全局令牌，令牌不足时排队
+     */
+    private void acquireGlobal() {
+        if (globalBucket.tryAcquire()) {
+            admitted.increment();
+            return;
+        }
+
+        int depth = queueDepth.incrementAndGet();
+        try {
+            if (depth > queueCapacity) {
+                rejectedQueueFull.increment();
+                log.warn("AI调用排队已满，队列长度：{}", depth - 1);
+                throw new BusinessException("429", "AI服务繁忙，请稍后重试");
+            }
+            maxQueueDepth.accumulate(depth);
+
+            long waitNanos = globalBucket.reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            if (waitNanos < 0) {
+                rejectedDeadline.increment();
+                log.warn("AI调用预计等待超过{}ms，拒绝，队列长度：{}", maxWaitMs, depth);
+                throw new BusinessException("429", "AI服务繁忙，请稍后重试");
+            }
+            sleep(waitNanos);
+
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+            totalWaitMillis.add(waitMillis);
+            maxWaitMillis.accumulate(waitMillis);
+            queued.increment();
+            admitted.increment();
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+    }
+
+    /**
+     * 等待到预约的令牌可用（令牌已占用，被中断也照常放行）
+     */
+    private void sleep(long waitNanos) {
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining = waitNanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * 准入统计（队列长度、等待时间、各类拒绝次数）
+     */
+    public Map<String, Object> stats() {
+        long queuedCount = queued.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("queueDepth", queueDepth.get());
+        result.put("maxQueueDepth", maxQueueDepth.get());
+        result.put("queueCapacity", queueCapacity);
+        result.put("admittedCount", admitted.sum());
+        result.put("queuedCount", queuedCount);
+        result.put("avgWaitMs", queuedCount == 0 ? 0 : totalWaitMillis.sum() / queuedCount);
+        result.put("maxWaitMs", maxWaitMillis.get());
+        result.put("rejectedUserCount", rejectedUser.sum());
+        result.put("rejectedQueueFullCount", rejectedQueueFull.sum());
+        result.put("rejectedDeadlineCount", rejectedDeadline.sum());
+        result.put("trackedClients", userBuckets.estimatedSize());
+        return result;
+    }
+}
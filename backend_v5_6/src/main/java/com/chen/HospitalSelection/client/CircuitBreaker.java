@@ -0,0 +1,90 @@
+package com.chen.HospitalSelection.client;
+
+/**
+ * 熔断器（按连续失败次数）
+ *
+ * - 关闭：正常放行，连续失败达到阈值后打开；
+ * - 打开：直接拒绝，持续一段时间后进入半开；
+ * - 半开：只放行一个试探请求，成功则关闭，失败则重新打开。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    /**
+     * 半开状态下是否已有试探请求在执行
+     */
+    private boolean trialInFlight;
+
+    /**
+     * @param failureThreshold 打开熔断的连续失败次数
+     * @param openMillis       打开后持续多久进入半开（毫秒）
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 申请执行一次调用
+     *
+     * @return false-熔断中，调用方应直接降级
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,74 @@
+package com.chen.HospitalSelection.client;
+
+/**
+ * 令牌桶
+ *
+ * 按固定速率补充令牌，最多积攒burst个。令牌不足时可以"预约"未来的令牌：令牌数记为负数，
+ * 预约者等待到令牌数回到0的时刻再执行，先预约的先执行；等待时间超过上限时不预约、直接拒绝。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+
+    private final double burst;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            最多积攒的令牌数（允许的突发量）
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("令牌补充速率必须大于0");
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 立即取一个令牌
+     *
+     * @return false-没有可用令牌
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * 预约一个令牌
+     *
+     * @param maxWaitNanos 最多等待多久（纳秒）
+     * @return 需要等待的纳秒数（0表示立即可用）；等待时间超过上限时返回-1，且不占用令牌
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * 归还一个已取得的令牌（取得后因其他原因未能执行时调用，不超过burst）
+     */
+    public synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+}
@@ -0,0 +1,312 @@
+package com.chen.HospitalSelection.client;
+
+import com.chen.HospitalSelection.exception.BusinessException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 智谱AI HTTP客户端
+ *
+ * 原来使用默认的RestTemplate（无连接池、无超时），上游变慢时每个AI推荐请求都会无限期占用一个Tomcat线程，拖垮整个API。
+ * 这里做了几层保护：
+ * - 连接池：长连接复用，定期清理空闲连接；
+ * - 超时：建连、从连接池取连接、读取响应都有严格上限；
+ * - 舱壁：同时在途的调用数有上限，超出时短暂等待后直接拒绝；
+ * - 熔断：连续失败达到阈值后一段时间内直接拒绝，调用方立即降级（本地规则解析结果或空筛选条件）；
+ * - 指标：调用次数、失败、超时、拒绝、熔断次数和延迟分布，见 {@link #stats()}。
+ *
+ * 拒绝和失败都抛出BusinessException（503），由调用方捕获降级。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class ZhipuAIClient {
+
+    /**
+     * 延迟采样窗口（最近N次调用）
+     */
+    private static final int LATENCY_WINDOW = 512;
+
+    @Value("${zhipu.api.key}")
+    private String apiKey;
+
+    @Value("${zhipu.api.url}")
+    private String apiUrl;
+
+    @Value("${zhipu.api.model:glm-4-flash}")
+    private String model;
+
+    @Value("${zhipu.client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${zhipu.client.read-timeout-ms:8000}")
+    private int readTimeoutMs;
+
+    @Value("${zhipu.client.pool-timeout-ms:500}")
+    private int poolTimeoutMs;
+
+    @Value("${zhipu.client.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${zhipu.client.max-concurrent:10}")
+    private int maxConcurrent;
+
+    @Value("${zhipu.client.bulkhead-wait-ms:200}")
+    private long bulkheadWaitMs;
+
+    @Value("${zhipu.client.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${zhipu.client.open-seconds:30}")
+    private long openSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CloseableHttpClient httpClient;
+
+    private RestTemplate restTemplate;
+
+    private Semaphore bulkhead;
+
+    private CircuitBreaker circuitBreaker;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder successes = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * 舱壁已满被拒绝的次数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 熔断中被拒绝的次数
+     */
+    private final LongAdder shortCircuited = new LongAdder();
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+
+    private long latencyCount;
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(poolTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .disableAutomaticRetries()
+                .build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        bulkhead = new Semaphore(maxConcurrent);
+        circuitBreaker = new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+
+        log.info("智谱AI客户端初始化完成，连接超时：{}ms，读取超时：{}ms，连接池：{}，最大并发：{}，熔断阈值：连续{}次失败",
+                connectTimeoutMs, readTimeoutMs, maxConnections, maxConcurrent, failureThreshold);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    /**
+     * 调用对话接口
+     *
+     * @param prompt 提示词（作为单条用户消息发送）
+     * @return 模型返回的内容
+     * @throws BusinessException 熔断中、并发已满、超时或上游返回错误
+     */
+    public String chat(String prompt) {
+        if (!acquireBulkhead()) {
+            rejected.increment();
+            throw new BusinessException("503", "AI服务繁忙，请稍后重试");
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                shortCircuited.increment();
+                throw new BusinessException("503", "AI服务暂时不可用");
+            }
+            return execute(prompt);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private String execute(String prompt) {
+        calls.increment();
+        long start = System.nanoTime();
+        try {
+            String content = request(prompt);
+            circuitBreaker.onSuccess();
+            successes.increment();
+            return content;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            failures.increment();
+            if (e instanceof ResourceAccessException) {
+                // 连接、读取超时等IO异常
+                timeouts.increment();
+            }
+            log.warn("智谱AI API调用失败，连续失败：{}，熔断器：{}，原因：{}",
+                    circuitBreaker.getConsecutiveFailures(), circuitBreaker.getState(), e.getMessage());
+            throw new BusinessException("503", "AI服务暂时不可用: " + e.getMessage(), e);
+        } finally {
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * 发送请求并提取回复内容
+     */
+    private String request(String prompt) {
+        // 构建请求体
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+
+        // 构建消息
+        Map<String, String> userMessage = new HashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+
+        request.put("messages", new Object[]{userMessage});
+
+        // 设置参数（降低随机性，提高稳定性）
+        request.put("temperature", 0.3);
+        request.put("max_tokens", 1000);
+
+        // 设置请求头（智谱AI使用 Bearer {token} 格式）
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + apiKey);
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                apiUrl, HttpMethod.POST, new HttpEntity<>(request, headers), String.class);
+
+        JsonNode rootNode;
+        try {
+            rootNode = objectMapper.readTree(response.getBody());
+        } catch (IOException e) {
+            throw new IllegalStateException("无法解析智谱AI响应", e);
+        }
+
+        // 检查是否有错误
+        if (rootNode.has("error")) {
+            throw new IllegalStateException("智谱AI API错误: " + rootNode.path("error").path("message").asText());
+        }
+
+        // 提取AI返回的内容
+        JsonNode content = rootNode.path("choices").path(0).path("message").path("content");
+        if (content.isMissingNode() || content.isNull()) {
+            throw new IllegalStateException("智谱AI响应中没有内容");
+        }
+        log.info("智谱AI API调用成功");
+        return content.asText();
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[(int) (latencyCount % LATENCY_WINDOW)] = millis;
+        latencyCount++;
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * 客户端指标（调用、失败、超时、拒绝、熔断次数，最近调用的延迟分位数）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("circuitState", circuitBreaker.getState().name());
+        result.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+        result.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+        result.put("maxConcurrent", maxConcurrent);
+        result.put("callCount", calls.sum());
+        result.put("successCount", successes.sum());
+        result.put("failureCount", failures.sum());
+        result.put("timeoutCount", timeouts.sum());
+        result.put("rejectedCount", rejected.sum());
+        result.put("shortCircuitedCount", shortCircuited.sum());
+
+        long[] samples;
+        synchronized (this) {
+            samples = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_WINDOW));
+        }
+        Arrays.sort(samples);
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("samples", samples.length);
+        latency.put("p50Ms", percentile(samples, 50));
+        latency.put("p95Ms", percentile(samples, 95));
+        latency.put("p99Ms", percentile(samples, 99));
+        latency.put("maxMs", samples.length == 0 ? 0 : samples[samples.length - 1]);
+        result.put("latency", latency);
+        return result;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
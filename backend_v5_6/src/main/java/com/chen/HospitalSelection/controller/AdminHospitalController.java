@@ -1,5 +1,10 @@
 package com.chen.HospitalSelection.controller;
 
+import com.chen.HospitalSelection.cache.AIQueryCache;
+import com.chen.HospitalSelection.cache.CatalogCache;
+import com.chen.HospitalSelection.cache.TopicViewCounter;
+import com.chen.HospitalSelection.client.AIAdmissionGate;
+import com.chen.HospitalSelection.client.ZhipuAIClient;
 import com.chen.HospitalSelection.dto.DepartmentCreateDTO;
 import com.chen.HospitalSelection.dto.DepartmentUpdateDTO;
 import com.chen.HospitalSelection.dto.DoctorCreateDTO;
@@ -7,7 +12,10 @@ import com.chen.HospitalSelection.dto.DoctorUpdateDTO;
 import com.chen.HospitalSelection.dto.HospitalCreateDTO;
 import com.chen.HospitalSelection.dto.HospitalUpdateDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
+import com.chen.HospitalSelection.exception.ParameterException;
 import com.chen.HospitalSelection.service.AdminHospitalService;
+import com.chen.HospitalSelection.service.AreaService;
+import com.chen.HospitalSelection.service.DiseaseService;
 import com.chen.HospitalSelection.service.RoleService;
 import com.chen.HospitalSelection.util.JwtUtil;
 import com.chen.HospitalSelection.vo.HospitalVO;
@@ -48,6 +56,27 @@ public class AdminHospitalController {
     @Autowired
     private RoleService roleService;
 
+    @Autowired
+    private AreaService areaService;
+
+    @Autowired
+    private DiseaseService diseaseService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private AIQueryCache aiQueryCache;
+
+    @Autowired
+    private ZhipuAIClient zhipuAIClient;
+
+    @Autowired
+    private AIAdmissionGate aiAdmissionGate;
+
+    @Autowired
+    private TopicViewCounter topicViewCounter;
+
     // ==================== 医院管理 ====================
 
     /**
@@ -258,6 +287,23 @@ public class AdminHospitalController {
         return Result.success(doctorId, "医生添加成功");
     }
 
+    /**
+     * 批量导入医院坐标
+     * 接口路径：POST /api/admin/hospital/location/import
+     * 是否需要登录：是（管理员）
+     *
+     * @param file CSV文件（每行：医院ID或医院名称,纬度,经度；可带表头）
+     * @return 导入结果统计
+     */
+    @PostMapping("/hospital/location/import")
+    @ApiOperation("批量导入医院坐标")
+    public Result<Map<String, Object>> importHospitalLocations(@RequestParam("file") MultipartFile file,
+                                                                HttpServletRequest request) {
+        checkAdminPermission(request);
+        Map<String, Object> result = adminHospitalService.importHospitalLocations(file);
+        return Result.success(result);
+    }
+
     /**
      * 批量导入医生
      * 接口路径：POST /api/admin/doctor/import
@@ -311,6 +357,150 @@ public class AdminHospitalController {
         return Result.success(null, "医生信息更新成功");
     }
 
+    // ==================== 地区、疾病字典 ====================
+
+    /**
+     * 重新加载地区字典（area_info更新后调用）
+     * 接口路径：POST /api/admin/area/reload
+     * 是否需要登录：是（管理员）
+     *
+     * @return 加载的地区数量
+     */
+    @PostMapping("/area/reload")
+    @ApiOperation("重新加载地区字典")
+    public Result<Integer> reloadAreas(HttpServletRequest request) {
+        checkAdminPermission(request);
+        int count = areaService.reloadAreas();
+        return Result.success(count, "地区字典已重新加载");
+    }
+
+    /**
+     * 重新加载疾病分类字典（disease_type更新后调用）
+     * 接口路径：POST /api/admin/disease/reload
+     * 是否需要登录：是（管理员）
+     *
+     * @return 加载的疾病分类数量
+     */
+    @PostMapping("/disease/reload")
+    @ApiOperation("重新加载疾病分类字典")
+    public Result<Integer> reloadDiseases(HttpServletRequest request) {
+        checkAdminPermission(request);
+        int count = diseaseService.reloadDiseases();
+        return Result.success(count, "疾病分类字典已重新加载");
+    }
+
+    // ==================== 目录读缓存 ====================
+
+    /**
+     * 目录读缓存统计（各区域条目数、命中、未命中、淘汰次数）
+     * 接口路径：GET /api/admin/cache/stats
+     * 是否需要登录：是（管理员）
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/cache/stats")
+    @ApiOperation("目录读缓存统计")
+    public Result<Map<String, Object>> getCacheStats(HttpServletRequest request) {
+        checkAdminPermission(request);
+        return Result.success(catalogCache.stats());
+    }
+
+    /**
+     * 清空目录读缓存（直接修改数据库后调用）
+     * 接口路径：DELETE /api/admin/cache
+     * 是否需要登录：是（管理员）
+     *
+     * @param region 缓存区域（可选，不传时清空全部）
+     * @return 清空结果
+     */
+    @DeleteMapping("/cache")
+    @ApiOperation("清空目录读缓存")
+    public Result<Void> clearCache(@RequestParam(required = false) String region,
+                                   HttpServletRequest request) {
+        checkAdminPermission(request);
+        if (region == null || region.isEmpty()) {
+            catalogCache.invalidateAll();
+        } else {
+            try {
+                catalogCache.invalidate(CatalogCache.Region.valueOf(region.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException("缓存区域不存在：" + region);
+            }
+        }
+        return Result.success(null, "缓存已清空");
+    }
+
+    /**
+     * AI查询缓存统计（命中率、合并的并发请求数、上游失败数）
+     * 接口路径：GET /api/admin/cache/ai/stats
+     * 是否需要登录：是（管理员）
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/cache/ai/stats")
+    @ApiOperation("AI查询缓存统计")
+    public Result<Map<String, Object>> getAIQueryCacheStats(HttpServletRequest request) {
+        checkAdminPermission(request);
+        return Result.success(aiQueryCache.stats());
+    }
+
+    /**
+     * 清空AI查询缓存（调整提示词或地区字典后调用）
+     * 接口路径：DELETE /api/admin/cache/ai
+     * 是否需要登录：是（管理员）
+     *
+     * @return 清空结果
+     */
+    @DeleteMapping("/cache/ai")
+    @ApiOperation("清空AI查询缓存")
+    public Result<Void> clearAIQueryCache(HttpServletRequest request) {
+        checkAdminPermission(request);
+        aiQueryCache.invalidateAll();
+        return Result.success(null, "缓存已清空");
+    }
+
+    /**
+     * 话题浏览数写缓冲统计（待写入的浏览数、已写入数、写入批次和失败次数）
+     * 接口路径：GET /api/admin/cache/topic-views/stats
+     * 是否需要登录：是（管理员）
+     *
+     * @return 缓冲统计
+     */
+    @GetMapping("/cache/topic-views/stats")
+    @ApiOperation("话题浏览数写缓冲统计")
+    public Result<Map<String, Object>> getTopicViewCounterStats(HttpServletRequest request) {
+        checkAdminPermission(request);
+        return Result.success(topicViewCounter.stats());
+    }
+
+    /**
+     * 智谱AI客户端统计（熔断器状态、在途调用数、失败/超时/拒绝次数、延迟分位数）
+     * 接口路径：GET /api/admin/ai/client/stats
+     * 是否需要登录：是（管理员）
+     *
+     * @return 客户端统计
+     */
+    @GetMapping("/ai/client/stats")
+    @ApiOperation("智谱AI客户端统计")
+    public Result<Map<String, Object>> getAIClientStats(HttpServletRequest request) {
+        checkAdminPermission(request);
+        return Result.success(zhipuAIClient.stats());
+    }
+
+    /**
+     * AI调用准入统计（排队长度、等待时间、限速/排队拒绝次数）
+     * 接口路径：GET /api/admin/ai/admission/stats
+     * 是否需要登录：是（管理员）
+     *
+     * @return 准入统计
+     */
+    @GetMapping("/ai/admission/stats")
+    @ApiOperation("AI调用准入统计")
+    public Result<Map<String, Object>> getAIAdmissionStats(HttpServletRequest request) {
+        checkAdminPermission(request);
+        return Result.success(aiAdmissionGate.stats());
+    }
+
     // ==================== 权限检查 ====================
 
     /**
@@ -1,13 +1,18 @@
 package com.chen.HospitalSelection.controller;
 
+import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.service.DiseaseService;
+import com.chen.HospitalSelection.service.FilterService;
 import com.chen.HospitalSelection.vo.DiseaseVO;
+import com.chen.HospitalSelection.vo.HospitalSimpleVO;
+import com.chen.HospitalSelection.vo.PageResult;
 import com.chen.HospitalSelection.vo.Result;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.util.List;
 
 /**
@@ -24,6 +29,9 @@ public class DiseaseController {
     @Autowired
     private DiseaseService diseaseService;
 
+    @Autowired
+    private FilterService filterService;
+
     /**
      * 疾病分类树
      * 接口路径：GET /api/disease/tree
@@ -66,4 +74,23 @@ public class DiseaseController {
         List<DiseaseVO> level2List = diseaseService.getLevel2Diseases(parentId);
         return Result.success(level2List);
     }
+
+    /**
+     * 疾病推荐医院（按疾病对应科室的相关度排名）
+     * 接口路径：GET /api/disease/{diseaseCode}/hospitals
+     * 是否需要登录：否
+     *
+     * @param diseaseCode 疾病编码
+     * @param dto 分页查询参数
+     * @return 推荐医院列表
+     */
+    @GetMapping("/{diseaseCode}/hospitals")
+    @ApiOperation("疾病推荐医院")
+    public Result<PageResult<HospitalSimpleVO>> recommendHospitals(
+            @PathVariable String diseaseCode,
+            @Valid PageQueryDTO dto) {
+        PageResult<HospitalSimpleVO> pageResult =
+                filterService.recommendHospitalsByDisease(diseaseCode, dto.getPage(), dto.getPageSize());
+        return Result.success(pageResult);
+    }
 }
@@ -1,8 +1,11 @@
 package com.chen.HospitalSelection.controller;
 
+import com.chen.HospitalSelection.cache.CatalogVersion;
 import com.chen.HospitalSelection.dto.DoctorFilterDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.service.DoctorService;
+import com.chen.HospitalSelection.util.FieldSelector;
+import com.chen.HospitalSelection.util.HttpCacheUtil;
 import com.chen.HospitalSelection.vo.DoctorSimpleVO;
 import com.chen.HospitalSelection.vo.DoctorVO;
 import com.chen.HospitalSelection.vo.PageResult;
@@ -11,6 +14,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -29,19 +33,28 @@ public class DoctorController {
     @Autowired
     private DoctorService doctorService;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
     /**
      * 医生列表（分页）
      * 接口路径：GET /api/doctor/list
      * 是否需要登录：否
      *
      * @param dto 分页查询参数
+     * @param fields 返回字段（可选，逗号分隔的属性名，如id,doctorName,title）
      * @return 医生列表
      */
     @GetMapping("/list")
     @ApiOperation("医生列表（分页）")
-    public Result<PageResult<DoctorSimpleVO>> getDoctorList(@Valid PageQueryDTO dto) {
+    public Result<PageResult<DoctorSimpleVO>> getDoctorList(@Valid PageQueryDTO dto,
+                                                          @RequestParam(required = false) String fields,
+                                                          ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         PageResult<DoctorSimpleVO> pageResult = doctorService.getDoctorList(dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -51,15 +64,21 @@ public class DoctorController {
      *
      * @param keyword 搜索关键词
      * @param dto 分页查询参数
+     * @param fields 返回字段（可选，逗号分隔的属性名）
      * @return 搜索结果
      */
     @GetMapping("/search")
     @ApiOperation("医生搜索")
     public Result<PageResult<DoctorSimpleVO>> searchDoctors(
             @RequestParam String keyword,
-            @Valid PageQueryDTO dto) {
+            @Valid PageQueryDTO dto,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         PageResult<DoctorSimpleVO> pageResult = doctorService.searchDoctors(keyword, dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -68,13 +87,15 @@ public class DoctorController {
      * 是否需要登录：否
      *
      * @param dto 筛选条件（医院、科室、职称等）
+     * @param fields 返回字段（可选，查询参数，逗号分隔的属性名）
      * @return 筛选后的医生列表
      */
     @PostMapping("/filter")
     @ApiOperation("医生筛选")
-    public Result<PageResult<DoctorSimpleVO>> filterDoctors(@RequestBody @Valid DoctorFilterDTO dto) {
+    public Result<PageResult<DoctorSimpleVO>> filterDoctors(@RequestBody @Valid DoctorFilterDTO dto,
+                                                          @RequestParam(required = false) String fields) {
         PageResult<DoctorSimpleVO> pageResult = doctorService.filterDoctors(dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -83,13 +104,19 @@ public class DoctorController {
      * 是否需要登录：否
      *
      * @param deptId 科室ID
+     * @param fields 返回字段（可选，逗号分隔的属性名）
      * @return 该科室下的所有医生
      */
     @GetMapping("/department/{deptId}")
     @ApiOperation("按科室查询医生")
-    public Result<List<DoctorSimpleVO>> getDoctorsByDepartment(@PathVariable Long deptId) {
+    public Result<List<DoctorSimpleVO>> getDoctorsByDepartment(@PathVariable Long deptId,
+                                                           @RequestParam(required = false) String fields,
+                                                           ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         List<DoctorSimpleVO> doctors = doctorService.getDoctorsByDepartment(deptId);
-        return Result.success(doctors);
+        return Result.success(FieldSelector.select(doctors, fields));
     }
 
     /**
@@ -99,15 +126,21 @@ public class DoctorController {
      *
      * @param hospitalId 医院ID
      * @param dto 分页查询参数
+     * @param fields 返回字段（可选，逗号分隔的属性名）
      * @return 该医院下的医生列表（分页）
      */
     @GetMapping("/hospital/{hospitalId}")
     @ApiOperation("按医院查询医生")
     public Result<PageResult<DoctorSimpleVO>> getDoctorsByHospital(
             @PathVariable Long hospitalId,
-            @Valid PageQueryDTO dto) {
+            @Valid PageQueryDTO dto,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, "hr", hospitalId, null, catalogVersion.hospital(hospitalId))) {
+            return null;
+        }
         PageResult<DoctorSimpleVO> pageResult = doctorService.getDoctorsByHospital(hospitalId, dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -120,8 +153,12 @@ public class DoctorController {
      */
     @GetMapping("/{id}")
     @ApiOperation("医生详情")
-    public Result<DoctorVO> getDoctorDetail(@PathVariable Long id) {
+    public Result<DoctorVO> getDoctorDetail(@PathVariable Long id, ServletWebRequest webRequest) {
         DoctorVO doctorVO = doctorService.getDoctorDetail(id);
+        if (HttpCacheUtil.checkNotModified(webRequest, "d", id, doctorVO.getUpdateTime(),
+                catalogVersion.hospital(doctorVO.getHospitalId()))) {
+            return null;
+        }
         return Result.success(doctorVO);
     }
 }
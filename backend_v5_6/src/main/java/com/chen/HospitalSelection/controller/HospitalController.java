@@ -1,23 +1,40 @@
 package com.chen.HospitalSelection.controller;
 
+import com.chen.HospitalSelection.cache.CatalogVersion;
 import com.chen.HospitalSelection.dto.AIQueryRequestDTO;
 import com.chen.HospitalSelection.dto.HospitalFilterDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
+import com.chen.HospitalSelection.service.FilterService;
 import com.chen.HospitalSelection.service.HospitalService;
+import com.chen.HospitalSelection.util.FieldSelector;
+import com.chen.HospitalSelection.util.HttpCacheUtil;
 import com.chen.HospitalSelection.vo.DepartmentVO;
 import com.chen.HospitalSelection.vo.DoctorSimpleVO;
+import com.chen.HospitalSelection.vo.HospitalFullVO;
 import com.chen.HospitalSelection.vo.HospitalSimpleVO;
 import com.chen.HospitalSelection.vo.HospitalVO;
 import com.chen.HospitalSelection.vo.PageResult;
+import com.chen.HospitalSelection.vo.SuggestionVO;
 import com.chen.HospitalSelection.vo.Result;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 医院信息接口
@@ -31,25 +48,42 @@ import java.util.List;
 @Api(tags = "医院管理")
 public class HospitalController {
 
+    /**
+     * AI推荐事件流超时时间（毫秒），覆盖大模型读取超时和筛选查询
+     */
+    private static final long AI_STREAM_TIMEOUT_MS = 30000L;
+
     @Autowired
     private HospitalService hospitalService;
 
     @Autowired
     private com.chen.HospitalSelection.service.DoctorService doctorService;
 
+    @Autowired
+    private FilterService filterService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
     /**
      * 医院列表（分页）
      * 接口路径：GET /api/hospital/list
      * 是否需要登录：否
      *
      * @param dto 分页查询参数
+     * @param fields 返回字段（可选，逗号分隔的属性名，如id,hospitalName,rating）
      * @return 医院列表
      */
     @GetMapping("/list")
     @ApiOperation("医院列表（分页）")
-    public Result<PageResult<HospitalSimpleVO>> getHospitalList(@Valid PageQueryDTO dto) {
+    public Result<PageResult<HospitalSimpleVO>> getHospitalList(@Valid PageQueryDTO dto,
+                                                              @RequestParam(required = false) String fields,
+                                                              ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         PageResult<HospitalSimpleVO> pageResult = hospitalService.getHospitalList(dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -59,15 +93,21 @@ public class HospitalController {
      *
      * @param keyword 搜索关键词
      * @param dto 分页查询参数
+     * @param fields 返回字段（可选，逗号分隔的属性名）
      * @return 搜索结果
      */
     @GetMapping("/search")
     @ApiOperation("医院搜索")
     public Result<PageResult<HospitalSimpleVO>> searchHospitals(
             @RequestParam String keyword,
-            @Valid PageQueryDTO dto) {
+            @Valid PageQueryDTO dto,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         PageResult<HospitalSimpleVO> pageResult = hospitalService.searchHospitals(keyword, dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
     }
 
     /**
@@ -76,13 +116,57 @@ public class HospitalController {
      * 是否需要登录：否
      *
      * @param dto 筛选条件（疾病类型、医院等级、地区、医保定点等）
+     * @param fields 返回字段（可选，查询参数，逗号分隔的属性名）
      * @return 筛选后的医院列表
      */
     @PostMapping("/filter")
     @ApiOperation("医院多条件筛选")
-    public Result<PageResult<HospitalSimpleVO>> filterHospitals(@RequestBody @Valid HospitalFilterDTO dto) {
+    public Result<PageResult<HospitalSimpleVO>> filterHospitals(@RequestBody @Valid HospitalFilterDTO dto,
+                                                                  @RequestParam(required = false) String fields) {
         PageResult<HospitalSimpleVO> pageResult = hospitalService.filterHospitals(dto);
-        return Result.success(pageResult);
+        return Result.success(FieldSelector.select(pageResult, fields));
+    }
+
+    /**
+     * 附近医院（按距离由近到远）
+     * 接口路径：GET /api/hospital/nearby
+     * 是否需要登录：否
+     *
+     * @param dto   位置及筛选条件（latitude、longitude必填，radiusKm、hospitalLevel、isMedicalInsurance、deptName可选）
+     * @param limit 返回条数（默认10，最多50）
+     * @param fields 返回字段（可选，逗号分隔的属性名）
+     * @return 医院列表（含距离，单位公里）
+     */
+    @GetMapping("/nearby")
+    @ApiOperation("附近医院")
+    public Result<List<HospitalSimpleVO>> nearby(HospitalFilterDTO dto,
+                                                 @RequestParam(defaultValue = "10") Integer limit,
+                                                 @RequestParam(required = false) String fields,
+                                                 ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
+        List<HospitalSimpleVO> hospitals = hospitalService.getNearbyHospitals(dto, limit);
+        return Result.success(FieldSelector.select(hospitals, fields));
+    }
+
+    /**
+     * 筛选条件统计（各筛选项可选值及对应医院数量）
+     * 接口路径：GET /api/hospital/filter/stats
+     * 是否需要登录：否
+     *
+     * @param filterMap 当前已选筛选条件（hospitalLevel、provinceCode、cityCode、areaCode、isMedicalInsurance、deptName）
+     * @return 统计结果，key为"total"或"筛选项:取值"
+     */
+    @GetMapping("/filter/stats")
+    @ApiOperation("筛选条件统计")
+    public Result<Map<String, Long>> getFilterStats(@RequestParam Map<String, Object> filterMap,
+                                                   ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
+        Map<String, Long> stats = filterService.getFilterStats(filterMap);
+        return Result.success(stats);
     }
 
     /**
@@ -95,8 +179,12 @@ public class HospitalController {
      */
     @GetMapping("/{id}")
     @ApiOperation("医院详情")
-    public Result<HospitalVO> getHospitalDetail(@PathVariable Long id) {
+    public Result<HospitalVO> getHospitalDetail(@PathVariable Long id, ServletWebRequest webRequest) {
         HospitalVO hospitalVO = hospitalService.getHospitalDetail(id);
+        if (HttpCacheUtil.checkNotModified(webRequest, "h", id, hospitalVO.getUpdateTime(),
+                catalogVersion.hospital(id))) {
+            return null;
+        }
         return Result.success(hospitalVO);
     }
 
@@ -110,7 +198,10 @@ public class HospitalController {
      */
     @GetMapping("/{id}/departments")
     @ApiOperation("医院科室列表")
-    public Result<List<DepartmentVO>> getHospitalDepartments(@PathVariable Long id) {
+    public Result<List<DepartmentVO>> getHospitalDepartments(@PathVariable Long id, ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, "hd", id, null, catalogVersion.hospital(id))) {
+            return null;
+        }
         List<DepartmentVO> departments = hospitalService.getHospitalDepartments(id);
         return Result.success(departments);
     }
@@ -125,11 +216,33 @@ public class HospitalController {
      */
     @GetMapping("/{id}/doctors")
     @ApiOperation("医院医生列表")
-    public Result<List<DoctorSimpleVO>> getHospitalDoctors(@PathVariable Long id) {
+    public Result<List<DoctorSimpleVO>> getHospitalDoctors(@PathVariable Long id, ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, "hr", id, null, catalogVersion.hospital(id))) {
+            return null;
+        }
         List<DoctorSimpleVO> doctors = hospitalService.getHospitalDoctors(id);
         return Result.success(doctors);
     }
 
+    /**
+     * 医院详情页聚合数据（医院详情、科室列表、按科室分组的医生）
+     * 接口路径：GET /api/hospital/{id}/full
+     * 是否需要登录：否
+     *
+     * @param id 医院ID
+     * @return 详情页所需的全部数据
+     */
+    @GetMapping("/{id}/full")
+    @ApiOperation("医院详情页聚合数据")
+    public Result<HospitalFullVO> getHospitalFull(@PathVariable Long id, ServletWebRequest webRequest) {
+        HospitalFullVO full = hospitalService.getHospitalFull(id);
+        if (HttpCacheUtil.checkNotModified(webRequest, "hf", id, full.getHospital().getUpdateTime(),
+                catalogVersion.hospital(id))) {
+            return null;
+        }
+        return Result.success(full);
+    }
+
     /**
      * 根据科室名称筛选医院医生列表
      * 接口路径：GET /api/hospital/{id}/doctors/dept/{deptName}
@@ -143,7 +256,11 @@ public class HospitalController {
     @ApiOperation("根据科室名称筛选医院医生列表")
     public Result<List<DoctorSimpleVO>> getHospitalDoctorsByDeptName(
             @PathVariable Long id,
-            @PathVariable String deptName) {
+            @PathVariable String deptName,
+            ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, "hr", id, null, catalogVersion.hospital(id))) {
+            return null;
+        }
         List<DoctorSimpleVO> doctors = doctorService.getDoctorsByHospitalAndDeptName(id, deptName);
         return Result.success(doctors);
     }
@@ -158,11 +275,35 @@ public class HospitalController {
      */
     @GetMapping("/search/suggest")
     @ApiOperation("医院搜索建议")
-    public Result<List<String>> searchSuggest(@RequestParam String keyword) {
+    public Result<List<String>> searchSuggest(@RequestParam String keyword, ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
         List<String> suggestions = hospitalService.getSearchSuggestions(keyword);
         return Result.success(suggestions);
     }
 
+    /**
+     * 搜索自动补全（支持汉字、拼音全拼、拼音首字母前缀）
+     * 接口路径：GET /api/hospital/search/autocomplete
+     * 是否需要登录：否
+     *
+     * @param keyword 输入前缀
+     * @param type    补全类型（hospital/doctor/department/disease，可选）
+     * @return 补全候选列表
+     */
+    @GetMapping("/search/autocomplete")
+    @ApiOperation("搜索自动补全")
+    public Result<List<SuggestionVO>> autocomplete(@RequestParam String keyword,
+                                                   @RequestParam(required = false) String type,
+                                                   ServletWebRequest webRequest) {
+        if (HttpCacheUtil.checkNotModified(webRequest, catalogVersion.global())) {
+            return null;
+        }
+        List<SuggestionVO> suggestions = hospitalService.getAutocomplete(keyword, type);
+        return Result.success(suggestions);
+    }
+
     /**
      * AI智能推荐医院
      * 接口路径：POST /api/hospital/ai-recommend
@@ -173,15 +314,101 @@ public class HospitalController {
      */
     @PostMapping("/ai-recommend")
     @ApiOperation("AI智能推荐医院")
-    public Result<PageResult<HospitalSimpleVO>> aiRecommend(@RequestBody @Valid AIQueryRequestDTO request) {
+    public CompletableFuture<Result<PageResult<HospitalSimpleVO>>> aiRecommend(
+            @RequestBody @Valid AIQueryRequestDTO request, HttpServletRequest httpRequest) {
         log.info("收到AI推荐请求，查询内容：{}", request.getQuery());
 
+        // 异步处理：等待大模型期间释放容器线程，结果就绪后再写回响应
+        return hospitalService.aiRecommendHospitalsAsync(request, clientKey(httpRequest))
+                .thenApply(result -> Result.success(result, "AI推荐成功"))
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    log.error("AI推荐失败", cause);
+                    return Result.error(500, "AI推荐失败：" + cause.getMessage());
+                });
+    }
+
+    /**
+     * AI智能推荐医院（Server-Sent Events）
+     * 接口路径：GET /api/hospital/ai-recommend/stream?query=...&pageNum=1&pageSize=10
+     * 是否需要登录：否
+     *
+     * 依次推送事件：
+     * - filter：解析出的筛选条件（前端可先展示"为您筛选：北京 三甲 神经内科"）
+     * - result：医院分页列表
+     * - error：处理失败的原因
+     * 推送完成后关闭连接。使用GET以便浏览器EventSource直接订阅。
+     *
+     * @param request AI查询请求（查询参数）
+     * @return 事件流
+     */
+    @GetMapping(value = "/ai-recommend/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("AI智能推荐医院（事件流）")
+    public SseEmitter aiRecommendStream(@Valid AIQueryRequestDTO request, HttpServletRequest httpRequest) {
+        log.info("收到AI推荐事件流请求，查询内容：{}", request.getQuery());
+
+        SseEmitter emitter = new SseEmitter(AI_STREAM_TIMEOUT_MS);
+        hospitalService.analyzeQueryAsync(request, clientKey(httpRequest))
+                .thenCompose(filter -> {
+                    sendEvent(emitter, "filter", Result.success(filter));
+                    return hospitalService.filterHospitalsAsync(filter);
+                })
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        sendEvent(emitter, "result", Result.success(result, "AI推荐成功"));
+                        emitter.complete();
+                        return;
+                    }
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof IOException) {
+                        // 客户端已断开
+                        log.debug("AI推荐事件流客户端已断开：{}", cause.getMessage());
+                        emitter.completeWithError(cause);
+                        return;
+                    }
+                    log.error("AI推荐失败", cause);
+                    try {
+                        emitter.send(SseEmitter.event().name("error")
+                                .data(Result.error(500, "AI推荐失败：" + cause.getMessage())));
+                        emitter.complete();
+                    } catch (IOException ex) {
+                        emitter.completeWithError(ex);
+                    }
+                });
+        return emitter;
+    }
+
+    /**
+     * AI调用限速的调用方标识：登录用户按用户ID，匿名用户按IP
+     */
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Long) {
+            return "user:" + authentication.getPrincipal();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * 推送一个事件，发送失败（客户端断开）时抛出以终止后续处理
+     */
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
         try {
-            PageResult<HospitalSimpleVO> result = hospitalService.aiRecommendHospitals(request);
-            return Result.success(result, "AI推荐成功");
-        } catch (Exception e) {
-            log.error("AI推荐失败", e);
-            return Result.error(500, "AI推荐失败：" + e.getMessage());
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 取出CompletableFuture包装的原始异常
+     */
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause;
     }
 }
@@ -37,6 +37,12 @@ public class DoctorFilterDTO implements Serializable {
     @Schema(description = "职称（主任医师/副主任医师/主治医师）", example = "主任医师")
     private String title;
 
+    /**
+     * 关键词（可选，匹配姓名、擅长领域、学术背景）
+     */
+    @Schema(description = "关键词（姓名/擅长领域/学术背景）", example = "冠心病")
+    private String keyword;
+
     /**
      * 疾病编码（可选）
      */
@@ -76,4 +82,16 @@ public class DoctorFilterDTO implements Serializable {
      */
     @Schema(description = "排序字段（rating/default）", example = "rating")
     private String sortBy;
+
+    /**
+     * 是否使用游标分页（首次请求传true，之后传上一页返回的nextCursor）
+     */
+    @Schema(description = "是否使用游标分页（不统计总数，适合无限滚动）", example = "false")
+    private Boolean cursorMode;
+
+    /**
+     * 游标（上一页返回的nextCursor，传入时自动使用游标分页）
+     */
+    @Schema(description = "游标（上一页返回的nextCursor）")
+    private String cursor;
 }
@@ -62,6 +62,18 @@ public class HospitalCreateDTO implements Serializable {
     @Schema(description = "详细地址", example = "广州市越秀区xx路123号", required = true)
     private String address;
 
+    /**
+     * 纬度（GCJ-02，可选，需与经度同时提供）
+     */
+    @Schema(description = "纬度", example = "23.130000")
+    private BigDecimal latitude;
+
+    /**
+     * 经度（GCJ-02，可选，需与纬度同时提供）
+     */
+    @Schema(description = "经度", example = "113.270000")
+    private BigDecimal longitude;
+
     /**
      * 联系电话
      */
@@ -62,6 +62,24 @@ public class HospitalFilterDTO implements Serializable {
     @Schema(description = "重点科室", example = "心内科")
     private String keyDepartments;
 
+    /**
+     * 用户所在位置纬度（可选，按距离排序或附近查询时必填）
+     */
+    @Schema(description = "用户所在位置纬度（GCJ-02）", example = "23.130000")
+    private Double latitude;
+
+    /**
+     * 用户所在位置经度（可选，按距离排序或附近查询时必填）
+     */
+    @Schema(description = "用户所在位置经度（GCJ-02）", example = "113.270000")
+    private Double longitude;
+
+    /**
+     * 搜索半径（公里，可选，不填时不限距离）
+     */
+    @Schema(description = "搜索半径（公里）", example = "5")
+    private Double radiusKm;
+
     /**
      * 页码
      */
@@ -79,8 +97,14 @@ public class HospitalFilterDTO implements Serializable {
     private Integer pageSize;
 
     /**
-     * 排序字段（level = 级别优先，rating = 评分优先，default = 默认排序）
+     * 排序字段（level = 级别优先，rating = 评分优先，match = 匹配度优先，distance = 距离优先，default = 默认排序）
      */
-    @Schema(description = "排序字段（level/rating）", example = "level")
+    @Schema(description = "排序字段（level/rating/match/distance）", example = "level")
     private String sortBy;
+
+    /**
+     * 是否免COUNT分页（多取一条判断hasMore，总数使用缓存的计数，可能为估计值或为空）
+     */
+    @Schema(description = "是否免COUNT分页（返回hasMore，总数可能为估计值）", example = "false")
+    private Boolean skipCount;
 }
@@ -46,4 +46,22 @@ public class PageQueryDTO implements Serializable {
      */
     @Schema(description = "搜索关键词", example = "测试")
     private String keyword;
+
+    /**
+     * 是否使用游标分页（首次请求传true，之后传上一页返回的nextCursor）
+     */
+    @Schema(description = "是否使用游标分页（不统计总数，适合无限滚动）", example = "false")
+    private Boolean cursorMode;
+
+    /**
+     * 游标（上一页返回的nextCursor，传入时自动使用游标分页）
+     */
+    @Schema(description = "游标（上一页返回的nextCursor）")
+    private String cursor;
+
+    /**
+     * 是否免COUNT分页（多取一条判断hasMore，总数使用缓存的计数，可能为估计值或为空）
+     */
+    @Schema(description = "是否免COUNT分页（返回hasMore，总数可能为估计值）", example = "false")
+    private Boolean skipCount;
 }
@@ -0,0 +1,52 @@
+package com.chen.HospitalSelection.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 医院目录数据变更事件
+ * 管理员新增、修改、删除、恢复医院/科室/医生后发布，
+ * 内存索引等组件在事务提交后监听该事件并按医院增量刷新
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Getter
+public class CatalogChangeEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 变更对象类型
+     */
+    public enum Target {
+        /** 医院 */
+        HOSPITAL,
+        /** 科室 */
+        DEPARTMENT,
+        /** 医生 */
+        DOCTOR
+    }
+
+    /**
+     * 变更对象类型
+     */
+    private final Target target;
+
+    /**
+     * 受影响的医院ID
+     */
+    private final Long hospitalId;
+
+    /**
+     * 变更对象ID（医院变更时与hospitalId相同，科室/医生变更时为科室ID/医生ID）
+     */
+    private final Long targetId;
+
+    public CatalogChangeEvent(Object source, Target target, Long hospitalId, Long targetId) {
+        super(source);
+        this.target = target;
+        this.hospitalId = hospitalId;
+        this.targetId = targetId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.chen.HospitalSelection.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 疾病分类字典变更事件
+ * 管理员重新加载疾病分类字典后发布，
+ * 疾病推荐索引（疾病 -> 科室权重及医院排名）和搜索自动补全索引监听该事件并重建
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+public class DiseaseTaxonomyChangeEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    public DiseaseTaxonomyChangeEvent(Object source) {
+        super(source);
+    }
+}
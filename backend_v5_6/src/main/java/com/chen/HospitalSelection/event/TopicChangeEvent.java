@@ -0,0 +1,57 @@
+package com.chen.HospitalSelection.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 社区话题变更事件
+ * 发布、修改、删除话题及点赞、收藏、评论后发布，
+ * 热度索引在事务提交后监听该事件并增量更新对应话题的热度；
+ * 浏览不逐次发布，由TopicViewCounter每轮写入数据库后批量同步给热度索引
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Getter
+public class TopicChangeEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        /** 发布或修改（板块、标题等可能变化，按数据库重新加载） */
+        SAVED,
+        /** 删除 */
+        DELETED,
+        /** 点赞 */
+        LIKED,
+        /** 取消点赞 */
+        UNLIKED,
+        /** 收藏 */
+        COLLECTED,
+        /** 取消收藏 */
+        UNCOLLECTED,
+        /** 评论 */
+        COMMENTED,
+        /** 删除评论 */
+        UNCOMMENTED
+    }
+
+    /**
+     * 话题ID
+     */
+    private final Long topicId;
+
+    /**
+     * 变更类型
+     */
+    private final Type type;
+
+    public TopicChangeEvent(Object source, Long topicId, Type type) {
+        super(source);
+        this.topicId = topicId;
+        this.type = type;
+    }
+}
@@ -0,0 +1,176 @@
+package com.chen.HospitalSelection.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick多模式匹配自动机
+ * 一次扫描文本即可找出所有词典词的出现位置，耗时与文本长度和命中数成正比，与词典大小无关。
+ * 构建后只读，可在多个线程间共享。
+ *
+ * @param <V> 词条附带的值
+ * @author chen
+ * @since 2025-03-01
+ */
+final class AhoCorasick<V> {
+
+    /**
+     * 节点的子节点（字符 -> 节点编号）
+     */
+    private final List<Map<Character, Integer>> next = new ArrayList<>();
+
+    /**
+     * 失败指针
+     */
+    private int[] fail;
+
+    /**
+     * 输出指针：沿失败链第一个以词条结尾的节点（没有时为-1）
+     */
+    private int[] output;
+
+    /**
+     * 节点 -> 以该节点结尾的词条长度（不是词条结尾时为0）
+     */
+    private final List<Integer> lengths = new ArrayList<>();
+
+    /**
+     * 节点 -> 词条附带的值
+     */
+    private final List<List<V>> values = new ArrayList<>();
+
+    private boolean built = false;
+
+    AhoCorasick() {
+        newNode();
+    }
+
+    /**
+     * 添加词条（同一词条可添加多个值）
+     */
+    void add(String keyword, V value) {
+        if (built) {
+            throw new IllegalStateException("自动机已构建，不能再添加词条");
+        }
+        if (keyword == null || keyword.isEmpty()) {
+            return;
+        }
+        int node = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            Integer child = next.get(node).get(c);
+            if (child == null) {
+                child = newNode();
+                next.get(node).put(c, child);
+            }
+            node = child;
+        }
+        lengths.set(node, keyword.length());
+        if (values.get(node) == null) {
+            values.set(node, new ArrayList<>(1));
+        }
+        values.get(node).add(value);
+    }
+
+    /**
+     * 按广度优先计算失败指针和输出指针
+     */
+    AhoCorasick<V> build() {
+        int size = next.size();
+        fail = new int[size];
+        output = new int[size];
+        output[0] = -1;
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : next.get(0).values()) {
+            fail[child] = 0;
+            output[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> entry : next.get(node).entrySet()) {
+                int child = entry.getValue();
+                int state = fail[node];
+                while (state != 0 && !next.get(state).containsKey(entry.getKey())) {
+                    state = fail[state];
+                }
+                Integer target = next.get(state).get(entry.getKey());
+                fail[child] = target == null || target == child ? 0 : target;
+                output[child] = lengths.get(fail[child]) > 0 ? fail[child] : output[fail[child]];
+                queue.add(child);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (values.get(i) != null) {
+                values.set(i, Collections.unmodifiableList(values.get(i)));
+            }
+        }
+        built = true;
+        return this;
+    }
+
+    /**
+     * 查找文本中所有词条的出现（可能重叠），按结束位置升序
+     */
+    List<Match<V>> findAll(String text) {
+        List<Match<V>> matches = new ArrayList<>();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (state != 0 && !next.get(state).containsKey(c)) {
+                state = fail[state];
+            }
+            Integer target = next.get(state).get(c);
+            state = target == null ? 0 : target;
+
+            int hit = lengths.get(state) > 0 ? state : output[state];
+            while (hit > 0) {
+                int length = lengths.get(hit);
+                matches.add(new Match<>(i + 1 - length, i + 1, text.substring(i + 1 - length, i + 1), values.get(hit)));
+                hit = output[hit];
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 节点数（用于日志）
+     */
+    int nodeCount() {
+        return next.size();
+    }
+
+    private int newNode() {
+        next.add(new HashMap<>(4));
+        lengths.add(0);
+        values.add(null);
+        return next.size() - 1;
+    }
+
+    /**
+     * 一次命中：[start, end)区间的词条及其附带的值
+     */
+    static final class Match<V> {
+        final int start;
+        final int end;
+        final String keyword;
+        final List<V> values;
+
+        Match(int start, int end, String keyword, List<V> values) {
+            this.start = start;
+            this.end = end;
+            this.keyword = keyword;
+            this.values = values;
+        }
+
+        int length() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.mapper.AreaMapper;
+import com.chen.HospitalSelection.model.Area;
+import com.chen.HospitalSelection.vo.AreaVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 省市区字典
+ *
+ * area_info一年只变动几次，启动时一次性读入内存，构建不可变快照：
+ * 编码/ID -> 地区、父编码 -> 子地区列表、编码 -> 完整路径，以及预先组装好的省市区树。
+ * 地区数据更新后调用 {@link #reload()} 整体替换快照，读请求不加锁。
+ *
+ * 返回的地区对象和树由所有请求共享，调用方不能修改。
+ * 字典与原Mapper查询读同一张表，加载失败时直接抛出异常（与原来查询失败的表现一致）。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class AreaDictionary {
+
+    /**
+     * 路径分隔符（与原getAreaPath一致）
+     */
+    private static final String PATH_SEPARATOR = " > ";
+
+    private static final Comparator<Area> BY_LEVEL_AND_CODE = Comparator
+            .comparing((Area area) -> area.getLevel() == null ? Integer.MAX_VALUE : area.getLevel())
+            .thenComparing(Area::getCode);
+
+    @Autowired
+    private AreaMapper areaMapper;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 应用启动完成后预加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            ensureLoaded();
+        } catch (Exception e) {
+            log.warn("地区字典加载失败，将在首次访问时重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载地区数据
+     *
+     * @return 地区数量
+     */
+    public int reload() {
+        long start = System.currentTimeMillis();
+        Snapshot loaded = new Snapshot(areaMapper.selectAll());
+        snapshot = loaded;
+        log.info("地区字典加载完成，地区数：{}，耗时：{}ms", loaded.byCode.size(), System.currentTimeMillis() - start);
+        return loaded.byCode.size();
+    }
+
+    public Area getByCode(String code) {
+        return code == null ? null : ensureLoaded().byCode.get(code);
+    }
+
+    public Area getById(Long id) {
+        return id == null ? null : ensureLoaded().byId.get(id);
+    }
+
+    /**
+     * 地区名称
+     *
+     * @param code 地区编码
+     * @return 名称，编码不存在时返回null
+     */
+    public String getName(String code) {
+        Area area = getByCode(code);
+        return area == null ? null : area.getName();
+    }
+
+    /**
+     * 子地区（按编码升序）
+     *
+     * @param parentCode 父级编码
+     * @param level      子地区级别（为null时不限制）
+     */
+    public List<Area> getChildren(String parentCode, Integer level) {
+        List<Area> children = ensureLoaded().children.getOrDefault(parentCode, Collections.emptyList());
+        if (level == null) {
+            return children;
+        }
+        List<Area> result = new ArrayList<>(children.size());
+        for (Area child : children) {
+            if (level.equals(child.getLevel())) {
+                result.add(child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 全部地区（按级别、编码排序，同一快照内返回同一个列表实例）
+     */
+    public List<Area> getAll() {
+        return ensureLoaded().sorted;
+    }
+
+    /**
+     * 所有省份（按编码升序）
+     */
+    public List<Area> getProvinces() {
+        return ensureLoaded().provinces;
+    }
+
+    /**
+     * 省市区树（预先组装，共享只读）
+     */
+    public List<AreaVO> getTree() {
+        return ensureLoaded().tree;
+    }
+
+    /**
+     * 地区完整路径，如"广东省 > 广州市 > 天河区"
+     *
+     * @param code 地区编码
+     * @return 路径，编码不存在时返回null
+     */
+    public String getPath(String code) {
+        return code == null ? null : ensureLoaded().paths.get(code);
+    }
+
+    /**
+     * 按名称模糊搜索（按级别、编码排序）
+     */
+    public List<Area> searchByName(String keyword) {
+        List<Area> result = new ArrayList<>();
+        if (keyword == null) {
+            return result;
+        }
+        for (Area area : ensureLoaded().sorted) {
+            if (area.getName() != null && area.getName().contains(keyword)) {
+                result.add(area);
+            }
+        }
+        return result;
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                reload();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static class Snapshot {
+        private final Map<String, Area> byCode = new HashMap<>();
+        private final Map<Long, Area> byId = new HashMap<>();
+        private final Map<String, List<Area>> children = new HashMap<>();
+        private final Map<String, String> paths = new HashMap<>();
+        private final List<Area> sorted;
+        private final List<Area> provinces;
+        private final List<AreaVO> tree;
+
+        Snapshot(List<Area> areas) {
+            List<Area> all = new ArrayList<>(areas);
+            all.sort(BY_LEVEL_AND_CODE);
+            sorted = Collections.unmodifiableList(all);
+
+            List<Area> provinceList = new ArrayList<>();
+            for (Area area : all) {
+                byCode.put(area.getCode(), area);
+                byId.put(area.getId(), area);
+                if (area.getParentCode() != null) {
+                    children.computeIfAbsent(area.getParentCode(), k -> new ArrayList<>()).add(area);
+                }
+                if (area.getLevel() != null && area.getLevel() == 1) {
+                    provinceList.add(area);
+                }
+            }
+            provinces = Collections.unmodifiableList(provinceList);
+            for (Map.Entry<String, List<Area>> entry : children.entrySet()) {
+                List<Area> list = entry.getValue();
+                list.sort(Comparator.comparing(Area::getCode));
+                entry.setValue(Collections.unmodifiableList(list));
+            }
+            for (Area area : all) {
+                paths.put(area.getCode(), buildPath(area));
+            }
+
+            List<AreaVO> provinceVOList = new ArrayList<>(provinceList.size());
+            for (Area province : provinceList) {
+                AreaVO provinceVO = toVO(province);
+                List<AreaVO> cityVOList = new ArrayList<>();
+                for (Area city : levelChildren(province.getCode(), 2)) {
+                    AreaVO cityVO = toVO(city);
+                    List<AreaVO> areaVOList = new ArrayList<>();
+                    for (Area district : levelChildren(city.getCode(), 3)) {
+                        areaVOList.add(toVO(district));
+                    }
+                    cityVO.setChildren(Collections.unmodifiableList(areaVOList));
+                    cityVOList.add(cityVO);
+                }
+                provinceVO.setChildren(Collections.unmodifiableList(cityVOList));
+                provinceVOList.add(provinceVO);
+            }
+            tree = Collections.unmodifiableList(provinceVOList);
+        }
+
+        private List<Area> levelChildren(String parentCode, int level) {
+            List<Area> result = new ArrayList<>();
+            for (Area child : children.getOrDefault(parentCode, Collections.emptyList())) {
+                if (child.getLevel() != null && child.getLevel() == level) {
+                    result.add(child);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 沿父级编码向上拼接路径（最多3级，防止数据成环）
+         */
+        private String buildPath(Area area) {
+            StringBuilder path = new StringBuilder(area.getName());
+            Area current = area;
+            for (int depth = 1; depth < 3 && current.getParentCode() != null; depth++) {
+                current = byCode.get(current.getParentCode());
+                if (current == null) {
+                    break;
+                }
+                path.insert(0, current.getName() + PATH_SEPARATOR);
+            }
+            return path.toString();
+        }
+
+        private static AreaVO toVO(Area area) {
+            AreaVO vo = new AreaVO();
+            vo.setId(area.getId());
+            vo.setCode(area.getCode());
+            vo.setName(area.getName());
+            vo.setParentCode(area.getParentCode());
+            vo.setLevel(area.getLevel());
+            return vo;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.cache.AIQueryCache;
+import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.model.Area;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 地名词典（地名 -> area_info编码）
+ *
+ * 由地区字典构建一台Aho-Corasick自动机，词条包括地区全称、去掉"省/市/区/县/自治区"等后缀的简称和常见别称（如"羊城"），
+ * 一次扫描即可找出文本中的所有地名。多个地名按上下级关系合并为一组省/市/区编码
+ * （"北京朝阳"取北京市朝阳区；只有"鼓楼区"时多个城市都有，视为歧义不返回）。
+ *
+ * 主要用于校正大模型返回的地区编码：编码不存在、级别不对或与用户原话中的地名矛盾时，以词典解析结果为准，
+ * 避免按不存在的编码筛选得到空结果。
+ *
+ * 地区字典重新加载后（快照中的列表实例变化）在下一次访问时自动重建。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class AreaGazetteer {
+
+    /**
+     * 全称可去掉的后缀（按长度优先），简称至少保留2个字
+     */
+    private static final String[] SUFFIXES = {
+            "特别行政区", "维吾尔自治区", "壮族自治区", "回族自治区", "自治区", "自治州", "自治县", "省", "市", "区", "县"
+    };
+
+    /**
+     * 常见别称 -> 地区全称
+     */
+    private static final String[][] ALIASES = {
+            {"帝都", "北京市"}, {"京城", "北京市"}, {"魔都", "上海市"}, {"申城", "上海市"},
+            {"羊城", "广州市"}, {"花城", "广州市"}, {"鹏城", "深圳市"}, {"蓉城", "成都市"},
+            {"山城", "重庆市"}, {"春城", "昆明市"}, {"泉城", "济南市"}, {"冰城", "哈尔滨市"},
+            {"榕城", "福州市"}, {"星城", "长沙市"}, {"江城", "武汉市"}, {"金陵", "南京市"}
+    };
+
+    /**
+     * 紧跟在地名后时说明地名是医院名称的一部分（如"北京医院"、"中山医院"），不作为地区条件
+     */
+    private static final String HOSPITAL_WORD = "医院";
+
+    @Autowired
+    private AreaDictionary areaDictionary;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 查找文本中的所有地名（可能重叠，由调用方取舍）
+     *
+     * @param text 归一化后的文本（{@link AIQueryCache#normalize(String)}）
+     * @return 地名命中，按结束位置升序
+     */
+    public List<Mention> findAll(String text) {
+        List<Mention> mentions = new ArrayList<>();
+        for (AhoCorasick.Match<String> match : current().automaton.findAll(text)) {
+            if (text.startsWith(HOSPITAL_WORD, match.end)) {
+                continue;
+            }
+            mentions.add(new Mention(match.start, match.end, match.keyword, match.values));
+        }
+        return mentions;
+    }
+
+    /**
+     * 解析文本中的地名为省/市/区编码
+     *
+     * @param query 用户原始输入
+     * @return 编码，没有地名或地名矛盾、有歧义时返回null
+     */
+    public AreaCodes resolveText(String query) {
+        String text = AIQueryCache.normalize(query);
+        if (text.isEmpty()) {
+            return null;
+        }
+        List<Mention> mentions = findAll(text);
+        if (mentions.isEmpty()) {
+            return null;
+        }
+        // 取最左最长的不重叠地名（"朝阳区"中不再单独算"朝阳"）
+        mentions.sort(Comparator.comparingInt(Mention::getStart)
+                .thenComparing(Comparator.comparingInt(Mention::length).reversed()));
+        List<Mention> selected = new ArrayList<>();
+        int end = 0;
+        for (Mention mention : mentions) {
+            if (mention.getStart() >= end) {
+                selected.add(mention);
+                end = mention.getEnd();
+            }
+        }
+        return resolve(selected);
+    }
+
+    /**
+     * 合并多个地名：在所有候选编码中找级别最深、且每个地名都落在其本身或上级上的编码
+     *
+     * @param mentions 不重叠的地名
+     * @return 编码，地名相互矛盾或有歧义时返回null
+     */
+    public AreaCodes resolve(Collection<Mention> mentions) {
+        Area best = null;
+        boolean ambiguous = false;
+        for (Mention mention : mentions) {
+            for (String code : mention.getCodes()) {
+                Area candidate = areaDictionary.getByCode(code);
+                if (candidate == null || !coversAll(candidate, mentions)) {
+                    continue;
+                }
+                if (best == null || level(candidate) > level(best)) {
+                    best = candidate;
+                    ambiguous = false;
+                } else if (level(candidate) == level(best) && !best.getCode().equals(candidate.getCode())) {
+                    ambiguous = true;
+                }
+            }
+        }
+        return best == null || ambiguous ? null : toCodes(best);
+    }
+
+    /**
+     * 校正筛选条件中的地区编码（大模型返回结果的后处理）
+     *
+     * 1. 三个编码中取最深的一个存在的编码，省/市按其上级补全（编码不存在或上下级不一致时以最深的为准）；
+     * 2. 用户原话中能解析出地名时：与上一步结果一致则取更细的一级，矛盾时以原话为准；
+     * 3. 都没有时清空地区编码。
+     *
+     * @param filter 筛选条件（原地修改）
+     * @param query  用户原始输入
+     */
+    public void validate(HospitalFilterDTO filter, String query) {
+        AreaCodes given = fromCodes(filter.getProvinceCode(), filter.getCityCode(), filter.getAreaCode());
+        AreaCodes mentioned = resolveText(query);
+
+        AreaCodes chosen;
+        if (mentioned == null) {
+            chosen = given;
+        } else if (given == null || mentioned.covers(given)) {
+            chosen = mentioned;
+        } else if (given.covers(mentioned)) {
+            chosen = given;
+        } else {
+            chosen = mentioned;
+        }
+
+        AreaCodes original = new AreaCodes(filter.getProvinceCode(), filter.getCityCode(), filter.getAreaCode());
+        if (chosen == null) {
+            chosen = new AreaCodes(null, null, null);
+        }
+        if (!chosen.equals(original)) {
+            log.info("地区编码已校正：{} -> {}，查询：{}", original, chosen, query);
+        }
+        chosen.applyTo(filter);
+    }
+
+    /**
+     * 由已有编码得到一致的省/市/区编码（取最深的一个存在的编码）
+     */
+    private AreaCodes fromCodes(String provinceCode, String cityCode, String areaCode) {
+        for (String code : new String[]{areaCode, cityCode, provinceCode}) {
+            Area area = StringUtils.hasText(code) ? areaDictionary.getByCode(code.trim()) : null;
+            if (area != null) {
+                return toCodes(area);
+            }
+        }
+        return null;
+    }
+
+    private AreaCodes toCodes(Area area) {
+        String province = null;
+        String city = null;
+        String district = null;
+        for (Area current : chain(area)) {
+            switch (level(current)) {
+                case 1:
+                    province = current.getCode();
+                    break;
+                case 2:
+                    city = current.getCode();
+                    break;
+                case 3:
+                    district = current.getCode();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new AreaCodes(province, city, district);
+    }
+
+    /**
+     * 每个地名都有一个候选是该地区本身或其上级
+     */
+    private boolean coversAll(Area candidate, Collection<Mention> mentions) {
+        Set<String> chainCodes = new LinkedHashSet<>();
+        for (Area area : chain(candidate)) {
+            chainCodes.add(area.getCode());
+        }
+        for (Mention mention : mentions) {
+            boolean covered = false;
+            for (String code : mention.getCodes()) {
+                if (chainCodes.contains(code)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 地区本身及其上级（最多3级，防止数据成环）
+     */
+    private List<Area> chain(Area area) {
+        List<Area> result = new ArrayList<>(3);
+        Area current = area;
+        for (int depth = 0; depth < 3 && current != null; depth++) {
+            result.add(current);
+            current = areaDictionary.getByCode(current.getParentCode());
+        }
+        return result;
+    }
+
+    private static int level(Area area) {
+        return area.getLevel() == null ? 0 : area.getLevel();
+    }
+
+    /**
+     * 当前快照，地区字典重新加载后重建
+     */
+    private Snapshot current() {
+        List<Area> areas = areaDictionary.getAll();
+        Snapshot current = snapshot;
+        if (current == null || current.source != areas) {
+            long start = System.nanoTime();
+            current = new Snapshot(areas);
+            snapshot = current;
+            log.info("地名词典构建完成，地区：{}，自动机节点：{}，耗时：{}ms", areas.size(),
+                    current.automaton.nodeCount(), (System.nanoTime() - start) / 1_000_000);
+        }
+        return current;
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static class Snapshot {
+        private final List<Area> source;
+        private final AhoCorasick<String> automaton = new AhoCorasick<>();
+
+        Snapshot(List<Area> areas) {
+            this.source = areas;
+            Map<String, Set<String>> codesByName = new HashMap<>();
+            for (Area area : areas) {
+                if (area.getCode() == null || !StringUtils.hasText(area.getName())) {
+                    continue;
+                }
+                String name = AIQueryCache.normalize(area.getName());
+                codesByName.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(area.getCode());
+                String shortName = stripSuffix(name);
+                if (shortName != null) {
+                    codesByName.computeIfAbsent(shortName, k -> new LinkedHashSet<>()).add(area.getCode());
+                }
+            }
+            for (String[] alias : ALIASES) {
+                Set<String> codes = codesByName.get(alias[1]);
+                if (codes != null) {
+                    codesByName.computeIfAbsent(alias[0], k -> new LinkedHashSet<>()).addAll(codes);
+                }
+            }
+            for (Map.Entry<String, Set<String>> entry : codesByName.entrySet()) {
+                for (String code : entry.getValue()) {
+                    automaton.add(entry.getKey(), code);
+                }
+            }
+            automaton.build();
+        }
+
+        /**
+         * 去掉行政区划后缀得到简称，简称不足2个字时返回null
+         */
+        private static String stripSuffix(String name) {
+            for (String suffix : SUFFIXES) {
+                if (name.endsWith(suffix) && name.length() - suffix.length() >= 2) {
+                    return name.substring(0, name.length() - suffix.length());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 文本中的一个地名：[start, end)区间及其可能对应的地区编码
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Mention {
+        private final int start;
+        private final int end;
+        private final String name;
+        private final List<String> codes;
+
+        public int length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 省/市/区编码
+     */
+    @Data
+    public static class AreaCodes {
+        private final String provinceCode;
+        private final String cityCode;
+        private final String areaCode;
+
+        /**
+         * 最细一级的编码
+         */
+        public String deepest() {
+            return areaCode != null ? areaCode : cityCode != null ? cityCode : provinceCode;
+        }
+
+        /**
+         * other最细一级的编码是否为本编码组中的一级（即other与本组一致且不比本组细）
+         */
+        public boolean covers(AreaCodes other) {
+            String code = other.deepest();
+            return code != null && (code.equals(provinceCode) || code.equals(cityCode) || code.equals(areaCode));
+        }
+
+        public void applyTo(HospitalFilterDTO filter) {
+            filter.setProvinceCode(provinceCode);
+            filter.setCityCode(cityCode);
+            filter.setAreaCode(areaCode);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.event.DiseaseTaxonomyChangeEvent;
+import com.chen.HospitalSelection.mapper.DepartmentMapper;
+import com.chen.HospitalSelection.mapper.DoctorMapper;
+import com.chen.HospitalSelection.mapper.HospitalMapper;
+import com.chen.HospitalSelection.model.Department;
+import com.chen.HospitalSelection.model.Disease;
+import com.chen.HospitalSelection.model.Doctor;
+import com.chen.HospitalSelection.model.Hospital;
+import com.chen.HospitalSelection.util.PinyinUtil;
+import com.chen.HospitalSelection.vo.SuggestionVO;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 搜索自动补全前缀树
+ *
+ * 按类型（医院、医生、科室、疾病）各建一棵前缀树，每个候选以三种键插入：
+ * 原文（小写、去空白）、拼音全拼、拼音首字母，因此"bjxh"、"beijing"、"北京"都能补全出"北京协和医院"。
+ * 候选按权重降序插入，每个节点只保留前10个候选，查询时沿前缀走到节点即得结果，不需要再排序。
+ *
+ * 构建完成后前缀树压平为数组（子节点按字符排序后二分查找），整体作为不可变快照替换，读取无锁。
+ * 目录变更后标记为脏，由定时任务在后台重建，输入过程中不访问数据库。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class AutocompleteIndex {
+
+    /**
+     * 每个节点保留的候选数
+     */
+    public static final int TOP_N = 10;
+
+    /**
+     * 候选类型
+     */
+    public enum Type {
+        /** 医院 */
+        HOSPITAL("hospital"),
+        /** 医生 */
+        DOCTOR("doctor"),
+        /** 科室 */
+        DEPARTMENT("department"),
+        /** 疾病 */
+        DISEASE("disease");
+
+        private final String code;
+
+        Type(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * 按编码查找类型，未知编码返回null
+         */
+        public static Type of(String code) {
+            for (Type type : values()) {
+                if (type.code.equalsIgnoreCase(code)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private HospitalMapper hospitalMapper;
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    @Autowired
+    private DepartmentMapper departmentMapper;
+
+    @Autowired
+    private DiseaseTaxonomy diseaseTaxonomy;
+
+    /**
+     * 当前快照（类型 -> 前缀树），未构建时为null
+     */
+    private volatile Map<Type, Trie> tries;
+
+    private volatile boolean dirty = false;
+
+    /**
+     * 应用启动完成后构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("搜索自动补全索引构建失败：{}", e.getMessage());
+            dirty = true;
+        }
+    }
+
+    /**
+     * 管理端目录变更后（事务提交后）标记需要重建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        dirty = true;
+    }
+
+    /**
+     * 疾病分类字典重新加载后标记需要重建
+     */
+    @EventListener
+    public void onTaxonomyChange(DiseaseTaxonomyChangeEvent event) {
+        dirty = true;
+    }
+
+    /**
+     * 定时检查并在后台重建（每10秒）
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void rebuildIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("搜索自动补全索引重建失败，稍后重试：{}", e.getMessage());
+            dirty = true;
+        }
+    }
+
+    /**
+     * 全量构建所有类型的前缀树
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Type, Trie> built = new EnumMap<>(Type.class);
+        built.put(Type.HOSPITAL, buildTrie(hospitalEntries()));
+        built.put(Type.DOCTOR, buildTrie(doctorEntries()));
+        built.put(Type.DEPARTMENT, buildTrie(departmentEntries()));
+        built.put(Type.DISEASE, buildTrie(diseaseEntries()));
+        tries = built;
+
+        log.info("搜索自动补全索引构建完成，医院：{}，医生：{}，科室：{}，疾病：{}，耗时：{}ms",
+                built.get(Type.HOSPITAL).entries.size(), built.get(Type.DOCTOR).entries.size(),
+                built.get(Type.DEPARTMENT).entries.size(), built.get(Type.DISEASE).entries.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 前缀补全
+     *
+     * @param prefix 输入前缀（汉字、拼音全拼或首字母）
+     * @param type   候选类型
+     * @param limit  返回条数（不超过10）
+     * @return 按权重排序的候选，索引未构建时返回null
+     */
+    public List<SuggestionVO> complete(String prefix, Type type, int limit) {
+        Map<Type, Trie> snapshot = tries;
+        if (snapshot == null) {
+            return null;
+        }
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return snapshot.get(type).complete(key, Math.min(limit, TOP_N));
+    }
+
+    private List<Entry> hospitalEntries() {
+        List<Entry> entries = new ArrayList<>();
+        for (Hospital hospital : hospitalMapper.selectAll()) {
+            entries.add(new Entry(Type.HOSPITAL, hospital.getId(), hospital.getHospitalName(), null,
+                    ratingWeight(HospitalMatchScorer.ratingCenti(hospital.getRating()), hospital.getReviewCount())));
+        }
+        return entries;
+    }
+
+    private List<Entry> doctorEntries() {
+        List<Entry> entries = new ArrayList<>();
+        for (Doctor doctor : doctorMapper.selectAll()) {
+            entries.add(new Entry(Type.DOCTOR, doctor.getId(), doctor.getDoctorName(), doctor.getHospitalName(),
+                    ratingWeight(HospitalMatchScorer.ratingCenti(doctor.getRating()), doctor.getReviewCount())));
+        }
+        return entries;
+    }
+
+    /**
+     * 科室按名称聚合，开设该科室的医院越多越靠前
+     */
+    private List<Entry> departmentEntries() {
+        Map<String, Integer> hospitalCount = new LinkedHashMap<>();
+        for (Department department : departmentMapper.selectAll()) {
+            if (StringUtils.hasText(department.getDeptName())) {
+                hospitalCount.merge(department.getDeptName().trim(), 1, Integer::sum);
+            }
+        }
+        List<Entry> entries = new ArrayList<>(hospitalCount.size());
+        for (Map.Entry<String, Integer> dept : hospitalCount.entrySet()) {
+            entries.add(new Entry(Type.DEPARTMENT, null, dept.getKey(), null, dept.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * 疾病按排序权重，一级分类优先
+     */
+    private List<Entry> diseaseEntries() {
+        List<Entry> entries = new ArrayList<>();
+        for (Disease disease : diseaseTaxonomy.getAll()) {
+            long level1 = disease.getParentId() == null || disease.getParentId() == 0 ? 1L : 0L;
+            long sort = disease.getSort() == null ? 0 : disease.getSort();
+            entries.add(new Entry(Type.DISEASE, disease.getId(), disease.getDiseaseName(),
+                    disease.getDiseaseCode(), (level1 << 32) + sort));
+        }
+        return entries;
+    }
+
+    private static long ratingWeight(int ratingCenti, Integer reviewCount) {
+        return ((long) ratingCenti << 32) + (reviewCount == null ? 0 : reviewCount);
+    }
+
+    /**
+     * 统一小写并去除空白
+     */
+    private static String normalize(String text) {
+        if (!StringUtils.hasText(text)) {
+            return "";
+        }
+        return StringUtils.trimAllWhitespace(text).toLowerCase();
+    }
+
+    /**
+     * 按权重降序插入，每个节点依次收集前TOP_N个不同候选，最后压平为数组
+     */
+    private static Trie buildTrie(List<Entry> entries) {
+        entries.sort(Comparator.comparingLong((Entry e) -> e.weight).reversed());
+
+        BuilderNode root = new BuilderNode();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            String text = normalize(entry.text);
+            insert(root, text, i);
+            if (PinyinUtil.containsChinese(text)) {
+                insert(root, PinyinUtil.toPinyin(text), i);
+                insert(root, PinyinUtil.toInitials(text), i);
+            }
+        }
+        return Trie.freeze(root, entries);
+    }
+
+    private static void insert(BuilderNode root, String key, int entry) {
+        if (key.isEmpty()) {
+            return;
+        }
+        BuilderNode node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new BuilderNode());
+            node.offer(entry);
+        }
+    }
+
+    /**
+     * 候选项
+     */
+    @AllArgsConstructor
+    private static class Entry {
+        private final Type type;
+        private final Long id;
+        private final String text;
+        private final String subtitle;
+        private final long weight;
+    }
+
+    /**
+     * 构建期节点
+     */
+    private static class BuilderNode {
+        private final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        private final int[] top = new int[TOP_N];
+        private int topSize;
+
+        /**
+         * 候选按权重降序到达，未满且未重复时追加
+         */
+        void offer(int entry) {
+            if (topSize == TOP_N || (topSize > 0 && top[topSize - 1] == entry)) {
+                return;
+            }
+            for (int i = 0; i < topSize; i++) {
+                if (top[i] == entry) {
+                    return;
+                }
+            }
+            top[topSize++] = entry;
+        }
+    }
+
+    /**
+     * 压平后的前缀树
+     * 节点i的子节点为childLabels/childNodes中[childStart[i], childStart[i+1])区间（按字符升序），
+     * 候选为topEntries中[topStart[i], topStart[i+1])区间（按权重降序）
+     */
+    private static class Trie {
+        private final List<Entry> entries;
+        private final int[] childStart;
+        private final char[] childLabels;
+        private final int[] childNodes;
+        private final int[] topStart;
+        private final int[] topEntries;
+
+        private Trie(List<Entry> entries, int[] childStart, char[] childLabels, int[] childNodes,
+                     int[] topStart, int[] topEntries) {
+            this.entries = entries;
+            this.childStart = childStart;
+            this.childLabels = childLabels;
+            this.childNodes = childNodes;
+            this.topStart = topStart;
+            this.topEntries = topEntries;
+        }
+
+        /**
+         * 按层序编号节点，同一节点的子节点编号连续
+         */
+        static Trie freeze(BuilderNode root, List<Entry> entries) {
+            List<BuilderNode> order = new ArrayList<>();
+            Deque<BuilderNode> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                BuilderNode node = queue.poll();
+                order.add(node);
+                queue.addAll(node.children.values());
+            }
+
+            int n = order.size();
+            int[] childStart = new int[n + 1];
+            char[] childLabels = new char[n - 1];
+            int[] childNodes = new int[n - 1];
+            int[] topStart = new int[n + 1];
+            int totalTop = 0;
+            for (BuilderNode node : order) {
+                totalTop += node.topSize;
+            }
+            int[] topEntries = new int[totalTop];
+
+            int nextChild = 0;
+            int nextNode = 1;
+            int nextTop = 0;
+            for (int i = 0; i < n; i++) {
+                BuilderNode node = order.get(i);
+                childStart[i] = nextChild;
+                for (Map.Entry<Character, BuilderNode> child : node.children.entrySet()) {
+                    childLabels[nextChild] = child.getKey();
+                    childNodes[nextChild] = nextNode++;
+                    nextChild++;
+                }
+                topStart[i] = nextTop;
+                System.arraycopy(node.top, 0, topEntries, nextTop, node.topSize);
+                nextTop += node.topSize;
+            }
+            childStart[n] = nextChild;
+            topStart[n] = nextTop;
+            return new Trie(entries, childStart, childLabels, childNodes, topStart, topEntries);
+        }
+
+        List<SuggestionVO> complete(String key, int limit) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                node = child(node, key.charAt(i));
+                if (node < 0) {
+                    return Collections.emptyList();
+                }
+            }
+            int from = topStart[node];
+            int to = Math.min(topStart[node + 1], from + limit);
+            List<SuggestionVO> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Entry entry = entries.get(topEntries[i]);
+                result.add(new SuggestionVO(entry.type.getCode(), entry.id, entry.text, entry.subtitle));
+            }
+            return result;
+        }
+
+        private int child(int node, char label) {
+            int low = childStart[node];
+            int high = childStart[node + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = childLabels[mid];
+                if (c < label) {
+                    low = mid + 1;
+                } else if (c > label) {
+                    high = mid - 1;
+                } else {
+                    return childNodes[mid];
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.event.DiseaseTaxonomyChangeEvent;
+import com.chen.HospitalSelection.mapper.DiseaseDepartmentMapper;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
+import com.chen.HospitalSelection.mapper.HospitalMapper;
+import com.chen.HospitalSelection.model.Disease;
+import com.chen.HospitalSelection.model.DiseaseDepartment;
+import com.chen.HospitalSelection.model.Hospital;
+import com.chen.HospitalSelection.model.HospitalDeptCapability;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 疾病 -> 科室 -> 医院 推荐排名索引
+ *
+ * 根据disease_department中疾病对应的科室（二级疾病未配置时沿用一级分类），
+ * 结合医院重点科室（key_departments）和在职医生科室（hospital_dept_capability）计算相关度：
+ * 重点科室命中记 2×权重，有该科室医生记 1×权重，同一科室前缀只取最大权重。
+ * 相关度为0的医院不参与该疾病的推荐。
+ *
+ * 每个疾病的排名以两个平行数组保存（医院ID、相关度），按相关度降序、等级、评分、评价数排序，
+ * 分页查询只需截取数组区间。目录变更后按医院增量调整各疾病的排名。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class DiseaseHospitalIndex {
+
+    @Autowired
+    private DiseaseTaxonomy diseaseTaxonomy;
+
+    @Autowired
+    private DiseaseDepartmentMapper diseaseDepartmentMapper;
+
+    @Autowired
+    private HospitalMapper hospitalMapper;
+
+    @Autowired
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 增量刷新与全量重建互斥：读库和写入索引在同一把锁内完成，后提交的变更一定后写入索引
+     */
+    private final Object refreshMutex = new Object();
+
+    /**
+     * 索引未加载（或刷新失败后待重建）期间到达的刷新，全量重建完成后重放（只在refreshMutex内访问）
+     */
+    private final Set<Long> pendingRefresh = new LinkedHashSet<>();
+
+    /**
+     * 疾病编码 -> 科室前缀 -> 权重
+     */
+    private final Map<String, Map<String, Integer>> deptWeights = new HashMap<>();
+
+    /**
+     * 医院ID -> 排序特征
+     */
+    private final Map<Long, HospitalFeature> features = new HashMap<>();
+
+    /**
+     * 疾病编码 -> 排名
+     */
+    private final Map<String, Ranking> rankings = new HashMap<>();
+
+    /**
+     * 应用启动完成后预热索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 管理端目录变更后（事务提交后）增量刷新受影响的医院
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        if (event.getHospitalId() != null) {
+            refreshHospital(event.getHospitalId());
+        }
+    }
+
+    /**
+     * 疾病分类字典重新加载后全量重建（新的疾病编码需要重新计算科室权重和医院排名）
+     */
+    @EventListener
+    public void onTaxonomyChange(DiseaseTaxonomyChangeEvent event) {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("疾病推荐索引重建失败，下次查询时重试：{}", e.getMessage());
+            loaded = false;
+        }
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public void rebuild() {
+        synchronized (refreshMutex) {
+            load();
+            replayPending();
+        }
+    }
+
+    /**
+     * 读库并替换索引内容（调用方持有refreshMutex）
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, Integer>> weights = loadDeptWeights();
+        List<Hospital> all = hospitalMapper.selectAll();
+        Map<Long, Set<String>> prefixesById = new HashMap<>();
+        for (HospitalDeptCapability capability : capabilityMapper.selectAll()) {
+            prefixesById.computeIfAbsent(capability.getHospitalId(), k -> new HashSet<>())
+                    .add(capability.getDeptPrefix());
+        }
+
+        Map<Long, HospitalFeature> loadedFeatures = new HashMap<>();
+        for (Hospital hospital : all) {
+            loadedFeatures.put(hospital.getId(), toFeature(hospital,
+                    prefixesById.getOrDefault(hospital.getId(), Collections.emptySet())));
+        }
+
+        Map<String, Ranking> loadedRankings = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> disease : weights.entrySet()) {
+            List<long[]> scored = new ArrayList<>();
+            for (HospitalFeature feature : loadedFeatures.values()) {
+                int relevance = relevance(feature, disease.getValue());
+                if (relevance > 0) {
+                    scored.add(new long[]{feature.id, relevance});
+                }
+            }
+            scored.sort((a, b) -> compare((int) a[1], loadedFeatures.get(a[0]), (int) b[1], loadedFeatures.get(b[0])));
+
+            Ranking ranking = new Ranking(scored.size());
+            for (long[] entry : scored) {
+                ranking.ids[ranking.size] = Math.toIntExact(entry[0]);
+                ranking.scores[ranking.size] = (int) entry[1];
+                ranking.size++;
+            }
+            loadedRankings.put(disease.getKey(), ranking);
+        }
+
+        lock.writeLock().lock();
+        try {
+            deptWeights.clear();
+            deptWeights.putAll(weights);
+            features.clear();
+            features.putAll(loadedFeatures);
+            rankings.clear();
+            rankings.putAll(loadedRankings);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("疾病推荐索引构建完成，疾病数：{}，医院数：{}，耗时：{}ms",
+                loadedRankings.size(), loadedFeatures.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新单个医院在各疾病排名中的位置
+     *
+     * @param hospitalId 医院ID
+     */
+    public void refreshHospital(Long hospitalId) {
+        synchronized (refreshMutex) {
+            if (!loaded) {
+                // 重建完成后重放，重建读库之后才提交的变更不会丢失
+                pendingRefresh.add(hospitalId);
+                return;
+            }
+            applyRefresh(hospitalId);
+        }
+    }
+
+    /**
+     * 重新读取医院并写入索引（调用方持有refreshMutex）
+     */
+    private void applyRefresh(Long hospitalId) {
+        try {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            HospitalFeature feature = null;
+            if (hospital != null) {
+                Set<String> prefixes = new HashSet<>();
+                for (HospitalDeptCapability capability : capabilityMapper.selectByHospitalId(hospitalId)) {
+                    prefixes.add(capability.getDeptPrefix());
+                }
+                feature = toFeature(hospital, prefixes);
+            }
+
+            lock.writeLock().lock();
+            try {
+                int id = Math.toIntExact(hospitalId);
+                for (Ranking ranking : rankings.values()) {
+                    ranking.remove(id);
+                }
+                features.remove(hospitalId);
+                if (feature != null) {
+                    features.put(hospitalId, feature);
+                    for (Map.Entry<String, Ranking> entry : rankings.entrySet()) {
+                        int relevance = relevance(feature, deptWeights.get(entry.getKey()));
+                        if (relevance > 0) {
+                            insert(entry.getValue(), feature, relevance);
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            // 增量刷新失败时标记为未加载，下次查询全量重建
+            log.error("疾病推荐索引刷新失败，医院ID：{}", hospitalId, e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 查询疾病推荐医院的一页
+     *
+     * @param diseaseCode 疾病编码
+     * @param pageNum     页码
+     * @param pageSize    每页大小
+     * @return 当前页医院ID（按推荐顺序），索引不可用时返回null
+     */
+    public RankedPage page(String diseaseCode, int pageNum, int pageSize) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Ranking ranking = rankings.get(diseaseCode);
+            if (ranking == null || ranking.size == 0) {
+                return new RankedPage(0, Collections.emptyList());
+            }
+
+            // 与PageHelper的reasonable=true保持一致：页码超出范围时返回最后一页
+            int pages = (ranking.size + pageSize - 1) / pageSize;
+            int page = Math.max(1, Math.min(pageNum, pages));
+            int from = (page - 1) * pageSize;
+            int to = Math.min(from + pageSize, ranking.size);
+
+            List<Long> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add((long) ranking.ids[i]);
+            }
+            return new RankedPage(ranking.size, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 重放重建期间积压的刷新（调用方持有refreshMutex）
+     */
+    private void replayPending() {
+        if (pendingRefresh.isEmpty()) {
+            return;
+        }
+        List<Long> hospitalIds = new ArrayList<>(pendingRefresh);
+        pendingRefresh.clear();
+        for (Long hospitalId : hospitalIds) {
+            if (loaded) {
+                applyRefresh(hospitalId);
+            } else {
+                pendingRefresh.add(hospitalId);
+            }
+        }
+        log.debug("疾病推荐索引重放积压的刷新，医院数：{}", hospitalIds.size());
+    }
+
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("疾病推荐索引构建失败：{}", e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 加载疾病科室映射，二级疾病未配置时沿用一级分类
+     */
+    private Map<String, Map<String, Integer>> loadDeptWeights() {
+        Map<String, Map<String, Integer>> configured = new HashMap<>();
+        for (DiseaseDepartment mapping : diseaseDepartmentMapper.selectAll()) {
+            String prefix = HospitalFilterIndex.deptPrefix(mapping.getDeptName());
+            int weight = mapping.getWeight() == null ? 1 : mapping.getWeight();
+            configured.computeIfAbsent(mapping.getDiseaseCode(), k -> new HashMap<>())
+                    .merge(prefix, weight, Math::max);
+        }
+
+        Map<String, Map<String, Integer>> weights = new HashMap<>();
+        for (Disease disease : diseaseTaxonomy.getAll()) {
+            Map<String, Integer> own = configured.get(disease.getDiseaseCode());
+            // 未配置时沿用最近一级已配置的上级分类
+            List<Disease> ancestors = diseaseTaxonomy.getAncestors(disease.getDiseaseCode());
+            for (int i = ancestors.size() - 1; own == null && i >= 0; i--) {
+                own = configured.get(ancestors.get(i).getDiseaseCode());
+            }
+            if (own != null) {
+                weights.put(disease.getDiseaseCode(), own);
+            }
+        }
+        return weights;
+    }
+
+    private HospitalFeature toFeature(Hospital hospital, Set<String> capabilityPrefixes) {
+        Set<String> keyPrefixes = new HashSet<>();
+        for (String keyDept : HospitalMatchScorer.keyDepartmentTokens(hospital.getKeyDepartments())) {
+            keyPrefixes.add(HospitalFilterIndex.deptPrefix(keyDept));
+        }
+        return new HospitalFeature(hospital.getId(),
+                HospitalFilterIndex.levelOrdinal(hospital.getHospitalLevel()),
+                HospitalMatchScorer.ratingCenti(hospital.getRating()),
+                hospital.getReviewCount() == null ? 0 : hospital.getReviewCount(),
+                keyPrefixes, capabilityPrefixes);
+    }
+
+    private static int relevance(HospitalFeature feature, Map<String, Integer> weights) {
+        if (weights == null) {
+            return 0;
+        }
+        int relevance = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            if (feature.keyPrefixes.contains(entry.getKey())) {
+                relevance += 2 * entry.getValue();
+            }
+            if (feature.capabilityPrefixes.contains(entry.getKey())) {
+                relevance += entry.getValue();
+            }
+        }
+        return relevance;
+    }
+
+    /**
+     * 排名顺序：相关度降序，等级升序，评分降序，评价数降序，ID升序
+     */
+    private static int compare(int relevanceA, HospitalFeature a, int relevanceB, HospitalFeature b) {
+        if (relevanceA != relevanceB) {
+            return Integer.compare(relevanceB, relevanceA);
+        }
+        if (a.levelOrdinal != b.levelOrdinal) {
+            return Integer.compare(a.levelOrdinal, b.levelOrdinal);
+        }
+        if (a.ratingCenti != b.ratingCenti) {
+            return Integer.compare(b.ratingCenti, a.ratingCenti);
+        }
+        if (a.reviewCount != b.reviewCount) {
+            return Integer.compare(b.reviewCount, a.reviewCount);
+        }
+        return Long.compare(a.id, b.id);
+    }
+
+    /**
+     * 二分查找插入位置后插入（调用方需持有写锁）
+     */
+    private void insert(Ranking ranking, HospitalFeature feature, int relevance) {
+        int low = 0;
+        int high = ranking.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            HospitalFeature other = features.get((long) ranking.ids[mid]);
+            if (compare(ranking.scores[mid], other, relevance, feature) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        ranking.insertAt(low, Math.toIntExact(feature.id), relevance);
+    }
+
+    /**
+     * 医院排序特征
+     */
+    @AllArgsConstructor
+    private static class HospitalFeature {
+        private final long id;
+        private final int levelOrdinal;
+        private final int ratingCenti;
+        private final int reviewCount;
+        private final Set<String> keyPrefixes;
+        private final Set<String> capabilityPrefixes;
+    }
+
+    /**
+     * 单个疾病的医院排名（医院ID、相关度两个平行数组）
+     */
+    private static class Ranking {
+        private int[] ids;
+        private int[] scores;
+        private int size;
+
+        Ranking(int capacity) {
+            ids = new int[Math.max(capacity, 4)];
+            scores = new int[ids.length];
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        void insertAt(int index, int id, int score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(scores, index, scores, index + 1, size - index);
+            ids[index] = id;
+            scores[index] = score;
+            size++;
+        }
+    }
+
+    /**
+     * 排名分页结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RankedPage {
+
+        /**
+         * 推荐医院总数
+         */
+        private final long total;
+
+        /**
+         * 当前页医院ID
+         */
+        private final List<Long> hospitalIds;
+    }
+}
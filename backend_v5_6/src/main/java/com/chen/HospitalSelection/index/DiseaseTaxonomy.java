@@ -0,0 +1,244 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.mapper.DiseaseMapper;
+import com.chen.HospitalSelection.model.Disease;
+import com.chen.HospitalSelection.vo.DiseaseVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 疾病分类字典
+ *
+ * 用一次selectAll读入全部未删除的疾病分类，构建不可变快照：
+ * ID/编码 -> 疾病、父ID -> 子分类（按sort降序、ID升序，与原查询一致）、编码 -> 祖先链，以及预先组装好的分类树。
+ * 社区话题、推荐等需要疾病名称或上级分类的地方直接查字典，不再访问数据库。
+ * 疾病分类更新后调用 {@link #reload()} 整体替换快照。
+ *
+ * 返回的对象和树由所有请求共享，调用方不能修改。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class DiseaseTaxonomy {
+
+    /**
+     * 路径分隔符（与原getDiseasePath一致）
+     */
+    private static final String PATH_SEPARATOR = " > ";
+
+    /**
+     * 祖先链最大深度（防止数据成环）
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final Comparator<Disease> BY_SORT = Comparator
+            .comparing((Disease disease) -> disease.getSort() == null ? 0 : disease.getSort(), Comparator.reverseOrder())
+            .thenComparing(Disease::getId);
+
+    @Autowired
+    private DiseaseMapper diseaseMapper;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 应用启动完成后预加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            ensureLoaded();
+        } catch (Exception e) {
+            log.warn("疾病分类字典加载失败，将在首次访问时重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载疾病分类
+     *
+     * @return 疾病分类数量
+     */
+    public int reload() {
+        long start = System.currentTimeMillis();
+        Snapshot loaded = new Snapshot(diseaseMapper.selectAll());
+        snapshot = loaded;
+        log.info("疾病分类字典加载完成，分类数：{}，耗时：{}ms", loaded.byId.size(), System.currentTimeMillis() - start);
+        return loaded.byId.size();
+    }
+
+    public Disease getById(Long id) {
+        return id == null ? null : ensureLoaded().byId.get(id);
+    }
+
+    public Disease getByCode(String code) {
+        return code == null ? null : ensureLoaded().byCode.get(code);
+    }
+
+    /**
+     * 全部疾病分类（按sort降序、ID升序）
+     */
+    public List<Disease> getAll() {
+        return ensureLoaded().sorted;
+    }
+
+    /**
+     * 疾病名称
+     *
+     * @param code 疾病编码
+     * @return 名称，编码不存在时返回null
+     */
+    public String getName(String code) {
+        Disease disease = getByCode(code);
+        return disease == null ? null : disease.getDiseaseName();
+    }
+
+    /**
+     * 上级分类（从一级分类开始，不含自身）
+     *
+     * @param code 疾病编码
+     * @return 祖先列表，编码不存在或为一级分类时返回空列表
+     */
+    public List<Disease> getAncestors(String code) {
+        Disease disease = getByCode(code);
+        return disease == null ? Collections.emptyList() : ensureLoaded().ancestors.get(disease.getId());
+    }
+
+    /**
+     * 子分类（按sort降序、ID升序）
+     *
+     * @param parentId 父分类ID（0为一级分类）
+     */
+    public List<Disease> getChildren(Long parentId) {
+        return parentId == null ? Collections.emptyList()
+                : ensureLoaded().children.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    /**
+     * 分类树（预先组装，共享只读）
+     */
+    public List<DiseaseVO> getTree() {
+        return ensureLoaded().tree;
+    }
+
+    /**
+     * 疾病完整路径，如"内科疾病 > 高血压"
+     *
+     * @param id 疾病ID
+     * @return 路径，ID不存在时返回null
+     */
+    public String getPath(Long id) {
+        Disease disease = getById(id);
+        if (disease == null) {
+            return null;
+        }
+        StringBuilder path = new StringBuilder();
+        for (Disease ancestor : ensureLoaded().ancestors.get(id)) {
+            path.append(ancestor.getDiseaseName()).append(PATH_SEPARATOR);
+        }
+        return path.append(disease.getDiseaseName()).toString();
+    }
+
+    /**
+     * 按名称模糊搜索（按sort降序）
+     */
+    public List<Disease> searchByName(String keyword) {
+        List<Disease> result = new ArrayList<>();
+        if (keyword == null) {
+            return result;
+        }
+        for (Disease disease : ensureLoaded().sorted) {
+            if (disease.getDiseaseName() != null && disease.getDiseaseName().contains(keyword)) {
+                result.add(disease);
+            }
+        }
+        return result;
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                reload();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static class Snapshot {
+        private final Map<Long, Disease> byId = new HashMap<>();
+        private final Map<String, Disease> byCode = new HashMap<>();
+        private final Map<Long, List<Disease>> children = new HashMap<>();
+        private final Map<Long, List<Disease>> ancestors = new HashMap<>();
+        private final List<Disease> sorted;
+        private final List<DiseaseVO> tree;
+
+        Snapshot(List<Disease> diseases) {
+            List<Disease> all = new ArrayList<>(diseases);
+            all.sort(BY_SORT);
+            sorted = Collections.unmodifiableList(all);
+
+            for (Disease disease : all) {
+                byId.put(disease.getId(), disease);
+                if (disease.getDiseaseCode() != null) {
+                    byCode.put(disease.getDiseaseCode(), disease);
+                }
+                long parentId = disease.getParentId() == null ? 0L : disease.getParentId();
+                children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(disease);
+            }
+            for (Map.Entry<Long, List<Disease>> entry : children.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            for (Disease disease : all) {
+                ancestors.put(disease.getId(), buildAncestors(disease));
+            }
+            tree = Collections.unmodifiableList(buildTree(0L, 0));
+        }
+
+        private List<Disease> buildAncestors(Disease disease) {
+            List<Disease> chain = new ArrayList<>();
+            Disease current = disease;
+            while (chain.size() < MAX_DEPTH && current.getParentId() != null && current.getParentId() != 0) {
+                current = byId.get(current.getParentId());
+                if (current == null) {
+                    break;
+                }
+                chain.add(0, current);
+            }
+            return Collections.unmodifiableList(chain);
+        }
+
+        private List<DiseaseVO> buildTree(Long parentId, int depth) {
+            List<DiseaseVO> nodes = new ArrayList<>();
+            for (Disease disease : children.getOrDefault(parentId, Collections.emptyList())) {
+                DiseaseVO vo = new DiseaseVO();
+                BeanUtils.copyProperties(disease, vo);
+                List<DiseaseVO> subTree = depth + 1 < MAX_DEPTH
+                        ? buildTree(disease.getId(), depth + 1) : Collections.emptyList();
+                // 与原接口一致：一级分类总是带children，更深层级只有存在子分类时才带
+                if (depth == 0 || !subTree.isEmpty()) {
+                    vo.setChildren(Collections.unmodifiableList(subTree));
+                }
+                nodes.add(vo);
+            }
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.mapper.DoctorMapper;
+import com.chen.HospitalSelection.model.Doctor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 医生搜索倒排索引
+ *
+ * 对医生姓名、擅长领域、学术背景按字切出1~3元组建立倒排表，
+ * 同时按医院ID、科室ID、职称各维护一组倒排表，查询时将关键词n元组与筛选条件的倒排表一起求交集，
+ * 再校验任一字段确实包含关键词，结果按评分、评价数排序（与原SQL一致），只返回当前页的医生ID。
+ *
+ * 与原SQL保持一致：关键词中的"医生"、"医师"会被去掉，去掉后为空时不返回结果。
+ * 学术背景只索引前128个字，控制常驻内存。
+ * 索引未就绪或加载失败时 {@link #search} 返回null，调用方应回退到数据库查询。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class DoctorSearchIndex {
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    /**
+     * 最大n元组长度
+     */
+    private static final int MAX_GRAM = 3;
+
+    /**
+     * 学术背景索引长度（按字计）
+     */
+    private static final int MAX_BACKGROUND_LENGTH = 128;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 增量刷新与全量重建互斥：读库和写入索引在同一把锁内完成，后提交的变更一定后写入索引
+     */
+    private final Object refreshMutex = new Object();
+
+    /**
+     * 索引未加载（或刷新失败后待重建）期间到达的医生刷新，全量重建完成后重放（只在refreshMutex内访问）
+     */
+    private final Set<Long> pendingDoctors = new LinkedHashSet<>();
+
+    /**
+     * 同上，按医院的刷新
+     */
+    private final Set<Long> pendingHospitals = new LinkedHashSet<>();
+
+    /**
+     * 医生ID -> 槽位
+     */
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    /**
+     * 槽位 -> 文档（医生已删除时为null）
+     */
+    private final List<Doc> docs = new ArrayList<>();
+
+    /**
+     * 未删除的医生
+     */
+    private final Postings alive = new Postings();
+
+    /**
+     * n元组 -> 倒排表
+     */
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Postings> hospitalPostings = new HashMap<>();
+
+    private final Map<Long, Postings> deptPostings = new HashMap<>();
+
+    private final Map<String, Postings> titlePostings = new HashMap<>();
+
+    /**
+     * 应用启动完成后预热索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 管理端目录变更后（事务提交后）增量刷新
+     * 医生变更刷新单个医生；删除科室、删除或恢复医院会批量删除或恢复医生，只发布科室或医院事件，
+     * 此时按医院重新加载医生，未指定医院时标记索引失效，下次查询时全量重建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        if (event.getTarget() == CatalogChangeEvent.Target.DOCTOR) {
+            if (event.getTargetId() != null) {
+                refreshDoctor(event.getTargetId());
+            }
+        } else if (event.getHospitalId() != null) {
+            refreshHospital(event.getHospitalId());
+        } else {
+            loaded = false;
+        }
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public void rebuild() {
+        synchronized (refreshMutex) {
+            load();
+            replayPending();
+        }
+    }
+
+    /**
+     * 读库并替换索引内容（调用方持有refreshMutex）
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        List<Doctor> all = doctorMapper.selectAll();
+
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            docs.clear();
+            alive.clear();
+            postings.clear();
+            hospitalPostings.clear();
+            deptPostings.clear();
+            titlePostings.clear();
+            for (Doctor doctor : all) {
+                int slot = docs.size();
+                slotById.put(doctor.getId(), slot);
+                docs.add(null);
+                putDoc(slot, toDoc(doctor));
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("医生搜索索引构建完成，医生数：{}，n元组数：{}，耗时：{}ms",
+                all.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新单个医生（医生被删除时从倒排表中移除）
+     *
+     * @param doctorId 医生ID
+     */
+    public void refreshDoctor(Long doctorId) {
+        synchronized (refreshMutex) {
+            if (!loaded) {
+                // 重建完成后重放，重建读库之后才提交的变更不会丢失
+                pendingDoctors.add(doctorId);
+                return;
+            }
+            applyDoctor(doctorId);
+        }
+    }
+
+    /**
+     * 重新读取医生并写入索引（调用方持有refreshMutex）
+     */
+    private void applyDoctor(Long doctorId) {
+        try {
+            Doctor doctor = doctorMapper.selectById(doctorId);
+            Doc doc = doctor == null ? null : toDoc(doctor);
+
+            lock.writeLock().lock();
+            try {
+                Integer slot = slotById.get(doctorId);
+                if (slot != null) {
+                    removeDoc(slot);
+                } else if (doc != null) {
+                    slot = docs.size();
+                    slotById.put(doctorId, slot);
+                    docs.add(null);
+                }
+                if (doc != null) {
+                    putDoc(slot, doc);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("医生搜索索引刷新失败，医生ID：{}", doctorId, e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 按医院重新加载医生：已不在数据库中的医生移除，新出现或恢复的医生加入
+     *
+     * @param hospitalId 医院ID
+     */
+    public void refreshHospital(Long hospitalId) {
+        synchronized (refreshMutex) {
+            if (!loaded) {
+                pendingHospitals.add(hospitalId);
+                return;
+            }
+            applyHospital(hospitalId);
+        }
+    }
+
+    /**
+     * 重新读取医院的医生并写入索引（调用方持有refreshMutex）
+     */
+    private void applyHospital(Long hospitalId) {
+        try {
+            List<Doctor> doctors = doctorMapper.selectByHospitalId(hospitalId);
+            Map<Long, Doc> current = new HashMap<>(doctors.size() * 2);
+            for (Doctor doctor : doctors) {
+                current.put(doctor.getId(), toDoc(doctor));
+            }
+
+            lock.writeLock().lock();
+            try {
+                Postings indexed = hospitalPostings.get(hospitalId);
+                if (indexed != null) {
+                    for (int slot : indexed.toArray()) {
+                        if (!current.containsKey(docs.get(slot).id)) {
+                            removeDoc(slot);
+                        }
+                    }
+                }
+                for (Doc doc : current.values()) {
+                    Integer slot = slotById.get(doc.id);
+                    if (slot != null) {
+                        removeDoc(slot);
+                    } else {
+                        slot = docs.size();
+                        slotById.put(doc.id, slot);
+                        docs.add(null);
+                    }
+                    putDoc(slot, doc);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("医生搜索索引按医院刷新完成，医院ID：{}，医生数：{}", hospitalId, current.size());
+        } catch (Exception e) {
+            log.error("医生搜索索引按医院刷新失败，医院ID：{}", hospitalId, e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 按关键词和筛选条件查询医生
+     *
+     * @param keyword    关键词（姓名、擅长领域、学术背景，为null时只按筛选条件）
+     * @param hospitalId 医院ID（可选）
+     * @param deptId     科室ID（可选）
+     * @param title      职称（可选）
+     * @param pageNum    页码
+     * @param pageSize   每页大小
+     * @return 当前页医生ID，索引不可用时返回null
+     */
+    public SearchPage search(String keyword, Long hospitalId, Long deptId, String title, int pageNum, int pageSize) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        String query = keyword == null ? null : normalizeKeyword(keyword);
+        if (query != null && query.isEmpty()) {
+            return new SearchPage(0, Collections.emptyList());
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            lists.add(alive);
+            if (query != null) {
+                int n = Math.min(MAX_GRAM, query.codePointCount(0, query.length()));
+                for (String gram : HospitalSearchIndex.grams(query, n)) {
+                    lists.add(postings.get(gram));
+                }
+            }
+            if (hospitalId != null) {
+                lists.add(hospitalPostings.get(hospitalId));
+            }
+            if (deptId != null) {
+                lists.add(deptPostings.get(deptId));
+            }
+            if (StringUtils.hasText(title)) {
+                lists.add(titlePostings.get(title.trim()));
+            }
+
+            int[] candidates = Postings.intersect(lists);
+            int total = 0;
+            for (int slot : candidates) {
+                if (query == null || docs.get(slot).matches(query)) {
+                    candidates[total++] = slot;
+                }
+            }
+            if (total == 0) {
+                return new SearchPage(0, Collections.emptyList());
+            }
+
+            // 与PageHelper的reasonable=true保持一致：页码超出范围时返回最后一页
+            int pages = (total + pageSize - 1) / pageSize;
+            int page = Math.max(1, Math.min(pageNum, pages));
+            int offset = (page - 1) * pageSize;
+
+            HospitalMatchScorer.TopK topK = new HospitalMatchScorer.TopK(offset + pageSize);
+            for (int i = 0; i < total; i++) {
+                topK.offer(docs.get(candidates[i]).rankKey(candidates[i]));
+            }
+
+            long[] ranked = topK.toSortedDescending();
+            List<Long> ids = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                ids.add(docs.get(Doc.slotOf(ranked[i])).id);
+            }
+            return new SearchPage(total, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 重放重建期间积压的刷新（调用方持有refreshMutex），先按医院再按医生
+     */
+    private void replayPending() {
+        if (pendingHospitals.isEmpty() && pendingDoctors.isEmpty()) {
+            return;
+        }
+        List<Long> hospitalIds = new ArrayList<>(pendingHospitals);
+        List<Long> doctorIds = new ArrayList<>(pendingDoctors);
+        pendingHospitals.clear();
+        pendingDoctors.clear();
+        for (Long hospitalId : hospitalIds) {
+            if (loaded) {
+                applyHospital(hospitalId);
+            } else {
+                pendingHospitals.add(hospitalId);
+            }
+        }
+        for (Long doctorId : doctorIds) {
+            if (loaded) {
+                applyDoctor(doctorId);
+            } else {
+                pendingDoctors.add(doctorId);
+            }
+        }
+        log.debug("医生搜索索引重放积压的刷新，医院数：{}，医生数：{}", hospitalIds.size(), doctorIds.size());
+    }
+
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("医生搜索索引构建失败，将使用数据库查询：{}", e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 关键词去掉"医生"、"医师"（与DoctorMapper.searchByKeyword一致）
+     */
+    private static String normalizeKeyword(String keyword) {
+        return HospitalSearchIndex.normalize(keyword).replace("医生", "").replace("医师", "");
+    }
+
+    private static Doc toDoc(Doctor doctor) {
+        String background = HospitalSearchIndex.normalize(doctor.getAcademicBackground());
+        if (background.codePointCount(0, background.length()) > MAX_BACKGROUND_LENGTH) {
+            background = background.substring(0, background.offsetByCodePoints(0, MAX_BACKGROUND_LENGTH));
+        }
+        return new Doc(doctor.getId(), doctor.getHospitalId(), doctor.getDeptId(),
+                doctor.getTitle() == null ? null : doctor.getTitle().trim(),
+                normalizeKeyword(doctor.getDoctorName()),
+                HospitalSearchIndex.normalize(doctor.getSpecialty()),
+                background,
+                HospitalMatchScorer.ratingCenti(doctor.getRating()),
+                doctor.getReviewCount() == null ? 0 : doctor.getReviewCount());
+    }
+
+    private void putDoc(int slot, Doc doc) {
+        docs.set(slot, doc);
+        alive.add(slot);
+        for (String gram : doc.grams()) {
+            postings.computeIfAbsent(gram, k -> new Postings()).add(slot);
+        }
+        if (doc.hospitalId != null) {
+            hospitalPostings.computeIfAbsent(doc.hospitalId, k -> new Postings()).add(slot);
+        }
+        if (doc.deptId != null) {
+            deptPostings.computeIfAbsent(doc.deptId, k -> new Postings()).add(slot);
+        }
+        if (doc.title != null) {
+            titlePostings.computeIfAbsent(doc.title, k -> new Postings()).add(slot);
+        }
+    }
+
+    private void removeDoc(int slot) {
+        Doc old = docs.get(slot);
+        if (old == null) {
+            return;
+        }
+        alive.remove(slot);
+        for (String gram : old.grams()) {
+            remove(postings, gram, slot);
+        }
+        remove(hospitalPostings, old.hospitalId, slot);
+        remove(deptPostings, old.deptId, slot);
+        remove(titlePostings, old.title, slot);
+        docs.set(slot, null);
+    }
+
+    private static <K> void remove(Map<K, Postings> map, K key, int slot) {
+        if (key == null) {
+            return;
+        }
+        Postings list = map.get(key);
+        if (list != null) {
+            list.remove(slot);
+            if (list.size() == 0) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 索引文档（单个医生）
+     */
+    @AllArgsConstructor
+    private static class Doc {
+        private static final long SLOT_MASK = (1L << 22) - 1;
+        private static final long REVIEW_MASK = (1L << 30) - 1;
+
+        private final long id;
+        private final Long hospitalId;
+        private final Long deptId;
+        private final String title;
+        private final String name;
+        private final String specialty;
+        private final String background;
+        private final int ratingCenti;
+        private final int reviewCount;
+
+        /**
+         * 全部字段的1~3元组
+         */
+        Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            addGrams(grams, name);
+            addGrams(grams, specialty);
+            addGrams(grams, background);
+            return grams;
+        }
+
+        private static void addGrams(Set<String> grams, String text) {
+            for (int n = 1; n <= MAX_GRAM; n++) {
+                grams.addAll(HospitalSearchIndex.grams(text, n));
+            }
+        }
+
+        /**
+         * 任一字段包含关键词（排除n元组交集的误报）
+         */
+        boolean matches(String query) {
+            return name.contains(query) || specialty.contains(query) || background.contains(query);
+        }
+
+        /**
+         * 排序键（越大越靠前）：评分×100(10位) | 评价数(30位) | 槽位取反(22位)
+         */
+        long rankKey(int slot) {
+            long rating = Math.min(Math.max(ratingCenti, 0), 1023);
+            long reviews = Math.min(Math.max(reviewCount, 0), REVIEW_MASK);
+            return (rating << 52) | (reviews << 22) | (SLOT_MASK - slot);
+        }
+
+        static int slotOf(long rankKey) {
+            return (int) (SLOT_MASK - (rankKey & SLOT_MASK));
+        }
+    }
+
+    /**
+     * 搜索分页结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SearchPage {
+
+        /**
+         * 命中总数
+         */
+        private final long total;
+
+        /**
+         * 当前页医生ID（按排序）
+         */
+        private final List<Long> doctorIds;
+    }
+}
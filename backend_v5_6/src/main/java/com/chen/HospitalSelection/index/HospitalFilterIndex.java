@@ -0,0 +1,1161 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.mapper.DoctorMapper;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
+import com.chen.HospitalSelection.mapper.HospitalMapper;
+import com.chen.HospitalSelection.model.Hospital;
+import com.chen.HospitalSelection.model.HospitalDeptCapability;
+import com.chen.HospitalSelection.util.GeoUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 医院筛选内存位图索引
+ *
+ * 每家医院分配一个固定槽位（slot），按医院等级、省、市、区县、医保定点、
+ * 科室前缀（来自hospital_dept_capability）、是否有在职医生分别维护位图，筛选时对位图做AND运算，
+ * 再按预排序的槽位顺序（评分/评价数、等级优先）取出当前页。
+ * 按匹配度排序（sortBy=match）时，在原始类型特征数组上对候选集批量评分，
+ * 用定长Top-K堆取出当前页，评分规则见 {@link HospitalMatchScorer}。
+ * 有坐标的医院按经纬度落入固定大小的网格，半径筛选只检查覆盖范围内的网格，
+ * 按距离排序（sortBy=distance）时从用户所在网格逐圈向外扩展，取够K个且下一圈不可能更近时停止。
+ *
+ * 索引在应用启动后全量加载一次，之后由管理端变更事件按医院增量刷新。
+ * 索引未就绪或加载失败时 {@link #query} 返回null，调用方应回退到数据库查询。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class HospitalFilterIndex {
+
+    @Autowired
+    private HospitalMapper hospitalMapper;
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    @Autowired
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    /**
+     * 统计维度
+     */
+    public static final String FACET_LEVEL = "hospitalLevel";
+    public static final String FACET_PROVINCE = "provinceCode";
+    public static final String FACET_CITY = "cityCode";
+    public static final String FACET_AREA = "areaCode";
+    public static final String FACET_INSURANCE = "isMedicalInsurance";
+    public static final String FACET_DEPT = "deptPrefix";
+
+    /**
+     * 按距离排序
+     */
+    public static final String SORT_DISTANCE = "distance";
+
+    /**
+     * 空间网格边长（度），约5.5公里
+     */
+    private static final double GRID_DEGREES = 0.05;
+
+    /**
+     * 候选数不超过该值时直接逐个计算距离，不走网格扩展
+     */
+    private static final int BRUTE_FORCE_LIMIT = 4096;
+
+    private static final String[] FACETS = {
+            FACET_LEVEL, FACET_PROVINCE, FACET_CITY, FACET_AREA, FACET_INSURANCE, FACET_DEPT
+    };
+
+    /**
+     * 按评分排序
+     */
+    private static final Comparator<Hospital> RATING_ORDER = Comparator
+            .comparing(Hospital::getRating, Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder())).reversed()
+            .thenComparing(Hospital::getReviewCount, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()).reversed())
+            .thenComparing(Hospital::getId);
+
+    /**
+     * 等级优先，其次按评分排序
+     */
+    private static final Comparator<Hospital> LEVEL_ORDER = Comparator
+            .comparingInt((Hospital h) -> levelOrdinal(h.getHospitalLevel()))
+            .thenComparing(RATING_ORDER);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 增量刷新与全量重建互斥：读库和写入索引在同一把锁内完成，后提交的变更一定后写入索引
+     */
+    private final Object refreshMutex = new Object();
+
+    /**
+     * 索引未加载（或刷新失败后待重建）期间到达的刷新，全量重建完成后重放（只在refreshMutex内访问）
+     */
+    private final Set<Long> pendingRefresh = new LinkedHashSet<>();
+
+    /**
+     * 索引版本号，每次全量构建或增量刷新后递增，供结果缓存判断是否过期
+     */
+    private volatile long version = 0;
+
+    /**
+     * 医院ID -> 槽位
+     */
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    /**
+     * 槽位 -> 医院卡片数据（不含大文本字段）
+     */
+    private final List<Hospital> hospitals = new ArrayList<>();
+
+    /**
+     * 未删除的医院
+     */
+    private final BitSet alive = new BitSet();
+
+    /**
+     * 至少有一名未删除医生的医院
+     */
+    private final BitSet hasDoctors = new BitSet();
+
+    /**
+     * 有经纬度的医院
+     */
+    private final BitSet hasLocation = new BitSet();
+
+    private final Map<String, BitSet> levelBitmaps = new HashMap<>();
+
+    private final Map<String, BitSet> provinceBitmaps = new HashMap<>();
+
+    private final Map<String, BitSet> cityBitmaps = new HashMap<>();
+
+    private final Map<String, BitSet> areaBitmaps = new HashMap<>();
+
+    private final Map<Integer, BitSet> insuranceBitmaps = new HashMap<>();
+
+    private final Map<String, BitSet> deptPrefixBitmaps = new HashMap<>();
+
+    /**
+     * 槽位 -> 该医院拥有医生的科室前缀
+     */
+    private final List<Set<String>> deptPrefixes = new ArrayList<>();
+
+    /**
+     * 重点科室（完整名称、前缀）位图，用于匹配度评分
+     */
+    private final Map<String, BitSet> keyDeptBitmaps = new HashMap<>();
+
+    private final Map<String, BitSet> keyDeptPrefixBitmaps = new HashMap<>();
+
+    /**
+     * 预排序的槽位顺序，变更后置脏，下次查询时重排
+     */
+    private int[] ratingOrder = new int[0];
+
+    private int[] levelOrder = new int[0];
+
+    /**
+     * 匹配度评分特征（按槽位下标，与预排序顺序一同重建）
+     */
+    private int[] levelFeature = new int[0];
+
+    private int[] provinceFeature = new int[0];
+
+    private int[] cityFeature = new int[0];
+
+    private int[] areaFeature = new int[0];
+
+    private boolean[] insuranceFeature = new boolean[0];
+
+    private int[] ratingFeature = new int[0];
+
+    /**
+     * 经纬度（按槽位下标，无坐标时为NaN）
+     */
+    private double[] latFeature = new double[0];
+
+    private double[] lngFeature = new double[0];
+
+    /**
+     * 空间网格：按网格编号升序排列，第i个网格内的槽位为gridSlots中[gridStart[i], gridStart[i+1])区间
+     */
+    private long[] gridKeys = new long[0];
+
+    private int[] gridStart = new int[1];
+
+    private int[] gridSlots = new int[0];
+
+    private int gridMinRow;
+
+    private int gridMaxRow;
+
+    private int gridMinCol;
+
+    private int gridMaxCol;
+
+    /**
+     * 地区编码 -> 整数ID，特征数组中只比较整数
+     */
+    private final Map<String, Integer> codeIds = new HashMap<>();
+
+    /**
+     * 预排序顺序、匹配特征和空间网格需要重建（只在写锁内置为true）
+     */
+    private volatile boolean orderDirty = false;
+
+    private static final int NO_CODE = -2;
+
+    private static final int UNKNOWN_CODE = -3;
+
+    private static final int EMPTY_CODE = -1;
+
+    /**
+     * 医院等级排序序号（与HospitalMapper.selectByCondition中的CASE保持一致）
+     */
+    public static int levelOrdinal(String hospitalLevel) {
+        if (hospitalLevel == null) {
+            return 7;
+        }
+        switch (hospitalLevel) {
+            case "grade3A":
+                return 1;
+            case "grade3B":
+                return 2;
+            case "grade2A":
+                return 3;
+            case "grade2B":
+                return 4;
+            case "grade2C":
+                return 5;
+            case "grade1A":
+                return 6;
+            default:
+                return 7;
+        }
+    }
+
+    /**
+     * 科室名称前缀（前两个字，与hospital_dept_capability.dept_prefix一致）
+     */
+    public static String deptPrefix(String deptName) {
+        if (deptName == null) {
+            return null;
+        }
+        String name = deptName.trim();
+        if (name.codePointCount(0, name.length()) <= 2) {
+            return name;
+        }
+        return name.substring(0, name.offsetByCodePoints(0, 2));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 应用启动完成后预热索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 管理端目录变更后（事务提交后）增量刷新受影响的医院
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        if (event.getHospitalId() != null) {
+            refreshHospital(event.getHospitalId());
+        } else {
+            // 批量变更（如坐标导入），下次查询时全量重建
+            loaded = false;
+        }
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public void rebuild() {
+        synchronized (refreshMutex) {
+            load();
+            replayPending();
+        }
+    }
+
+    /**
+     * 读库并替换索引内容（调用方持有refreshMutex）
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        List<Hospital> all = hospitalMapper.selectAll();
+        Set<Long> withDoctors = new HashSet<>(doctorMapper.selectHospitalIdsWithDoctors());
+        Map<Long, Set<String>> prefixesById = new HashMap<>();
+        for (HospitalDeptCapability capability : capabilityMapper.selectAll()) {
+            prefixesById.computeIfAbsent(capability.getHospitalId(), k -> new HashSet<>())
+                    .add(capability.getDeptPrefix());
+        }
+
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            hospitals.clear();
+            alive.clear();
+            hasDoctors.clear();
+            hasLocation.clear();
+            levelBitmaps.clear();
+            provinceBitmaps.clear();
+            cityBitmaps.clear();
+            areaBitmaps.clear();
+            insuranceBitmaps.clear();
+            deptPrefixBitmaps.clear();
+            deptPrefixes.clear();
+            keyDeptBitmaps.clear();
+            keyDeptPrefixBitmaps.clear();
+
+            for (Hospital hospital : all) {
+                int slot = allocateSlot(hospital.getId());
+                putHospital(slot, hospital, withDoctors.contains(hospital.getId()),
+                        prefixesById.getOrDefault(hospital.getId(), Collections.emptySet()));
+            }
+            orderDirty = true;
+            version++;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("医院筛选索引构建完成，医院数：{}，有医生的医院数：{}，耗时：{}ms",
+                all.size(), withDoctors.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新单个医院（医院被删除时从各位图中移除）
+     *
+     * @param hospitalId 医院ID
+     */
+    public void refreshHospital(Long hospitalId) {
+        synchronized (refreshMutex) {
+            if (!loaded) {
+                // 重建完成后重放，重建读库之后才提交的变更不会丢失
+                pendingRefresh.add(hospitalId);
+                return;
+            }
+            applyRefresh(hospitalId);
+        }
+    }
+
+    /**
+     * 重新读取医院并写入索引（调用方持有refreshMutex）
+     */
+    private void applyRefresh(Long hospitalId) {
+        try {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            boolean doctors = hospital != null && doctorMapper.countByHospitalId(hospitalId) > 0;
+            Set<String> prefixes = new HashSet<>();
+            if (hospital != null) {
+                for (HospitalDeptCapability capability : capabilityMapper.selectByHospitalId(hospitalId)) {
+                    prefixes.add(capability.getDeptPrefix());
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                Integer slot = slotById.get(hospitalId);
+                if (slot != null) {
+                    removeSlot(slot);
+                } else if (hospital != null) {
+                    slot = allocateSlot(hospitalId);
+                }
+                if (hospital != null) {
+                    putHospital(slot, hospital, doctors, prefixes);
+                }
+                orderDirty = true;
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.debug("医院筛选索引已刷新，医院ID：{}，存在：{}，有医生：{}", hospitalId, hospital != null, doctors);
+        } catch (Exception e) {
+            // 增量刷新失败时整体失效，下次查询重新全量构建
+            log.error("医院筛选索引增量刷新失败，医院ID：{}，索引将重新构建", hospitalId, e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 按条件查询医院（位图AND + 预排序分页）
+     *
+     * @param dto 筛选条件（等级、省市区、医保定点、科室名称、排序方式、分页）
+     * @return 查询结果，索引不可用时返回null
+     */
+    public IndexPage query(HospitalFilterDTO dto) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        lockReadPrepared();
+        try {
+            BitSet candidates = baseCandidates();
+            for (BitSet filter : activeFilters(dto).values()) {
+                candidates.and(filter);
+            }
+            boolean byDistance = SORT_DISTANCE.equals(dto.getSortBy());
+            if (byDistance || dto.getRadiusKm() != null) {
+                candidates.and(hasLocation);
+            }
+            if (dto.getRadiusKm() != null) {
+                candidates.and(withinRadius(dto.getLatitude(), dto.getLongitude(), dto.getRadiusKm()));
+            }
+
+            int total = candidates.cardinality();
+            if (total == 0) {
+                return new IndexPage(0, Collections.emptyList(), null);
+            }
+
+            // 与PageHelper的reasonable=true保持一致：页码超出范围时返回最后一页
+            int pageSize = dto.getPageSize();
+            int pages = (total + pageSize - 1) / pageSize;
+            int page = Math.max(1, Math.min(dto.getPage(), pages));
+            int offset = (page - 1) * pageSize;
+
+            if (HospitalMatchScorer.SORT_MATCH.equals(dto.getSortBy())) {
+                return matchPage(candidates, dto, offset, pageSize, total);
+            }
+            if (byDistance) {
+                List<Hospital> rows = nearest(candidates, dto.getLatitude(), dto.getLongitude(), offset + pageSize);
+                return new IndexPage(total, rows.subList(Math.min(offset, rows.size()), rows.size()), null);
+            }
+
+            int[] order = "level".equals(dto.getSortBy()) ? levelOrder : ratingOrder;
+            List<Hospital> rows = new ArrayList<>(Math.min(pageSize, total - offset));
+            int matched = 0;
+            for (int slot : order) {
+                if (!candidates.get(slot)) {
+                    continue;
+                }
+                if (matched++ < offset) {
+                    continue;
+                }
+                rows.add(hospitals.get(slot));
+                if (rows.size() >= pageSize) {
+                    break;
+                }
+            }
+            return new IndexPage(total, rows, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按ID批量取医院卡片数据（保持传入顺序，已删除或不存在的医院跳过）
+     *
+     * @param hospitalIds 医院ID列表
+     * @return 医院卡片列表，索引不可用时返回null
+     */
+    public List<Hospital> getCards(List<Long> hospitalIds) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Hospital> cards = new ArrayList<>(hospitalIds.size());
+            for (Long hospitalId : hospitalIds) {
+                Integer slot = slotById.get(hospitalId);
+                if (slot != null && alive.get(slot)) {
+                    cards.add(hospitals.get(slot));
+                }
+            }
+            return cards;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 单家医院匹配度
+     *
+     * @param hospitalId 医院ID
+     * @param dto        筛选条件
+     * @return 匹配度分数，索引不可用或医院不存在时返回null
+     */
+    public Integer matchScore(Long hospitalId, HospitalFilterDTO dto) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        lockReadPrepared();
+        try {
+            Integer slot = slotById.get(hospitalId);
+            if (slot == null || !alive.get(slot)) {
+                return null;
+            }
+            BitSet only = new BitSet();
+            only.set(slot);
+            IndexPage page = matchPage(only, dto, 0, 1, 1);
+            return page.getScores().isEmpty() ? null : page.getScores().get(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 对候选集批量计算匹配度并取出当前页（调用方需持有读锁）
+     *
+     * 按评分顺序遍历候选槽位，得分与评分顺序位置一起压成long放入Top-K堆：
+     * 高32位为得分，低32位为位置取反，同分时保持评分优先的顺序。
+     */
+    private IndexPage matchPage(BitSet candidates, HospitalFilterDTO dto, int offset, int pageSize, int total) {
+        int queryProvince = queryCodeId(dto.getProvinceCode());
+        int queryCity = queryCodeId(dto.getCityCode());
+        int queryArea = queryCodeId(dto.getAreaCode());
+        boolean locationRequested = queryProvince != NO_CODE || queryCity != NO_CODE || queryArea != NO_CODE;
+
+        // 科室规则与HospitalMatchScorer.deptScore(String, String, Set)一致：
+        // 完全匹配看重点科室，部分匹配看重点科室前缀或科室能力前缀
+        String dept = HospitalMatchScorer.requestedDept(dto);
+        BitSet fullDept = null;
+        BitSet partialDept = null;
+        if (dept != null) {
+            String prefix = deptPrefix(dept);
+            fullDept = orEmpty(keyDeptBitmaps.get(dept));
+            partialDept = (BitSet) orEmpty(keyDeptPrefixBitmaps.get(prefix)).clone();
+            partialDept.or(orEmpty(deptPrefixBitmaps.get(prefix)));
+        }
+
+        HospitalMatchScorer.TopK topK = new HospitalMatchScorer.TopK(offset + pageSize);
+        int[] order = ratingOrder;
+        for (int pos = 0; pos < order.length; pos++) {
+            int slot = order[pos];
+            if (!candidates.get(slot)) {
+                continue;
+            }
+            int score = HospitalMatchScorer.levelScore(levelFeature[slot])
+                    + HospitalMatchScorer.ratingScore(ratingFeature[slot])
+                    + HospitalMatchScorer.insuranceScore(insuranceFeature[slot])
+                    + HospitalMatchScorer.locationScore(locationRequested,
+                            areaFeature[slot] == queryArea,
+                            cityFeature[slot] == queryCity,
+                            provinceFeature[slot] == queryProvince)
+                    + HospitalMatchScorer.deptScore(dept != null,
+                            fullDept != null && fullDept.get(slot),
+                            partialDept != null && partialDept.get(slot));
+            topK.offer(((long) score << 32) | (Integer.MAX_VALUE - pos));
+        }
+
+        long[] ranked = topK.toSortedDescending();
+        List<Hospital> rows = new ArrayList<>(Math.max(0, ranked.length - offset));
+        List<Integer> scores = new ArrayList<>(rows.size());
+        for (int i = offset; i < ranked.length; i++) {
+            int pos = Integer.MAX_VALUE - (int) (ranked[i] & 0xFFFFFFFFL);
+            rows.add(hospitals.get(order[pos]));
+            scores.add((int) (ranked[i] >>> 32));
+        }
+        return new IndexPage(total, rows, scores);
+    }
+
+    /**
+     * 查询条件中的地区编码 -> 整数ID，未指定时为NO_CODE，索引中不存在时为UNKNOWN_CODE
+     */
+    private int queryCodeId(String code) {
+        if (!StringUtils.hasText(code)) {
+            return NO_CODE;
+        }
+        return codeIds.getOrDefault(code.trim(), UNKNOWN_CODE);
+    }
+
+    private int featureCodeId(String code) {
+        if (!StringUtils.hasText(code)) {
+            return EMPTY_CODE;
+        }
+        return codeIds.computeIfAbsent(code, k -> codeIds.size());
+    }
+
+    /**
+     * 各筛选维度的取值计数（单次遍历完成）
+     *
+     * 每个维度的计数只受其他维度的已选条件约束（选中"三甲"后，等级维度仍显示各等级数量），
+     * 遍历候选集时记录每家医院未满足的条件：全部满足则计入所有维度，
+     * 恰好一个维度不满足则只计入该维度，两个及以上不满足则跳过。
+     *
+     * @param dto 当前筛选条件
+     * @return key为"维度:取值"，另含"total"为满足全部条件的医院数；索引不可用时返回null
+     */
+    public Map<String, Long> facetCounts(HospitalFilterDTO dto) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> filters = activeFilters(dto);
+            String[] dims = filters.keySet().toArray(new String[0]);
+            BitSet[] bits = filters.values().toArray(new BitSet[0]);
+
+            Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                counts.put(facet, new HashMap<>());
+            }
+            long total = 0;
+
+            BitSet base = baseCandidates();
+            for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+                String failed = null;
+                int failures = 0;
+                for (int i = 0; i < bits.length && failures < 2; i++) {
+                    if (!bits[i].get(slot)) {
+                        failed = dims[i];
+                        failures++;
+                    }
+                }
+                if (failures >= 2) {
+                    continue;
+                }
+                if (failures == 0) {
+                    total++;
+                }
+
+                Hospital hospital = hospitals.get(slot);
+                for (String facet : FACETS) {
+                    if (failed != null && !failed.equals(facet)) {
+                        continue;
+                    }
+                    Map<String, Long> facetCounts = counts.get(facet);
+                    if (FACET_DEPT.equals(facet)) {
+                        for (String prefix : deptPrefixes.get(slot)) {
+                            facetCounts.merge(prefix, 1L, Long::sum);
+                        }
+                    } else {
+                        String value = facetValue(hospital, facet);
+                        if (value != null && !value.isEmpty()) {
+                            facetCounts.merge(value, 1L, Long::sum);
+                        }
+                    }
+                }
+            }
+
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("total", total);
+            for (Map.Entry<String, Map<String, Long>> facet : counts.entrySet()) {
+                for (Map.Entry<String, Long> entry : facet.getValue().entrySet()) {
+                    result.put(facet.getKey() + ":" + entry.getKey(), entry.getValue());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 未删除且有医生的医院（对应原SQL中与doc_depts的INNER JOIN）
+     */
+    private BitSet baseCandidates() {
+        BitSet candidates = (BitSet) alive.clone();
+        candidates.and(hasDoctors);
+        return candidates;
+    }
+
+    /**
+     * 已选条件对应的位图（维度 -> 位图），取值不存在时为空位图
+     */
+    private Map<String, BitSet> activeFilters(HospitalFilterDTO dto) {
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        addFilter(filters, FACET_LEVEL, levelBitmaps, dto.getHospitalLevel());
+        addFilter(filters, FACET_PROVINCE, provinceBitmaps, dto.getProvinceCode());
+        addFilter(filters, FACET_CITY, cityBitmaps, dto.getCityCode());
+        addFilter(filters, FACET_AREA, areaBitmaps, dto.getAreaCode());
+        if (dto.getIsMedicalInsurance() != null) {
+            filters.put(FACET_INSURANCE, orEmpty(insuranceBitmaps.get(dto.getIsMedicalInsurance())));
+        }
+        if (StringUtils.hasText(dto.getDeptName())) {
+            addFilter(filters, FACET_DEPT, deptPrefixBitmaps, deptPrefix(dto.getDeptName()));
+        }
+        return filters;
+    }
+
+    private static String facetValue(Hospital hospital, String facet) {
+        switch (facet) {
+            case FACET_LEVEL:
+                return hospital.getHospitalLevel();
+            case FACET_PROVINCE:
+                return hospital.getProvinceCode();
+            case FACET_CITY:
+                return hospital.getCityCode();
+            case FACET_AREA:
+                return hospital.getAreaCode();
+            case FACET_INSURANCE:
+                return hospital.getIsMedicalInsurance() == null ? null : String.valueOf(hospital.getIsMedicalInsurance());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 确保索引已加载
+     *
+     * @return 索引是否可用
+     */
+    /**
+     * 重放重建期间积压的刷新（调用方持有refreshMutex）
+     */
+    private void replayPending() {
+        if (pendingRefresh.isEmpty()) {
+            return;
+        }
+        List<Long> hospitalIds = new ArrayList<>(pendingRefresh);
+        pendingRefresh.clear();
+        for (Long hospitalId : hospitalIds) {
+            if (loaded) {
+                applyRefresh(hospitalId);
+            } else {
+                pendingRefresh.add(hospitalId);
+            }
+        }
+        log.debug("医院筛选索引重放积压的刷新，医院数：{}", hospitalIds.size());
+    }
+
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("医院筛选索引构建失败，将使用数据库查询：{}", e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 获取读锁，并保证持有读锁期间预排序顺序是最新的
+     * （prepareOrder与加读锁之间可能有增量刷新再次置脏，持锁后复查，脏则释放重建）
+     */
+    private void lockReadPrepared() {
+        while (true) {
+            prepareOrder();
+            lock.readLock().lock();
+            if (!orderDirty) {
+                return;
+            }
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 变更后重新生成预排序顺序
+     */
+    private void prepareOrder() {
+        if (!orderDirty) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!orderDirty) {
+                return;
+            }
+            List<Hospital> live = new ArrayList<>(alive.cardinality());
+            for (int slot = alive.nextSetBit(0); slot >= 0; slot = alive.nextSetBit(slot + 1)) {
+                live.add(hospitals.get(slot));
+            }
+
+            live.sort(RATING_ORDER);
+            ratingOrder = toSlots(live);
+            live.sort(LEVEL_ORDER);
+            levelOrder = toSlots(live);
+            buildMatchFeatures();
+            buildGeoGrid();
+            orderDirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 将医院卡片展开为按槽位下标的原始类型数组，评分循环中不再访问对象
+     */
+    private void buildMatchFeatures() {
+        int n = hospitals.size();
+        int[] level = new int[n];
+        int[] province = new int[n];
+        int[] city = new int[n];
+        int[] area = new int[n];
+        boolean[] insurance = new boolean[n];
+        int[] rating = new int[n];
+        for (int slot = 0; slot < n; slot++) {
+            Hospital hospital = hospitals.get(slot);
+            if (hospital == null) {
+                continue;
+            }
+            level[slot] = levelOrdinal(hospital.getHospitalLevel());
+            province[slot] = featureCodeId(hospital.getProvinceCode());
+            city[slot] = featureCodeId(hospital.getCityCode());
+            area[slot] = featureCodeId(hospital.getAreaCode());
+            insurance[slot] = Integer.valueOf(1).equals(hospital.getIsMedicalInsurance());
+            rating[slot] = HospitalMatchScorer.ratingCenti(hospital.getRating());
+        }
+        levelFeature = level;
+        provinceFeature = province;
+        cityFeature = city;
+        areaFeature = area;
+        insuranceFeature = insurance;
+        ratingFeature = rating;
+    }
+
+    /**
+     * 按坐标把有位置的医院分入网格，压平为按网格编号排序的数组
+     */
+    private void buildGeoGrid() {
+        int n = hospitals.size();
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        Arrays.fill(lat, Double.NaN);
+        Arrays.fill(lng, Double.NaN);
+
+        TreeMap<Long, List<Integer>> cells = new TreeMap<>();
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int minCol = Integer.MAX_VALUE;
+        int maxCol = Integer.MIN_VALUE;
+        for (int slot = hasLocation.nextSetBit(0); slot >= 0; slot = hasLocation.nextSetBit(slot + 1)) {
+            Hospital hospital = hospitals.get(slot);
+            lat[slot] = hospital.getLatitude().doubleValue();
+            lng[slot] = hospital.getLongitude().doubleValue();
+            int row = gridIndex(lat[slot]);
+            int col = gridIndex(lng[slot]);
+            cells.computeIfAbsent(gridKey(row, col), k -> new ArrayList<>()).add(slot);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+        }
+
+        long[] keys = new long[cells.size()];
+        int[] start = new int[cells.size() + 1];
+        int[] slots = new int[hasLocation.cardinality()];
+        int cell = 0;
+        int next = 0;
+        for (Map.Entry<Long, List<Integer>> entry : cells.entrySet()) {
+            keys[cell] = entry.getKey();
+            start[cell++] = next;
+            for (int slot : entry.getValue()) {
+                slots[next++] = slot;
+            }
+        }
+        start[cell] = next;
+
+        latFeature = lat;
+        lngFeature = lng;
+        gridKeys = keys;
+        gridStart = start;
+        gridSlots = slots;
+        gridMinRow = minRow;
+        gridMaxRow = maxRow;
+        gridMinCol = minCol;
+        gridMaxCol = maxCol;
+    }
+
+    /**
+     * 半径范围内的医院（只检查覆盖范围内的网格，调用方需持有读锁）
+     */
+    private BitSet withinRadius(double lat, double lng, double radiusKm) {
+        BitSet result = new BitSet();
+        if (gridKeys.length == 0) {
+            return result;
+        }
+        double latSpan = radiusKm / GeoUtil.KM_PER_DEGREE;
+        double lngSpan = radiusKm / (GeoUtil.KM_PER_DEGREE
+                * Math.max(Math.cos(Math.toRadians(Math.min(Math.abs(lat) + latSpan, 89.0))), 0.01));
+        int fromRow = Math.max(gridIndex(lat - latSpan), gridMinRow);
+        int toRow = Math.min(gridIndex(lat + latSpan), gridMaxRow);
+        int fromCol = Math.max(gridIndex(lng - lngSpan), gridMinCol);
+        int toCol = Math.min(gridIndex(lng + lngSpan), gridMaxCol);
+        if (fromRow > toRow || fromCol > toCol) {
+            return result;
+        }
+
+        // 覆盖的网格比已有网格还多时，直接遍历已有网格
+        if ((long) (toRow - fromRow + 1) * (toCol - fromCol + 1) > gridKeys.length) {
+            for (int i = 0; i < gridSlots.length; i++) {
+                addIfWithin(result, gridSlots[i], lat, lng, radiusKm);
+            }
+            return result;
+        }
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int col = fromCol; col <= toCol; col++) {
+                int cell = Arrays.binarySearch(gridKeys, gridKey(row, col));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = gridStart[cell]; i < gridStart[cell + 1]; i++) {
+                    addIfWithin(result, gridSlots[i], lat, lng, radiusKm);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addIfWithin(BitSet result, int slot, double lat, double lng, double radiusKm) {
+        if (slot < latFeature.length && !Double.isNaN(latFeature[slot])
+                && GeoUtil.distanceKm(lat, lng, latFeature[slot], lngFeature[slot]) <= radiusKm) {
+            result.set(slot);
+        }
+    }
+
+    /**
+     * 候选集中距离最近的K家医院，按距离升序（调用方需持有读锁）
+     *
+     * 从用户所在网格开始逐圈向外扩展：第r圈之外的网格与用户的距离至少为r个网格边长，
+     * 堆中第K近的距离不超过该下界时即可停止。候选较少或扩展的网格过多时直接逐个计算。
+     */
+    private List<Hospital> nearest(BitSet candidates, double lat, double lng, int k) {
+        HospitalMatchScorer.TopK topK = new HospitalMatchScorer.TopK(k);
+        if (candidates.cardinality() <= BRUTE_FORCE_LIMIT || !ringSearch(candidates, lat, lng, topK)) {
+            topK = new HospitalMatchScorer.TopK(k);
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                offerDistance(topK, slot, lat, lng);
+            }
+        }
+
+        long[] ranked = topK.toSortedDescending();
+        List<Hospital> rows = new ArrayList<>(ranked.length);
+        for (long key : ranked) {
+            rows.add(hospitals.get(Integer.MAX_VALUE - (int) (key & 0xFFFFFFFFL)));
+        }
+        return rows;
+    }
+
+    /**
+     * 逐圈扩展网格查找最近的医院
+     *
+     * @return false-扩展的网格数超过已有网格数（候选分布稀疏），应改为逐个计算
+     */
+    private boolean ringSearch(BitSet candidates, double lat, double lng, HospitalMatchScorer.TopK topK) {
+        int centerRow = gridIndex(lat);
+        int centerCol = gridIndex(lng);
+        int maxRing = Math.max(Math.max(centerRow - gridMinRow, gridMaxRow - centerRow),
+                Math.max(centerCol - gridMinCol, gridMaxCol - centerCol));
+        int visited = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (topK.isFull() && kthDistanceMeters(topK) <= ringLowerBoundKm(ring, lat) * 1000) {
+                break;
+            }
+            int fromRow = Math.max(centerRow - ring, gridMinRow);
+            int toRow = Math.min(centerRow + ring, gridMaxRow);
+            for (int row = fromRow; row <= toRow; row++) {
+                boolean edgeRow = Math.abs(row - centerRow) == ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(step, 1)) {
+                    if (col < gridMinCol || col > gridMaxCol) {
+                        continue;
+                    }
+                    if (++visited > gridKeys.length) {
+                        return false;
+                    }
+                    int cell = Arrays.binarySearch(gridKeys, gridKey(row, col));
+                    if (cell < 0) {
+                        continue;
+                    }
+                    for (int i = gridStart[cell]; i < gridStart[cell + 1]; i++) {
+                        if (candidates.get(gridSlots[i])) {
+                            offerDistance(topK, gridSlots[i], lat, lng);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 进入第ring圈前，尚未扫描的网格与用户距离的下界（公里）
+     */
+    private static double ringLowerBoundKm(int ring, double lat) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLat = Math.min(Math.abs(lat) + ring * GRID_DEGREES, 89.0);
+        double cellKm = GRID_DEGREES * GeoUtil.KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLat));
+        return (ring - 1) * cellKm;
+    }
+
+    /**
+     * 高32位为距离（米）取反，低32位为槽位取反：距离越近、同距离时槽位越小越靠前
+     */
+    private void offerDistance(HospitalMatchScorer.TopK topK, int slot, double lat, double lng) {
+        if (slot >= latFeature.length || Double.isNaN(latFeature[slot])) {
+            return;
+        }
+        long meters = (long) (GeoUtil.distanceKm(lat, lng, latFeature[slot], lngFeature[slot]) * 1000);
+        topK.offer(((Integer.MAX_VALUE - meters) << 32) | (Integer.MAX_VALUE - slot));
+    }
+
+    private static long kthDistanceMeters(HospitalMatchScorer.TopK topK) {
+        return Integer.MAX_VALUE - (topK.min() >> 32);
+    }
+
+    private static int gridIndex(double degrees) {
+        return (int) Math.floor(degrees / GRID_DEGREES);
+    }
+
+    private static long gridKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    private int[] toSlots(List<Hospital> sorted) {
+        int[] slots = new int[sorted.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slotById.get(sorted.get(i).getId());
+        }
+        return slots;
+    }
+
+    private int allocateSlot(Long hospitalId) {
+        int slot = hospitals.size();
+        slotById.put(hospitalId, slot);
+        hospitals.add(null);
+        deptPrefixes.add(Collections.emptySet());
+        return slot;
+    }
+
+    private void putHospital(int slot, Hospital hospital, boolean doctors, Set<String> prefixes) {
+        Hospital card = toCard(hospital);
+        hospitals.set(slot, card);
+        alive.set(slot);
+        hasDoctors.set(slot, doctors);
+        hasLocation.set(slot, GeoUtil.isValid(card.getLatitude(), card.getLongitude()));
+        bitmap(levelBitmaps, card.getHospitalLevel()).set(slot);
+        bitmap(provinceBitmaps, card.getProvinceCode()).set(slot);
+        bitmap(cityBitmaps, card.getCityCode()).set(slot);
+        bitmap(areaBitmaps, card.getAreaCode()).set(slot);
+        if (card.getIsMedicalInsurance() != null) {
+            insuranceBitmaps.computeIfAbsent(card.getIsMedicalInsurance(), k -> new BitSet()).set(slot);
+        }
+        deptPrefixes.set(slot, prefixes);
+        for (String prefix : prefixes) {
+            bitmap(deptPrefixBitmaps, prefix).set(slot);
+        }
+        for (String keyDept : HospitalMatchScorer.keyDepartmentTokens(card.getKeyDepartments())) {
+            bitmap(keyDeptBitmaps, keyDept).set(slot);
+            bitmap(keyDeptPrefixBitmaps, deptPrefix(keyDept)).set(slot);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        Hospital old = hospitals.get(slot);
+        alive.clear(slot);
+        hasDoctors.clear(slot);
+        hasLocation.clear(slot);
+        if (old == null) {
+            return;
+        }
+        clear(levelBitmaps, old.getHospitalLevel(), slot);
+        clear(provinceBitmaps, old.getProvinceCode(), slot);
+        clear(cityBitmaps, old.getCityCode(), slot);
+        clear(areaBitmaps, old.getAreaCode(), slot);
+        if (old.getIsMedicalInsurance() != null) {
+            BitSet bits = insuranceBitmaps.get(old.getIsMedicalInsurance());
+            if (bits != null) {
+                bits.clear(slot);
+            }
+        }
+        for (String prefix : deptPrefixes.get(slot)) {
+            clear(deptPrefixBitmaps, prefix, slot);
+        }
+        deptPrefixes.set(slot, Collections.emptySet());
+        for (String keyDept : HospitalMatchScorer.keyDepartmentTokens(old.getKeyDepartments())) {
+            clear(keyDeptBitmaps, keyDept, slot);
+            clear(keyDeptPrefixBitmaps, deptPrefix(keyDept), slot);
+        }
+    }
+
+    /**
+     * 列表页只需要卡片字段，丢弃简介、专家团队、医疗设备等大文本
+     */
+    private Hospital toCard(Hospital hospital) {
+        Hospital card = new Hospital();
+        BeanUtils.copyProperties(hospital, card, "intro", "expertTeam", "medicalEquipment");
+        return card;
+    }
+
+    private static BitSet bitmap(Map<String, BitSet> bitmaps, String key) {
+        return bitmaps.computeIfAbsent(key == null ? "" : key, k -> new BitSet());
+    }
+
+    private static void clear(Map<String, BitSet> bitmaps, String key, int slot) {
+        BitSet bits = bitmaps.get(key == null ? "" : key);
+        if (bits != null) {
+            bits.clear(slot);
+        }
+    }
+
+    private static void addFilter(Map<String, BitSet> filters, String facet, Map<String, BitSet> bitmaps, String value) {
+        if (StringUtils.hasText(value)) {
+            filters.put(facet, orEmpty(bitmaps.get(value)));
+        }
+    }
+
+    private static BitSet orEmpty(BitSet bits) {
+        return bits == null ? new BitSet() : bits;
+    }
+
+    /**
+     * 索引查询结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class IndexPage {
+
+        /**
+         * 命中总数
+         */
+        private final long total;
+
+        /**
+         * 当前页医院
+         */
+        private final List<Hospital> rows;
+
+        /**
+         * 当前页医院的匹配度分数（仅按匹配度排序时返回，否则为null）
+         */
+        private final List<Integer> scores;
+    }
+}
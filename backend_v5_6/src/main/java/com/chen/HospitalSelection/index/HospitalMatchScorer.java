@@ -0,0 +1,254 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.model.Hospital;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 医院匹配度评分规则（满分100）
+ *
+ * 1. 医院等级（30分）：三甲30，三乙25，二甲20，其他15
+ * 2. 地理位置（20分）：同区县20，同城市15，同省份10，其他5
+ * 3. 重点科室（30分）：与重点科室完全相同30；与重点科室或已开设科室（科室能力投影）前缀相同15；不匹配0
+ * 4. 医保定点（10分）：是10，否0
+ * 5. 用户评价（10分）：评分>=4.5为10，>=4.0为8，>=3.5为5，其他3
+ *
+ * 未指定地区或科室时，对应项不作区分，按满分计。
+ * 批量排序由 {@link HospitalFilterIndex} 在原始类型特征数组上调用这里的规则，
+ * 单家医院评分（索引不可用时）使用 {@link #score(Hospital, HospitalFilterDTO, Set)}，
+ * 科室部分匹配的判断与索引位图一致，见 {@link #deptScore(String, String, Set)}。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+public final class HospitalMatchScorer {
+
+    /**
+     * 按匹配度排序
+     */
+    public static final String SORT_MATCH = "match";
+
+    /**
+     * 等级序号（{@link HospitalFilterIndex#levelOrdinal}）-> 等级得分
+     */
+    private static final int[] LEVEL_SCORES = {15, 30, 25, 20, 15, 15, 15, 15};
+
+    private HospitalMatchScorer() {
+    }
+
+    public static int levelScore(int levelOrdinal) {
+        return levelOrdinal >= 0 && levelOrdinal < LEVEL_SCORES.length ? LEVEL_SCORES[levelOrdinal] : 15;
+    }
+
+    /**
+     * @param ratingCenti 评分×100（4.5分为450）
+     */
+    public static int ratingScore(int ratingCenti) {
+        if (ratingCenti >= 450) {
+            return 10;
+        }
+        if (ratingCenti >= 400) {
+            return 8;
+        }
+        if (ratingCenti >= 350) {
+            return 5;
+        }
+        return 3;
+    }
+
+    public static int insuranceScore(boolean medicalInsurance) {
+        return medicalInsurance ? 10 : 0;
+    }
+
+    public static int locationScore(boolean requested, boolean sameArea, boolean sameCity, boolean sameProvince) {
+        if (!requested || sameArea) {
+            return 20;
+        }
+        if (sameCity) {
+            return 15;
+        }
+        if (sameProvince) {
+            return 10;
+        }
+        return 5;
+    }
+
+    public static int deptScore(boolean requested, boolean fullMatch, boolean partialMatch) {
+        if (!requested || fullMatch) {
+            return 30;
+        }
+        return partialMatch ? 15 : 0;
+    }
+
+    public static int ratingCenti(BigDecimal rating) {
+        return rating == null ? 0 : rating.movePointRight(2).intValue();
+    }
+
+    /**
+     * 用户关注的科室：优先取重点科室，其次取科室名称
+     */
+    public static String requestedDept(HospitalFilterDTO dto) {
+        if (StringUtils.hasText(dto.getKeyDepartments())) {
+            return dto.getKeyDepartments().trim();
+        }
+        if (StringUtils.hasText(dto.getDeptName())) {
+            return dto.getDeptName().trim();
+        }
+        return null;
+    }
+
+    /**
+     * 拆分重点科室字段（逗号、顿号、分号分隔）
+     */
+    public static Set<String> keyDepartmentTokens(String keyDepartments) {
+        if (!StringUtils.hasText(keyDepartments)) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : keyDepartments.split("[,，、;；]")) {
+            if (StringUtils.hasText(token)) {
+                tokens.add(token.trim());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 科室得分（索引不可用时逐家判断）
+     * 索引中完全匹配取重点科室位图，部分匹配取重点科室前缀位图与科室能力前缀位图的并集，规则相同
+     *
+     * @param dept               用户关注的科室，为空时按满分计
+     * @param keyDepartments     医院重点科室字段
+     * @param capabilityPrefixes 医院已开设科室的前缀（hospital_dept_capability.dept_prefix）
+     */
+    public static int deptScore(String dept, String keyDepartments, Set<String> capabilityPrefixes) {
+        if (dept == null) {
+            return deptScore(false, false, false);
+        }
+        String prefix = HospitalFilterIndex.deptPrefix(dept);
+        boolean full = false;
+        boolean partial = capabilityPrefixes != null && capabilityPrefixes.contains(prefix);
+        for (String token : keyDepartmentTokens(keyDepartments)) {
+            full |= token.equals(dept);
+            partial |= prefix.equals(HospitalFilterIndex.deptPrefix(token));
+        }
+        return deptScore(true, full, partial);
+    }
+
+    /**
+     * 单家医院匹配度（不依赖索引）
+     *
+     * @param capabilityPrefixes 医院已开设科室的前缀
+     */
+    public static int score(Hospital hospital, HospitalFilterDTO dto, Set<String> capabilityPrefixes) {
+        int score = levelScore(HospitalFilterIndex.levelOrdinal(hospital.getHospitalLevel()))
+                + ratingScore(ratingCenti(hospital.getRating()))
+                + insuranceScore(Integer.valueOf(1).equals(hospital.getIsMedicalInsurance()));
+
+        boolean locationRequested = StringUtils.hasText(dto.getProvinceCode())
+                || StringUtils.hasText(dto.getCityCode()) || StringUtils.hasText(dto.getAreaCode());
+        score += locationScore(locationRequested,
+                sameCode(dto.getAreaCode(), hospital.getAreaCode()),
+                sameCode(dto.getCityCode(), hospital.getCityCode()),
+                sameCode(dto.getProvinceCode(), hospital.getProvinceCode()));
+
+        return score + deptScore(requestedDept(dto), hospital.getKeyDepartments(), capabilityPrefixes);
+    }
+
+    private static boolean sameCode(String requested, String actual) {
+        return StringUtils.hasText(requested) && requested.trim().equals(actual);
+    }
+
+    /**
+     * 定长Top-K小顶堆（元素为long，越大越靠前）
+     * 只保留当前最大的K个元素，避免对整个候选集排序
+     */
+    public static final class TopK {
+
+        private final long[] heap;
+
+        private int size;
+
+        public TopK(int k) {
+            this.heap = new long[Math.max(k, 0)];
+        }
+
+        public void offer(long value) {
+            if (heap.length == 0) {
+                return;
+            }
+            if (size < heap.length) {
+                heap[size] = value;
+                siftUp(size++);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isFull() {
+            return size == heap.length;
+        }
+
+        /**
+         * 堆中最小的元素（堆满时即第K大），堆为空时返回Long.MIN_VALUE
+         */
+        public long min() {
+            return size == 0 ? Long.MIN_VALUE : heap[0];
+        }
+
+        /**
+         * 按从大到小返回堆中元素
+         */
+        public long[] toSortedDescending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+                long tmp = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = tmp;
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            long value = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        private void siftDown(int i) {
+            long value = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = value;
+        }
+    }
+}
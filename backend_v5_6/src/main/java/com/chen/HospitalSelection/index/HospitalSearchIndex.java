@@ -0,0 +1,483 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.mapper.HospitalAliasMapper;
+import com.chen.HospitalSelection.mapper.HospitalMapper;
+import com.chen.HospitalSelection.model.Hospital;
+import com.chen.HospitalSelection.model.HospitalAlias;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 医院名称搜索N-gram倒排索引
+ *
+ * 对医院名称、别名（hospital_alias）、重点科室按字切出1~3元组（unigram/bigram/trigram），
+ * 每个n元组对应一个按槽位升序的int数组（倒排表）。
+ * 查询时取关键词的n元组（关键词不足3个字时即关键词本身）求倒排表交集，
+ * 再校验字段确实包含关键词，结果按"名称/别名命中优先、评分、评价数"排序。
+ *
+ * 与原SQL保持一致：关键词为"医院"、"医生"时不返回结果。
+ * 索引未就绪或加载失败时 {@link #search} 返回null，调用方应回退到数据库查询。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class HospitalSearchIndex {
+
+    @Autowired
+    private HospitalMapper hospitalMapper;
+
+    @Autowired
+    private HospitalAliasMapper aliasMapper;
+
+    /**
+     * 最大n元组长度
+     */
+    private static final int MAX_GRAM = 3;
+
+    /**
+     * 不参与搜索的关键词（与HospitalMapper.searchByKeyword一致）
+     */
+    private static final Set<String> STOP_KEYWORDS = new HashSet<>(Arrays.asList("医院", "医生"));
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 增量刷新与全量重建互斥：读库和写入索引在同一把锁内完成，后提交的变更一定后写入索引
+     */
+    private final Object refreshMutex = new Object();
+
+    /**
+     * 索引未加载（或刷新失败后待重建）期间到达的刷新，全量重建完成后重放（只在refreshMutex内访问）
+     */
+    private final Set<Long> pendingRefresh = new LinkedHashSet<>();
+
+    /**
+     * 医院ID -> 槽位
+     */
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    /**
+     * 槽位 -> 文档（医院已删除时为null）
+     */
+    private final List<Doc> docs = new ArrayList<>();
+
+    /**
+     * n元组 -> 倒排表
+     */
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * 应用启动完成后预热索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 管理端目录变更后（事务提交后）增量刷新受影响的医院
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        if (event.getTarget() == CatalogChangeEvent.Target.HOSPITAL && event.getHospitalId() != null) {
+            refreshHospital(event.getHospitalId());
+        }
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public void rebuild() {
+        synchronized (refreshMutex) {
+            load();
+            replayPending();
+        }
+    }
+
+    /**
+     * 读库并替换索引内容（调用方持有refreshMutex）
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        List<Hospital> all = hospitalMapper.selectAll();
+        Map<Long, List<String>> aliasesById = loadAliases();
+
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            docs.clear();
+            postings.clear();
+            for (Hospital hospital : all) {
+                int slot = docs.size();
+                slotById.put(hospital.getId(), slot);
+                docs.add(null);
+                putDoc(slot, toDoc(hospital, aliasesById.getOrDefault(hospital.getId(), Collections.emptyList())));
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("医院搜索索引构建完成，医院数：{}，n元组数：{}，耗时：{}ms",
+                all.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新单个医院（医院被删除时从倒排表中移除）
+     *
+     * @param hospitalId 医院ID
+     */
+    public void refreshHospital(Long hospitalId) {
+        synchronized (refreshMutex) {
+            if (!loaded) {
+                // 重建完成后重放，重建读库之后才提交的变更不会丢失
+                pendingRefresh.add(hospitalId);
+                return;
+            }
+            applyRefresh(hospitalId);
+        }
+    }
+
+    /**
+     * 重新读取医院并写入索引（调用方持有refreshMutex）
+     */
+    private void applyRefresh(Long hospitalId) {
+        try {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            Doc doc = null;
+            if (hospital != null) {
+                List<String> aliases = new ArrayList<>();
+                try {
+                    for (HospitalAlias alias : aliasMapper.selectByHospitalId(hospitalId)) {
+                        aliases.add(alias.getAlias());
+                    }
+                } catch (Exception e) {
+                    log.warn("医院别名加载失败，医院ID：{}，{}", hospitalId, e.getMessage());
+                }
+                doc = toDoc(hospital, aliases);
+            }
+
+            lock.writeLock().lock();
+            try {
+                Integer slot = slotById.get(hospitalId);
+                if (slot != null) {
+                    removeDoc(slot);
+                } else if (doc != null) {
+                    slot = docs.size();
+                    slotById.put(hospitalId, slot);
+                    docs.add(null);
+                }
+                if (doc != null) {
+                    putDoc(slot, doc);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("医院搜索索引刷新失败，医院ID：{}", hospitalId, e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 按关键词搜索医院
+     *
+     * @param keyword  关键词
+     * @param pageNum  页码
+     * @param pageSize 每页大小
+     * @return 当前页命中结果，索引不可用时返回null
+     */
+    public SearchPage search(String keyword, int pageNum, int pageSize) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        String query = normalize(keyword);
+        if (query.isEmpty() || STOP_KEYWORDS.contains(query)) {
+            return new SearchPage(0, Collections.emptyList(), Collections.emptyList());
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(query);
+            int[] matched = new int[candidates.length];
+            int total = 0;
+            for (int slot : candidates) {
+                Doc doc = docs.get(slot);
+                if (doc != null && doc.tier(query) >= 0) {
+                    matched[total++] = slot;
+                }
+            }
+            if (total == 0) {
+                return new SearchPage(0, Collections.emptyList(), Collections.emptyList());
+            }
+
+            // 与PageHelper的reasonable=true保持一致：页码超出范围时返回最后一页
+            int pages = (total + pageSize - 1) / pageSize;
+            int page = Math.max(1, Math.min(pageNum, pages));
+            int offset = (page - 1) * pageSize;
+
+            HospitalMatchScorer.TopK topK = new HospitalMatchScorer.TopK(offset + pageSize);
+            for (int i = 0; i < total; i++) {
+                int slot = matched[i];
+                topK.offer(docs.get(slot).rankKey(query, slot));
+            }
+
+            long[] ranked = topK.toSortedDescending();
+            List<Long> ids = new ArrayList<>(Math.max(0, ranked.length - offset));
+            List<String> names = new ArrayList<>(ids.size());
+            for (int i = offset; i < ranked.length; i++) {
+                Doc doc = docs.get(Doc.slotOf(ranked[i]));
+                ids.add(doc.id);
+                names.add(doc.hospitalName);
+            }
+            return new SearchPage(total, ids, names);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 重放重建期间积压的刷新（调用方持有refreshMutex）
+     */
+    private void replayPending() {
+        if (pendingRefresh.isEmpty()) {
+            return;
+        }
+        List<Long> hospitalIds = new ArrayList<>(pendingRefresh);
+        pendingRefresh.clear();
+        for (Long hospitalId : hospitalIds) {
+            if (loaded) {
+                applyRefresh(hospitalId);
+            } else {
+                pendingRefresh.add(hospitalId);
+            }
+        }
+        log.debug("医院搜索索引重放积压的刷新，医院数：{}", hospitalIds.size());
+    }
+
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("医院搜索索引构建失败，将使用数据库查询：{}", e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 别名表不可用时（未执行迁移脚本）只索引名称和重点科室
+     */
+    private Map<Long, List<String>> loadAliases() {
+        Map<Long, List<String>> aliasesById = new HashMap<>();
+        try {
+            for (HospitalAlias alias : aliasMapper.selectAll()) {
+                aliasesById.computeIfAbsent(alias.getHospitalId(), k -> new ArrayList<>()).add(alias.getAlias());
+            }
+        } catch (Exception e) {
+            log.warn("医院别名加载失败，搜索索引将不包含别名：{}", e.getMessage());
+        }
+        return aliasesById;
+    }
+
+    /**
+     * 候选槽位：关键词各n元组倒排表的交集（从最短的表开始）
+     */
+    private int[] candidates(String query) {
+        Set<String> grams = grams(query, Math.min(MAX_GRAM, query.codePointCount(0, query.length())));
+        List<Postings> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            lists.add(postings.get(gram));
+        }
+        return Postings.intersect(lists);
+    }
+
+    private Doc toDoc(Hospital hospital, List<String> aliases) {
+        List<String> normalizedAliases = new ArrayList<>(aliases.size());
+        for (String alias : aliases) {
+            String value = normalize(alias);
+            if (!value.isEmpty()) {
+                normalizedAliases.add(value);
+            }
+        }
+        List<String> departments = new ArrayList<>();
+        for (String dept : HospitalMatchScorer.keyDepartmentTokens(hospital.getKeyDepartments())) {
+            departments.add(normalize(dept));
+        }
+        return new Doc(hospital.getId(), hospital.getHospitalName(), normalize(hospital.getHospitalName()),
+                normalizedAliases, departments,
+                HospitalMatchScorer.ratingCenti(hospital.getRating()),
+                hospital.getReviewCount() == null ? 0 : hospital.getReviewCount());
+    }
+
+    private void putDoc(int slot, Doc doc) {
+        docs.set(slot, doc);
+        for (String gram : doc.grams()) {
+            postings.computeIfAbsent(gram, k -> new Postings()).add(slot);
+        }
+    }
+
+    private void removeDoc(int slot) {
+        Doc old = docs.get(slot);
+        if (old == null) {
+            return;
+        }
+        for (String gram : old.grams()) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                list.remove(slot);
+                if (list.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        docs.set(slot, null);
+    }
+
+    /**
+     * 统一小写并去除空白
+     */
+    static String normalize(String text) {
+        if (!StringUtils.hasText(text)) {
+            return "";
+        }
+        return StringUtils.trimAllWhitespace(text).toLowerCase();
+    }
+
+    /**
+     * 文本中长度为n（按字计）的所有子串
+     */
+    static Set<String> grams(String text, int n) {
+        Set<String> grams = new HashSet<>();
+        int[] codePoints = text.codePoints().toArray();
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            grams.add(new String(codePoints, i, n));
+        }
+        return grams;
+    }
+
+    /**
+     * 索引文档（单家医院）
+     */
+    @AllArgsConstructor
+    private static class Doc {
+        private static final long SLOT_MASK = (1L << 22) - 1;
+        private static final long REVIEW_MASK = (1L << 30) - 1;
+
+        private final long id;
+        private final String hospitalName;
+        private final String name;
+        private final List<String> aliases;
+        private final List<String> departments;
+        private final int ratingCenti;
+        private final int reviewCount;
+
+        /**
+         * 全部字段的1~3元组
+         */
+        Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            addGrams(grams, name);
+            for (String alias : aliases) {
+                addGrams(grams, alias);
+            }
+            for (String dept : departments) {
+                addGrams(grams, dept);
+            }
+            return grams;
+        }
+
+        private static void addGrams(Set<String> grams, String text) {
+            for (int n = 1; n <= MAX_GRAM; n++) {
+                grams.addAll(HospitalSearchIndex.grams(text, n));
+            }
+        }
+
+        /**
+         * 命中层级：0=名称/别名命中，1=仅重点科室命中，-1=未命中（n元组交集的误报）
+         */
+        int tier(String query) {
+            if (name.contains(query)) {
+                return 0;
+            }
+            for (String alias : aliases) {
+                if (alias.contains(query)) {
+                    return 0;
+                }
+            }
+            for (String dept : departments) {
+                if (dept.contains(query)) {
+                    return 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 排序键（越大越靠前）：名称命中(1位) | 评分×100(10位) | 评价数(30位) | 槽位取反(22位)
+         */
+        long rankKey(String query, int slot) {
+            long nameHit = tier(query) == 0 ? 1L : 0L;
+            long rating = Math.min(Math.max(ratingCenti, 0), 1023);
+            long reviews = Math.min(Math.max(reviewCount, 0), REVIEW_MASK);
+            return (nameHit << 62) | (rating << 52) | (reviews << 22) | (SLOT_MASK - slot);
+        }
+
+        static int slotOf(long rankKey) {
+            return (int) (SLOT_MASK - (rankKey & SLOT_MASK));
+        }
+    }
+
+    /**
+     * 搜索分页结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SearchPage {
+
+        /**
+         * 命中总数
+         */
+        private final long total;
+
+        /**
+         * 当前页医院ID（按排序）
+         */
+        private final List<Long> hospitalIds;
+
+        /**
+         * 当前页医院名称（与hospitalIds一一对应）
+         */
+        private final List<String> hospitalNames;
+    }
+}
@@ -0,0 +1,541 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.event.TopicChangeEvent;
+import com.chen.HospitalSelection.mapper.TopicMapper;
+import com.chen.HospitalSelection.model.Topic;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 话题热度内存索引
+ *
+ * 热度 = (点赞×5 + 收藏×4 + 评论×3 + 浏览) 按发布时间指数衰减，每过一个半衰期减半。
+ * 所有话题以相同速率衰减，因此排序只取决于与当前时间无关的排序键：
+ * log2(1 + 互动分) + (发布时间 - 基准时间) / 半衰期，
+ * 互动计数变化时只需重新计算该话题的排序键，不需要定时对全部话题重新打分。
+ *
+ * 全站、每个一级板块、每个二级板块各维护一个按排序键降序的有序集合，
+ * 热门列表直接从集合头部分页读取，不再对community_topic全表计算排序。
+ *
+ * 索引保留全部未删除话题而不是每个板块的Top-K：热门列表支持按关键词筛选并返回准确的命中总数，
+ * 只保留头部时这两者以及较深的翻页都要回到数据库全表排序。每个话题只保存ID、板块、检索文本和四个计数，
+ * 数万个话题约占数MB；全量加载与校正只读取这几列。
+ *
+ * 索引在应用启动后全量加载，之后由话题变更事件（事务提交后）增量更新，并定期全量校正计数漂移。
+ * 重建读库期间（直到替换完成）被增量更新过的话题会被记下，替换后按数据库重新加载，避免被旧快照覆盖。
+ * 浏览数不逐次更新（否则每次浏览都要争用同一把写锁），由TopicViewCounter每轮写入后通过 {@link #applyViews} 批量累加。
+ * 索引未就绪或加载失败时 {@link #page} 返回null，调用方应回退到数据库查询。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class HotTopicIndex {
+
+    private static final int LIKE_WEIGHT = 5;
+    private static final int COLLECT_WEIGHT = 4;
+    private static final int COMMENT_WEIGHT = 3;
+    private static final int VIEW_WEIGHT = 1;
+
+    /**
+     * 衰减基准时间（只影响排序键的数值大小，不影响排序）
+     */
+    private static final long EPOCH_SECONDS = LocalDateTime.of(2025, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    /**
+     * 全量校正间隔（毫秒）
+     */
+    private static final long RESYNC_MILLIS = 600_000L;
+
+    /**
+     * 热度降序；热度相同时按发布时间、ID降序
+     */
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry e) -> e.rank).reversed()
+            .thenComparing(Comparator.comparingLong((Entry e) -> e.createSeconds).reversed())
+            .thenComparing(Comparator.comparingLong((Entry e) -> e.id).reversed());
+
+    @Autowired
+    private TopicMapper topicMapper;
+
+    /**
+     * 半衰期（小时）
+     */
+    @Value("${community.hot.half-life-hours:48}")
+    private double halfLifeHours;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private final NavigableSet<Entry> global = new TreeSet<>(ORDER);
+
+    private final Map<String, NavigableSet<Entry>> byLevel1 = new HashMap<>();
+
+    private final Map<String, NavigableSet<Entry>> byLevel2 = new HashMap<>();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 正在全量重建（只在写锁内访问）
+     */
+    private boolean rebuilding = false;
+
+    /**
+     * 全量重建期间被增量更新过的话题（只在写锁内访问）
+     */
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+
+    /**
+     * 应用启动完成后预热索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 话题变更后（事务提交后）增量更新热度
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTopicChange(TopicChangeEvent event) {
+        if (event.getTopicId() == null || (!loaded && !markTouched(Collections.singleton(event.getTopicId())))) {
+            return;
+        }
+
+        try {
+            switch (event.getType()) {
+                case SAVED:
+                    refreshTopic(event.getTopicId());
+                    break;
+                case DELETED:
+                    removeTopic(event.getTopicId());
+                    break;
+                default:
+                    if (!applyDelta(event.getTopicId(), event.getType())) {
+                        // 索引中没有该话题（如加载后新发布但事件丢失），按数据库补上
+                        refreshTopic(event.getTopicId());
+                    }
+                    break;
+            }
+        } catch (Exception e) {
+            // 增量更新失败时整体失效，下次查询重新全量构建
+            log.error("话题热度索引增量更新失败，话题ID：{}，索引将重新构建", event.getTopicId(), e);
+            loaded = false;
+        }
+    }
+
+    /**
+     * 定期全量校正（计数在数据库中有下限保护、多实例部署等情况下增量更新可能与数据库不一致）
+     */
+    @Scheduled(fixedDelay = RESYNC_MILLIS, initialDelay = RESYNC_MILLIS)
+    public void resync() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("话题热度索引校正失败，继续使用当前索引：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全量重建索引（重建期间被增量更新的话题在替换后按数据库重新加载）
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            touchedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Topic> all;
+        try {
+            all = topicMapper.selectAllForHotIndex();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                touchedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        List<Long> touched;
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            global.clear();
+            byLevel1.clear();
+            byLevel2.clear();
+            for (Topic topic : all) {
+                add(toEntry(topic));
+            }
+            loaded = true;
+        } finally {
+            touched = new ArrayList<>(touchedDuringRebuild);
+            touchedDuringRebuild.clear();
+            rebuilding = false;
+            lock.writeLock().unlock();
+        }
+
+        if (!touched.isEmpty()) {
+            reloadTopics(touched);
+        }
+        log.info("话题热度索引构建完成，话题数：{}，一级板块：{}，二级板块：{}，重建期间变更：{}，耗时：{}ms",
+                all.size(), byLevel1.size(), byLevel2.size(), touched.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按热度分页查询话题ID
+     *
+     * @param boardLevel1 一级板块（为空时不限）
+     * @param boardLevel2 二级板块（为空时不限）
+     * @param keyword     关键词（匹配标题、板块名称、疾病编码，为空时不限）
+     * @param offset      跳过条数
+     * @param limit       返回条数
+     * @return 当前页话题ID及命中总数，索引不可用时返回null
+     */
+    public HotPage page(String boardLevel1, String boardLevel2, String keyword, int offset, int limit) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        String level1 = StringUtils.hasText(boardLevel1) ? boardLevel1 : null;
+        String level2 = StringUtils.hasText(boardLevel2) ? boardLevel2 : null;
+        String word = StringUtils.hasText(keyword) ? keyword.toLowerCase(Locale.ROOT) : null;
+
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> source;
+            if (level2 != null) {
+                source = byLevel2.get(level2);
+            } else if (level1 != null) {
+                source = byLevel1.get(level1);
+            } else {
+                source = global;
+            }
+            List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, 100)));
+            if (source == null) {
+                return new HotPage(0, ids);
+            }
+
+            // 只按单个板块筛选时集合大小即总数，只需遍历到当前页
+            boolean filtered = word != null || (level1 != null && level2 != null);
+            long matched = 0;
+            for (Entry entry : source) {
+                if (filtered && !matches(entry, level1, word)) {
+                    continue;
+                }
+                if (matched >= offset && ids.size() < limit) {
+                    ids.add(entry.id);
+                }
+                matched++;
+                if (!filtered && ids.size() >= limit) {
+                    break;
+                }
+            }
+            return new HotPage(filtered ? matched : source.size(), ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(Entry entry, String level1, String word) {
+        if (level1 != null && !level1.equals(entry.boardLevel1)) {
+            return false;
+        }
+        return word == null || entry.searchText.contains(word);
+    }
+
+    /**
+     * 按数据库重新加载单个话题（不存在或已删除时移除）
+     */
+    private void refreshTopic(Long topicId) {
+        Topic topic = topicMapper.selectById(topicId);
+        lock.writeLock().lock();
+        try {
+            remove(topicId);
+            if (topic != null) {
+                add(toEntry(topic));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引未加载时收到变更：首次构建正在读库时记下，构建完成后按数据库重新加载
+     *
+     * @return true-索引已在此期间加载完成，调用方照常增量更新
+     */
+    private boolean markTouched(Collection<Long> topicIds) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                touchedDuringRebuild.addAll(topicIds);
+                return false;
+            }
+            // 尚未加载也未在构建时，下次查询全量构建即可
+            return loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按数据库重新加载一批话题（不存在或已删除的移除）
+     */
+    private void reloadTopics(List<Long> topicIds) {
+        List<Topic> topics = topicMapper.selectByIds(topicIds);
+        lock.writeLock().lock();
+        try {
+            for (Long topicId : topicIds) {
+                remove(topicId);
+            }
+            for (Topic topic : topics) {
+                add(toEntry(topic));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTopic(Long topicId) {
+        lock.writeLock().lock();
+        try {
+            remove(topicId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按变更类型调整互动计数并重新计算排序键
+     *
+     * @return false-索引中没有该话题
+     */
+    private boolean applyDelta(Long topicId, TopicChangeEvent.Type type) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = remove(topicId);
+            if (entry == null) {
+                return false;
+            }
+            switch (type) {
+                case LIKED:
+                    entry.likeCount++;
+                    break;
+                case UNLIKED:
+                    entry.likeCount = Math.max(0, entry.likeCount - 1);
+                    break;
+                case COLLECTED:
+                    entry.collectCount++;
+                    break;
+                case UNCOLLECTED:
+                    entry.collectCount = Math.max(0, entry.collectCount - 1);
+                    break;
+                case COMMENTED:
+                    entry.commentCount++;
+                    break;
+                case UNCOMMENTED:
+                    entry.commentCount = Math.max(0, entry.commentCount - 1);
+                    break;
+                default:
+                    break;
+            }
+            entry.rank = rank(entry);
+            add(entry);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 批量累加浏览数（TopicViewCounter每轮写入数据库后调用一次，整批只取一次写锁）
+     * 索引中没有的话题忽略，由下次全量校正补上
+     *
+     * @param deltas 话题ID -> 本轮写入的浏览数
+     */
+    public void applyViews(Map<Long, Long> deltas) {
+        if (deltas.isEmpty() || (!loaded && !markTouched(deltas.keySet()))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+                Entry entry = remove(delta.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                entry.viewCount = (int) Math.min(Integer.MAX_VALUE, entry.viewCount + delta.getValue());
+                entry.rank = rank(entry);
+                add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.id, entry);
+        global.add(entry);
+        if (entry.boardLevel1 != null) {
+            byLevel1.computeIfAbsent(entry.boardLevel1, k -> new TreeSet<>(ORDER)).add(entry);
+        }
+        if (entry.boardLevel2 != null) {
+            byLevel2.computeIfAbsent(entry.boardLevel2, k -> new TreeSet<>(ORDER)).add(entry);
+        }
+    }
+
+    /**
+     * 从所有集合中移除（排序键变化前必须先移除）
+     */
+    private Entry remove(Long topicId) {
+        if (rebuilding) {
+            touchedDuringRebuild.add(topicId);
+        }
+        Entry entry = entries.remove(topicId);
+        if (entry == null) {
+            return null;
+        }
+        global.remove(entry);
+        removeFrom(byLevel1, entry.boardLevel1, entry);
+        removeFrom(byLevel2, entry.boardLevel2, entry);
+        return entry;
+    }
+
+    private static void removeFrom(Map<String, NavigableSet<Entry>> boards, String board, Entry entry) {
+        if (board == null) {
+            return;
+        }
+        NavigableSet<Entry> set = boards.get(board);
+        if (set != null) {
+            set.remove(entry);
+            if (set.isEmpty()) {
+                boards.remove(board);
+            }
+        }
+    }
+
+    private Entry toEntry(Topic topic) {
+        Entry entry = new Entry();
+        entry.id = topic.getId();
+        entry.boardLevel1 = StringUtils.hasText(topic.getBoardLevel1()) ? topic.getBoardLevel1() : null;
+        entry.boardLevel2 = StringUtils.hasText(topic.getBoardLevel2()) ? topic.getBoardLevel2() : null;
+        entry.searchText = (nullToEmpty(topic.getTitle()) + "\n" + nullToEmpty(topic.getBoardLevel1()) + "\n"
+                + nullToEmpty(topic.getBoardLevel2()) + "\n" + nullToEmpty(topic.getDiseaseCode()))
+                .toLowerCase(Locale.ROOT);
+        entry.createSeconds = topic.getCreateTime() == null
+                ? EPOCH_SECONDS : topic.getCreateTime().toEpochSecond(ZoneOffset.UTC);
+        entry.likeCount = nonNegative(topic.getLikeCount());
+        entry.collectCount = nonNegative(topic.getCollectCount());
+        entry.commentCount = nonNegative(topic.getCommentCount());
+        entry.viewCount = nonNegative(topic.getViewCount());
+        entry.rank = rank(entry);
+        return entry;
+    }
+
+    /**
+     * 与当前时间无关的排序键：log2(1 + 互动分) + 发布时间距基准的半衰期数
+     */
+    private double rank(Entry entry) {
+        long engagement = (long) entry.likeCount * LIKE_WEIGHT + (long) entry.collectCount * COLLECT_WEIGHT
+                + (long) entry.commentCount * COMMENT_WEIGHT + (long) entry.viewCount * VIEW_WEIGHT;
+        double halfLives = (entry.createSeconds - EPOCH_SECONDS) / (halfLifeHours * 3600d);
+        return Math.log1p(engagement) / Math.log(2) + halfLives;
+    }
+
+    private static int nonNegative(Integer value) {
+        return value == null || value < 0 ? 0 : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 确保索引已加载（未加载时同步构建一次，失败返回false）
+     */
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("话题热度索引构建失败，将使用数据库查询：{}", e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 索引中的话题（只在写锁内修改）
+     */
+    private static final class Entry {
+        private long id;
+        private String boardLevel1;
+        private String boardLevel2;
+        private String searchText;
+        private long createSeconds;
+        private int likeCount;
+        private int collectCount;
+        private int commentCount;
+        private int viewCount;
+        private double rank;
+    }
+
+    /**
+     * 热门话题分页结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class HotPage {
+
+        /**
+         * 命中总数
+         */
+        private final long total;
+
+        /**
+         * 当前页话题ID（按热度降序）
+         */
+        private final List<Long> ids;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chen.HospitalSelection.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 倒排表：按槽位升序的int数组
+ * 供搜索索引按n元组、筛选值维护文档集合，多个倒排表求交集得到候选槽位
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+final class Postings {
+
+    private int[] slots = new int[4];
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        slots[index] = slot;
+        size++;
+    }
+
+    void remove(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean contains(int slot) {
+        return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+    }
+
+    /**
+     * 当前槽位的副本（升序）
+     */
+    int[] toArray() {
+        return Arrays.copyOf(slots, size);
+    }
+
+    /**
+     * 多个倒排表的交集（从最短的表开始逐个过滤）
+     *
+     * @param lists 倒排表，不能为空列表；任一为null时视为空表
+     * @return 升序槽位
+     */
+    static int[] intersect(List<Postings> lists) {
+        for (Postings list : lists) {
+            if (list == null || list.size == 0) {
+                return new int[0];
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).slots, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            Postings other = lists.get(i);
+            int kept = 0;
+            for (int j = 0; j < size; j++) {
+                if (other.contains(result[j])) {
+                    result[kept++] = result[j];
+                }
+            }
+            size = kept;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
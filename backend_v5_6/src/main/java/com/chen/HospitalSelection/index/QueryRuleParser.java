@@ -0,0 +1,364 @@
+package com.chen.HospitalSelection.index;
+
+import com.chen.HospitalSelection.cache.AIQueryCache;
+import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
+import com.chen.HospitalSelection.mapper.DepartmentMapper;
+import com.chen.HospitalSelection.model.Department;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 本地规则查询解析器（AI推荐的快速路径）
+ *
+ * 用一台Aho-Corasick自动机同时匹配医院等级同义词、医保关键词、科室名称（内置常见科室 + hospital_department中的科室名）、
+ * 症状关键词（按与AI提示词相同的规则推断科室）和无意义的填充词，地名由{@link AreaGazetteer}匹配；
+ * 两者的命中合并后取最左最长的不重叠命中，组装出筛选条件。
+ *
+ * 置信度为被识别词覆盖的字符比例：查询中每个字都能解释、且没有互相矛盾的取值时为1；
+ * 有无法识别的内容（如"最近头老是一阵一阵地疼"）时降低；取值冲突、地区名有歧义或含否定词（如"不要三甲"）时为0，
+ * 由调用方交给大模型解析。
+ *
+ * 目录变更后标记为脏，由定时任务在后台重建科室名称；地名词典随地区字典自动更新。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class QueryRuleParser {
+
+    /**
+     * 词条类型
+     */
+    private enum Kind {
+        LEVEL, INSURANCE, DEPARTMENT, SYMPTOM, AREA, FILLER, NEGATION
+    }
+
+    /**
+     * 医院等级同义词 -> 等级编码（"最好的"按AI提示词规则视为三甲）
+     */
+    private static final String[][] LEVEL_WORDS = {
+            {"三甲", "grade3A"}, {"三级甲等", "grade3A"}, {"最好的", "grade3A"}, {"最好", "grade3A"},
+            {"三乙", "grade3B"}, {"三级乙等", "grade3B"},
+            {"二甲", "grade2A"}, {"二级甲等", "grade2A"},
+            {"二乙", "grade2B"}, {"二级乙等", "grade2B"}
+    };
+
+    private static final String[] INSURANCE_WORDS = {"医保定点", "医保", "能报销", "可以报销", "报销"};
+
+    /**
+     * 科室 -> 症状关键词（与ZhipuAIService提示词中的"常见科室推断规则"一致）
+     */
+    private static final Map<String, String[]> SYMPTOM_RULES = new LinkedHashMap<>();
+
+    static {
+        SYMPTOM_RULES.put("神经内科", new String[]{"头痛", "头疼", "头晕", "失眠", "癫痫", "中风", "帕金森"});
+        SYMPTOM_RULES.put("心内科", new String[]{"胸痛", "心慌", "高血压", "心悸", "心脏病"});
+        SYMPTOM_RULES.put("呼吸内科", new String[]{"咳嗽", "哮喘", "肺炎", "呼吸困难", "支气管炎"});
+        SYMPTOM_RULES.put("消化内科", new String[]{"胃痛", "腹泻", "恶心", "呕吐", "肝炎", "胃炎"});
+        SYMPTOM_RULES.put("骨科", new String[]{"骨折", "腰痛", "关节炎", "扭伤", "骨质疏松"});
+        SYMPTOM_RULES.put("皮肤科", new String[]{"皮疹", "过敏", "皮炎", "湿疹", "荨麻疹"});
+        SYMPTOM_RULES.put("妇科", new String[]{"月经", "妇科炎症", "白带异常"});
+        SYMPTOM_RULES.put("产科", new String[]{"怀孕", "产检", "生孩子"});
+        SYMPTOM_RULES.put("儿科", new String[]{"儿童", "小孩", "宝宝"});
+        SYMPTOM_RULES.put("眼科", new String[]{"眼睛", "视力"});
+        SYMPTOM_RULES.put("耳鼻喉科", new String[]{"耳朵", "鼻子", "喉咙"});
+    }
+
+    /**
+     * 否定词：规则解析只能提取正向条件，"不要三甲"、"除了医保"会被解析成相反的含义，出现时一律交给大模型
+     */
+    private static final String[] NEGATION_WORDS = {"不要", "不是", "除了", "不", "非", "别"};
+
+    /**
+     * 填充词（不提供筛选信息，但算作已识别）
+     */
+    private static final String[] FILLER_WORDS = {
+            "医院", "医生", "哪家", "哪个", "哪里", "哪些", "推荐", "附近", "请问", "帮我", "一下", "什么", "怎么样",
+            "比较", "专业", "治疗", "看病", "挂号", "就诊", "定点", "找", "我", "想", "去", "在", "看", "的",
+            "有", "好", "能", "治", "家", "个", "里", "和", "或", "科"
+    };
+
+    @Autowired
+    private AreaGazetteer areaGazetteer;
+
+    @Autowired
+    private DepartmentMapper departmentMapper;
+
+    @Value("${zhipu.rule.min-confidence:0.8}")
+    private double minConfidence;
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean dirty = false;
+
+    /**
+     * 应用启动完成后构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("本地查询解析词典构建失败：{}", e.getMessage());
+            dirty = true;
+        }
+    }
+
+    /**
+     * 目录变更后（事务提交后）标记需要重建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChange(CatalogChangeEvent event) {
+        dirty = true;
+    }
+
+    /**
+     * 定时检查并在后台重建（每10秒）
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void rebuildIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("本地查询解析词典重建失败，稍后重试：{}", e.getMessage());
+            dirty = true;
+        }
+    }
+
+    /**
+     * 全量构建自动机
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Snapshot built = new Snapshot(departmentMapper.selectAll());
+        snapshot = built;
+        log.info("本地查询解析词典构建完成，科室名称：{}，自动机节点：{}，耗时：{}ms",
+                built.departmentCount, built.automaton.nodeCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 解析查询
+     *
+     * @param query 用户的自然语言输入
+     * @return 解析结果（含置信度），词典未构建时返回null
+     */
+    public ParseResult parse(String query) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        String text = AIQueryCache.normalize(query);
+        if (text.isEmpty()) {
+            return new ParseResult(newFilter(), 0.0);
+        }
+
+        List<AhoCorasick.Match<Term>> matches = current.automaton.findAll(text);
+        for (AreaGazetteer.Mention mention : areaGazetteer.findAll(text)) {
+            List<Term> terms = new ArrayList<>(mention.getCodes().size());
+            for (String code : mention.getCodes()) {
+                terms.add(new Term(Kind.AREA, code));
+            }
+            matches.add(new AhoCorasick.Match<>(mention.getStart(), mention.getEnd(), mention.getName(), terms));
+        }
+        return current.parse(text, matches, areaGazetteer);
+    }
+
+    /**
+     * 置信度是否足以跳过大模型
+     */
+    public boolean isConfident(ParseResult result) {
+        return result != null && result.getConfidence() >= minConfidence;
+    }
+
+    private static HospitalFilterDTO newFilter() {
+        HospitalFilterDTO filter = new HospitalFilterDTO();
+        // 与AI解析结果一致的默认分页参数
+        filter.setPage(1);
+        filter.setPageSize(10);
+        return filter;
+    }
+
+    /**
+     * 解析结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ParseResult {
+        /**
+         * 筛选条件
+         */
+        private final HospitalFilterDTO filter;
+
+        /**
+         * 置信度（0~1）
+         */
+        private final double confidence;
+    }
+
+    /**
+     * 词条附带的值
+     */
+    @AllArgsConstructor
+    private static class Term {
+        private final Kind kind;
+        private final String value;
+    }
+
+    /**
+     * 不可变快照：关键词自动机
+     */
+    private static class Snapshot {
+        private final AhoCorasick<Term> automaton = new AhoCorasick<>();
+        private final int departmentCount;
+
+        Snapshot(List<Department> departments) {
+            for (String[] word : LEVEL_WORDS) {
+                automaton.add(word[0], new Term(Kind.LEVEL, word[1]));
+            }
+            for (String word : INSURANCE_WORDS) {
+                automaton.add(word, new Term(Kind.INSURANCE, "1"));
+            }
+            for (String word : FILLER_WORDS) {
+                automaton.add(word, new Term(Kind.FILLER, null));
+            }
+            for (String word : NEGATION_WORDS) {
+                automaton.add(word, new Term(Kind.NEGATION, null));
+            }
+
+            Set<String> deptNames = new LinkedHashSet<>(SYMPTOM_RULES.keySet());
+            for (Map.Entry<String, String[]> rule : SYMPTOM_RULES.entrySet()) {
+                for (String symptom : rule.getValue()) {
+                    automaton.add(symptom, new Term(Kind.SYMPTOM, rule.getKey()));
+                }
+            }
+            for (Department department : departments) {
+                if (StringUtils.hasText(department.getDeptName())) {
+                    deptNames.add(AIQueryCache.normalize(department.getDeptName()));
+                }
+            }
+            for (String name : deptNames) {
+                if (name.length() >= 2) {
+                    automaton.add(name, new Term(Kind.DEPARTMENT, name));
+                }
+            }
+            departmentCount = deptNames.size();
+
+            automaton.build();
+        }
+
+        ParseResult parse(String text, List<AhoCorasick.Match<Term>> matches, AreaGazetteer gazetteer) {
+            List<AhoCorasick.Match<Term>> selected = selectLongest(matches);
+
+            HospitalFilterDTO filter = newFilter();
+            int covered = 0;
+            boolean conflict = false;
+            boolean negated = false;
+            boolean extracted = false;
+            String symptomDept = null;
+            List<AreaGazetteer.Mention> areas = new ArrayList<>();
+
+            for (AhoCorasick.Match<Term> match : selected) {
+                covered += match.length();
+                Term term = match.values.get(0);
+                switch (term.kind) {
+                    case LEVEL:
+                        conflict |= !assign(filter.getHospitalLevel(), term.value);
+                        filter.setHospitalLevel(term.value);
+                        extracted = true;
+                        break;
+                    case INSURANCE:
+                        filter.setIsMedicalInsurance(1);
+                        extracted = true;
+                        break;
+                    case DEPARTMENT:
+                        conflict |= !assign(filter.getDeptName(), term.value);
+                        filter.setDeptName(term.value);
+                        extracted = true;
+                        break;
+                    case SYMPTOM:
+                        conflict |= !assign(symptomDept, term.value);
+                        symptomDept = term.value;
+                        extracted = true;
+                        break;
+                    case AREA:
+                        List<String> codes = new ArrayList<>(match.values.size());
+                        for (Term value : match.values) {
+                            codes.add(value.value);
+                        }
+                        areas.add(new AreaGazetteer.Mention(match.start, match.end, match.keyword, codes));
+                        extracted = true;
+                        break;
+                    case NEGATION:
+                        negated = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            // 明确提到的科室优先于症状推断的科室
+            if (filter.getDeptName() == null && symptomDept != null) {
+                filter.setDeptName(symptomDept);
+            }
+            if (!areas.isEmpty()) {
+                AreaGazetteer.AreaCodes codes = gazetteer.resolve(areas);
+                if (codes == null) {
+                    conflict = true;
+                } else {
+                    codes.applyTo(filter);
+                }
+            }
+
+            double confidence = !extracted || conflict || negated ? 0.0 : (double) covered / text.length();
+            return new ParseResult(filter, confidence);
+        }
+
+        /**
+         * 同一字段出现不同取值视为冲突
+         */
+        private static boolean assign(String current, String value) {
+            return current == null || current.equals(value);
+        }
+
+        /**
+         * 从所有命中中取最左最长的不重叠命中
+         */
+        private static List<AhoCorasick.Match<Term>> selectLongest(List<AhoCorasick.Match<Term>> matches) {
+            matches.sort(Comparator.<AhoCorasick.Match<Term>>comparingInt(match -> match.start)
+                    .thenComparing(Comparator.<AhoCorasick.Match<Term>>comparingInt(AhoCorasick.Match::length)
+                            .reversed()));
+            List<AhoCorasick.Match<Term>> selected = new ArrayList<>();
+            int end = 0;
+            for (AhoCorasick.Match<Term> match : matches) {
+                if (match.start >= end) {
+                    selected.add(match);
+                    end = match.end;
+                }
+            }
+            return selected;
+        }
+    }
+}
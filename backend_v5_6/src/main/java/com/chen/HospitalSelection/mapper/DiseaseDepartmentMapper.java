@@ -0,0 +1,21 @@
+package com.chen.HospitalSelection.mapper;
+
+import com.chen.HospitalSelection.model.DiseaseDepartment;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * 疾病科室映射Mapper接口
+ * 对应表：disease_department
+ */
+@Mapper
+public interface DiseaseDepartmentMapper {
+
+    /**
+     * 查询所有疾病科室映射
+     *
+     * @return 映射列表
+     */
+    List<DiseaseDepartment> selectAll();
+}
@@ -3,6 +3,8 @@ package com.chen.HospitalSelection.mapper;
 import com.chen.HospitalSelection.model.Doctor;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -104,12 +106,42 @@ public interface DoctorMapper {
      * @param hospitalId 医院ID
      * @param deptId 科室ID
      * @param title 职称
+     * @param keyword 关键词（匹配姓名、擅长领域、学术背景，可为null）
      * @return 医生列表
      */
     List<Doctor> selectBySimpleCondition(
             @Param("hospitalId") Long hospitalId,
             @Param("deptId") Long deptId,
-            @Param("title") String title
+            @Param("title") String title,
+            @Param("keyword") String keyword
+    );
+
+    /**
+     * 根据ID列表查询医生（包含医院和科室信息，不保证顺序）
+     * @param ids 医生ID列表
+     * @return 医生列表
+     */
+    List<Doctor> selectWithDetailsByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 根据简单条件游标分页查询医生（按评分、评价数、ID降序，取排序键之后的记录）
+     * @param hospitalId 医院ID
+     * @param deptId 科室ID
+     * @param title 职称
+     * @param rating 上一页最后一条的评分（为null时从第一条开始）
+     * @param reviewCount 上一页最后一条的评价数
+     * @param id 上一页最后一条的ID
+     * @param limit 查询条数
+     * @return 医生列表
+     */
+    List<Doctor> selectBySimpleConditionAfter(
+            @Param("hospitalId") Long hospitalId,
+            @Param("deptId") Long deptId,
+            @Param("title") String title,
+            @Param("rating") BigDecimal rating,
+            @Param("reviewCount") Integer reviewCount,
+            @Param("id") Long id,
+            @Param("limit") int limit
     );
 
     /**
@@ -202,6 +234,12 @@ public interface DoctorMapper {
      */
     int countByDeptId(@Param("deptId") Long deptId);
 
+    /**
+     * 查询至少有一名未删除医生的医院ID
+     * @return 医院ID列表
+     */
+    List<Long> selectHospitalIdsWithDoctors();
+
     /**
      * 根据科室ID删除所有医生
      * @param deptId 科室ID
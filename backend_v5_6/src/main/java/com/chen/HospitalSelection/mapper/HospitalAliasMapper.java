@@ -0,0 +1,28 @@
+package com.chen.HospitalSelection.mapper;
+
+import com.chen.HospitalSelection.model.HospitalAlias;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 医院别名Mapper接口
+ * 对应表：hospital_alias
+ */
+@Mapper
+public interface HospitalAliasMapper {
+
+    /**
+     * 查询所有医院别名
+     * @return 别名列表
+     */
+    List<HospitalAlias> selectAll();
+
+    /**
+     * 查询医院的别名
+     * @param hospitalId 医院ID
+     * @return 别名列表
+     */
+    List<HospitalAlias> selectByHospitalId(@Param("hospitalId") Long hospitalId);
+}
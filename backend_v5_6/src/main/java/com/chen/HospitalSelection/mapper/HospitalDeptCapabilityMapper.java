@@ -0,0 +1,60 @@
+package com.chen.HospitalSelection.mapper;
+
+import com.chen.HospitalSelection.model.HospitalDeptCapability;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+/**
+ * 医院科室能力投影Mapper接口
+ * 对应表：hospital_dept_capability
+ */
+@Mapper
+public interface HospitalDeptCapabilityMapper {
+
+    /**
+     * 查询所有投影记录
+     * @return 投影列表
+     */
+    List<HospitalDeptCapability> selectAll();
+
+    /**
+     * 查询医院的投影记录
+     * @param hospitalId 医院ID
+     * @return 投影列表
+     */
+    List<HospitalDeptCapability> selectByHospitalId(@Param("hospitalId") Long hospitalId);
+
+    /**
+     * 批量查询医院的投影记录
+     * @param hospitalIds 医院ID列表
+     * @return 投影列表
+     */
+    List<HospitalDeptCapability> selectByHospitalIds(@Param("hospitalIds") List<Long> hospitalIds);
+
+    /**
+     * 删除医院的投影记录
+     * @param hospitalId 医院ID
+     * @return 影响行数
+     */
+    int deleteByHospitalId(@Param("hospitalId") Long hospitalId);
+
+    /**
+     * 根据医生和科室数据重新生成医院的投影记录
+     * @param hospitalId 医院ID
+     * @return 影响行数
+     */
+    int insertByHospitalId(@Param("hospitalId") Long hospitalId);
+
+    /**
+     * 根据医生和科室数据生成全部投影记录（回填用）
+     * @return 影响行数
+     */
+    int insertAll();
+
+    /**
+     * 统计投影记录数量
+     * @return 记录数
+     */
+    int count();
+}
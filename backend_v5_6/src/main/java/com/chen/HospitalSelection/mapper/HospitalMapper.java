@@ -3,6 +3,8 @@ package com.chen.HospitalSelection.mapper;
 import com.chen.HospitalSelection.model.Hospital;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -27,11 +29,26 @@ public interface HospitalMapper {
     Hospital selectByName(@Param("hospitalName") String hospitalName);
 
     /**
-     * 查询所有医院
+     * 查询所有医院（只查列表字段，不含简介、专家团队、医疗设备）
      * @return 医院列表
      */
     List<Hospital> selectAll();
 
+    /**
+     * 游标分页查询医院（按评分、评价数、ID降序，取排序键之后的记录，只查列表字段）
+     * @param rating 上一页最后一条的评分（为null时从第一条开始）
+     * @param reviewCount 上一页最后一条的评价数
+     * @param id 上一页最后一条的ID
+     * @param limit 查询条数
+     * @return 医院列表
+     */
+    List<Hospital> selectAllAfter(
+            @Param("rating") BigDecimal rating,
+            @Param("reviewCount") Integer reviewCount,
+            @Param("id") Long id,
+            @Param("limit") int limit
+    );
+
     /**
      * 根据医院等级查询
      * @param hospitalLevel 医院等级
@@ -68,7 +85,7 @@ public interface HospitalMapper {
     List<Hospital> selectByMedicalInsurance(@Param("isMedicalInsurance") Integer isMedicalInsurance);
 
     /**
-     * 模糊搜索医院（按名称、重点科室）
+     * 模糊搜索医院（按名称、重点科室，只查列表字段）
      * @param keyword 关键词
      * @return 医院列表
      */
@@ -93,7 +110,7 @@ public interface HospitalMapper {
     List<Hospital> selectAllIncludingDeleted(@Param("includeDeleted") Boolean includeDeleted);
 
     /**
-     * 根据动态条件查询医院
+     * 根据动态条件查询医院（只查列表字段）
      * @param hospitalLevel 医院等级
      * @param provinceCode 省份编码
      * @param cityCode 城市编码
@@ -137,6 +154,13 @@ public interface HospitalMapper {
      */
     int updateRating(@Param("id") Long id, @Param("rating") java.math.BigDecimal rating);
 
+    /**
+     * 批量更新医院坐标
+     * @param list 医院列表（只使用id、latitude、longitude）
+     * @return 影响行数
+     */
+    int updateLocationBatch(@Param("list") List<Hospital> list);
+
     /**
      * 增加评价数量
      * @param id 医院ID
@@ -3,7 +3,10 @@ package com.chen.HospitalSelection.mapper;
 import com.chen.HospitalSelection.model.Topic;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 话题Mapper接口
@@ -75,6 +78,19 @@ public interface TopicMapper {
      */
     List<Topic> selectHotTopics(@Param("limit") Integer limit);
 
+    /**
+     * 查询热度索引所需字段（ID、板块、疾病编码、标题、互动计数、创建时间，不含正文）
+     * @return 未删除的全部话题
+     */
+    List<Topic> selectAllForHotIndex();
+
+    /**
+     * 根据ID列表查询话题（不保证顺序）
+     * @param ids 话题ID列表
+     * @return 话题列表
+     */
+    List<Topic> selectByIds(@Param("ids") List<Long> ids);
+
     /**
      * 查询最新话题
      * @param limit 限制数量
@@ -100,6 +116,20 @@ public interface TopicMapper {
      */
     List<Topic> selectLatestTopicsByBoard(@Param("boardLevel1") String boardLevel1, @Param("boardLevel2") String boardLevel2, @Param("keyword") String keyword);
 
+    /**
+     * 根据板块游标分页查询最新话题（按创建时间、ID降序，取排序键之后的记录）
+     * @param boardLevel1 一级板块
+     * @param boardLevel2 二级板块
+     * @param keyword 搜索关键词
+     * @param createTime 上一页最后一条的创建时间（为null时从第一条开始）
+     * @param id 上一页最后一条的ID
+     * @param limit 查询条数
+     * @return 话题列表
+     */
+    List<Topic> selectLatestTopicsByBoardAfter(@Param("boardLevel1") String boardLevel1, @Param("boardLevel2") String boardLevel2,
+                                               @Param("keyword") String keyword, @Param("createTime") LocalDateTime createTime,
+                                               @Param("id") Long id, @Param("limit") int limit);
+
     /**
      * 查询所有话题
      * @return 话题列表
@@ -169,6 +199,13 @@ public interface TopicMapper {
      */
     int incrementViewCount(@Param("id") Long id);
 
+    /**
+     * 批量增加浏览数（一条多行UPDATE）
+     * @param deltas 话题ID -> 增量
+     * @return 影响行数
+     */
+    int batchIncrementViewCount(@Param("deltas") Map<Long, Long> deltas);
+
     /**
      * 更新话题状态
      * @param id 话题ID
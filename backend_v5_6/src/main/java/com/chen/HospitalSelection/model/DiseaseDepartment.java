@@ -0,0 +1,30 @@
+package com.chen.HospitalSelection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 疾病科室映射实体类
+ * 对应表：disease_department
+ * 描述疾病分类应就诊的科室及相关程度，用于按疾病推荐医院
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiseaseDepartment {
+    /**
+     * 疾病编码（关联disease_type.disease_code）
+     */
+    private String diseaseCode;
+
+    /**
+     * 科室名称（如：心血管内科）
+     */
+    private String deptName;
+
+    /**
+     * 权重（1-3，值越大越相关）
+     */
+    private Integer weight;
+}
@@ -49,6 +49,16 @@ public class Hospital {
      */
     private String address;
 
+    /**
+     * 纬度（GCJ-02）
+     */
+    private BigDecimal latitude;
+
+    /**
+     * 经度（GCJ-02）
+     */
+    private BigDecimal longitude;
+
     /**
      * 联系电话
      */
@@ -0,0 +1,31 @@
+package com.chen.HospitalSelection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 医院别名实体类
+ * 对应表：hospital_alias
+ * 医院的常用简称、旧称，用于医院搜索
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HospitalAlias {
+    /**
+     * 医院ID（关联hospital_info.id）
+     */
+    private Long hospitalId;
+
+    /**
+     * 别名（如：省医、中山一院）
+     */
+    private String alias;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
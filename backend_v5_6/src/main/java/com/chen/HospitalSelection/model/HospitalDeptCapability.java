@@ -0,0 +1,36 @@
+package com.chen.HospitalSelection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 医院科室能力投影实体类
+ * 对应表：hospital_dept_capability
+ * 按医院 + 科室名称前缀聚合的在职医生数量，用于科室条件筛选
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HospitalDeptCapability {
+    /**
+     * 医院ID（关联hospital_info.id）
+     */
+    private Long hospitalId;
+
+    /**
+     * 科室名称前缀（科室名称前两个字，如：心内、神经）
+     */
+    private String deptPrefix;
+
+    /**
+     * 在职医生数量
+     */
+    private Integer doctorCount;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -118,6 +118,14 @@ public interface AdminHospitalService {
      */
     Long createDoctor(DoctorCreateDTO dto);
 
+    /**
+     * 批量导入医院坐标（CSV：医院ID或医院名称,纬度,经度）
+     *
+     * @param file CSV文件
+     * @return 导入结果统计
+     */
+    Map<String, Object> importHospitalLocations(MultipartFile file);
+
     /**
      * 批量导入医生
      *
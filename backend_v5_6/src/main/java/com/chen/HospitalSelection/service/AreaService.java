@@ -74,4 +74,11 @@ public interface AreaService {
      * @return 地区路径（如：广东省 > 广州市 > 天河区）
      */
     String getAreaPath(String areaCode);
+
+    /**
+     * 重新加载地区字典（地区数据更新后调用）
+     *
+     * @return 地区数量
+     */
+    int reloadAreas();
 }
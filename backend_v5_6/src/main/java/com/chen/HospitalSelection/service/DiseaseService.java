@@ -58,4 +58,11 @@ public interface DiseaseService {
      * @return 疾病路径（如：心血管疾病 > 高血压）
      */
     String getDiseasePath(Long diseaseId);
+
+    /**
+     * 重新加载疾病分类字典（疾病分类更新后调用）
+     *
+     * @return 疾病分类数量
+     */
+    int reloadDiseases();
 }
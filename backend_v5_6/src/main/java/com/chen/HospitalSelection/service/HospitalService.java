@@ -6,10 +6,13 @@ import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.vo.DepartmentVO;
 import com.chen.HospitalSelection.vo.DoctorSimpleVO;
 import com.chen.HospitalSelection.vo.HospitalVO;
+import com.chen.HospitalSelection.vo.HospitalFullVO;
 import com.chen.HospitalSelection.vo.HospitalSimpleVO;
 import com.chen.HospitalSelection.vo.PageResult;
+import com.chen.HospitalSelection.vo.SuggestionVO;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 医院服务接口
@@ -60,6 +63,23 @@ public interface HospitalService {
      */
     List<DoctorSimpleVO> getHospitalDoctors(Long hospitalId);
 
+    /**
+     * 获取医院详情页聚合数据（医院详情、科室列表、按科室分组的医生）
+     *
+     * @param hospitalId 医院ID
+     * @return 聚合数据
+     */
+    HospitalFullVO getHospitalFull(Long hospitalId);
+
+    /**
+     * 附近医院（按距离由近到远，可叠加等级、医保定点、科室等筛选条件）
+     *
+     * @param dto   筛选条件（latitude、longitude必填，radiusKm可选）
+     * @param limit 返回条数（默认10，最多50）
+     * @return 医院列表（含距离）
+     */
+    List<HospitalSimpleVO> getNearbyHospitals(HospitalFilterDTO dto, Integer limit);
+
     /**
      * 搜索医院（关键词搜索）
      *
@@ -77,6 +97,15 @@ public interface HospitalService {
      */
     List<String> getSearchSuggestions(String keyword);
 
+    /**
+     * 搜索自动补全（前缀匹配，支持拼音全拼和首字母）
+     *
+     * @param keyword 输入前缀
+     * @param type    补全类型（hospital/doctor/department/disease，为空时返回各类型混合结果）
+     * @return 补全候选
+     */
+    List<SuggestionVO> getAutocomplete(String keyword, String type);
+
     /**
      * 根据地区获取医院列表
      *
@@ -103,4 +132,32 @@ public interface HospitalService {
      * @return 医院分页列表
      */
     PageResult<HospitalSimpleVO> aiRecommendHospitals(AIQueryRequestDTO request);
+
+    /**
+     * AI智能推荐医院（异步）
+     * 解析和筛选都在专用线程池中执行，调用方（容器线程）不等待大模型返回
+     *
+     * @param request   AI查询请求
+     * @param clientKey 调用方标识（用户ID或IP，用于AI调用限速）
+     * @return 医院分页列表，线程池已满时异常完成（BusinessException）
+     */
+    CompletableFuture<PageResult<HospitalSimpleVO>> aiRecommendHospitalsAsync(AIQueryRequestDTO request,
+                                                                             String clientKey);
+
+    /**
+     * 异步解析用户查询为筛选条件（已设置分页参数）
+     *
+     * @param request   AI查询请求
+     * @param clientKey 调用方标识（用户ID或IP，用于AI调用限速）
+     * @return 筛选条件
+     */
+    CompletableFuture<HospitalFilterDTO> analyzeQueryAsync(AIQueryRequestDTO request, String clientKey);
+
+    /**
+     * 异步按筛选条件查询医院
+     *
+     * @param filter 筛选条件
+     * @return 医院分页列表
+     */
+    CompletableFuture<PageResult<HospitalSimpleVO>> filterHospitalsAsync(HospitalFilterDTO filter);
 }
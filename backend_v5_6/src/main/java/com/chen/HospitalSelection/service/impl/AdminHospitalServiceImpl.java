@@ -6,15 +6,18 @@ import com.chen.HospitalSelection.dto.DoctorCreateDTO;
 import com.chen.HospitalSelection.dto.HospitalCreateDTO;
 import com.chen.HospitalSelection.dto.HospitalUpdateDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
 import com.chen.HospitalSelection.exception.BusinessException;
 import com.chen.HospitalSelection.exception.ParameterException;
 import com.chen.HospitalSelection.mapper.DepartmentMapper;
 import com.chen.HospitalSelection.mapper.DoctorMapper;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
 import com.chen.HospitalSelection.mapper.HospitalMapper;
 import com.chen.HospitalSelection.model.Department;
 import com.chen.HospitalSelection.model.Doctor;
 import com.chen.HospitalSelection.model.Hospital;
 import com.chen.HospitalSelection.service.AdminHospitalService;
+import com.chen.HospitalSelection.util.GeoUtil;
 import com.chen.HospitalSelection.vo.HospitalVO;
 import com.chen.HospitalSelection.vo.PageResult;
 import com.github.pagehelper.PageHelper;
@@ -24,16 +27,25 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 管理员医院管理服务实现类
@@ -45,6 +57,11 @@ import java.util.Map;
 @Service
 public class AdminHospitalServiceImpl implements AdminHospitalService {
 
+    /**
+     * 坐标批量更新每批条数
+     */
+    private static final int LOCATION_BATCH_SIZE = 500;
+
     @Autowired
     private HospitalMapper hospitalMapper;
 
@@ -54,6 +71,12 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
     @Autowired
     private DoctorMapper doctorMapper;
 
+    @Autowired
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public HospitalVO createHospital(HospitalCreateDTO dto) {
@@ -78,6 +101,7 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
 
         // 3. 保存医院
         hospitalMapper.insert(hospital);
+        publishChange(CatalogChangeEvent.Target.HOSPITAL, hospital.getId(), hospital.getId());
 
         log.info("医院添加成功，ID：{}", hospital.getId());
         return convertToVO(hospital);
@@ -107,6 +131,7 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         hospital.setUpdateTime(LocalDateTime.now());
 
         hospitalMapper.updateById(hospital);
+        publishChange(CatalogChangeEvent.Target.HOSPITAL, id, id);
 
         log.info("医院信息更新成功，ID：{}", id);
     }
@@ -140,6 +165,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         hospital.setIsDeleted(1);
         hospital.setUpdateTime(LocalDateTime.now());
         hospitalMapper.updateById(hospital);
+        refreshDeptCapability(id);
+        publishChange(CatalogChangeEvent.Target.HOSPITAL, id, id);
 
         log.info("医院删除成功，ID：{}，已级联删除{}个科室和{}个医生", id, departments.size(), doctorCount);
     }
@@ -168,6 +195,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
 
         // 3. 恢复所有医生
         doctorMapper.restoreByHospitalId(id);
+        refreshDeptCapability(id);
+        publishChange(CatalogChangeEvent.Target.HOSPITAL, id, id);
 
         log.info("医院恢复成功，ID：{}", id);
     }
@@ -194,7 +223,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
     public List<HospitalVO> searchHospitals(String keyword) {
         log.info("管理员搜索医院，关键词：{}", keyword);
 
-        List<Hospital> hospitalList = hospitalMapper.searchByKeyword(keyword);
+        // 管理端返回完整信息，不能使用只含列表字段的searchByKeyword
+        List<Hospital> hospitalList = hospitalMapper.searchByKeywordIncludingDeleted(keyword, false);
         List<HospitalVO> hospitalVOList = new ArrayList<>();
         for (Hospital hospital : hospitalList) {
             hospitalVOList.add(convertToVO(hospital));
@@ -207,12 +237,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
     public List<HospitalVO> searchHospitals(String keyword, Boolean includeDeleted) {
         log.info("管理员搜索医院，关键词：{}，包含已删除：{}", keyword, includeDeleted);
 
-        List<Hospital> hospitalList;
-        if (includeDeleted != null && includeDeleted) {
-            hospitalList = hospitalMapper.searchByKeywordIncludingDeleted(keyword, includeDeleted);
-        } else {
-            hospitalList = hospitalMapper.searchByKeyword(keyword);
-        }
+        List<Hospital> hospitalList = hospitalMapper.searchByKeywordIncludingDeleted(keyword,
+                includeDeleted != null && includeDeleted);
 
         List<HospitalVO> hospitalVOList = new ArrayList<>();
         for (Hospital hospital : hospitalList) {
@@ -248,6 +274,7 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         department.setUpdateTime(LocalDateTime.now());
 
         departmentMapper.insert(department);
+        publishChange(CatalogChangeEvent.Target.DEPARTMENT, dto.getHospitalId(), department.getId());
 
         log.info("科室添加成功，ID：{}", department.getId());
         return department.getId();
@@ -292,6 +319,10 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
             }
         }
 
+        if (successCount > 0) {
+            publishChange(CatalogChangeEvent.Target.DEPARTMENT, hospitalId, null);
+        }
+
         log.info("批量添加科室完成，成功：{}/{}", successCount, deptNames.size());
         return successCount;
     }
@@ -324,6 +355,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         department.setUpdateTime(LocalDateTime.now());
 
         departmentMapper.updateById(department);
+        refreshDeptCapability(department.getHospitalId());
+        publishChange(CatalogChangeEvent.Target.DEPARTMENT, department.getHospitalId(), deptId);
 
         log.info("科室信息更新成功，ID：{}", deptId);
     }
@@ -343,6 +376,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
 
         // 删除科室
         departmentMapper.deleteById(deptId);
+        refreshDeptCapability(department.getHospitalId());
+        publishChange(CatalogChangeEvent.Target.DEPARTMENT, department.getHospitalId(), deptId);
 
         log.info("科室删除成功，ID：{}，已删除{}个医生", deptId, doctorCount);
     }
@@ -382,11 +417,131 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         doctor.setUpdateTime(LocalDateTime.now());
 
         doctorMapper.insert(doctor);
+        refreshDeptCapability(doctor.getHospitalId());
+        publishChange(CatalogChangeEvent.Target.DOCTOR, doctor.getHospitalId(), doctor.getId());
 
         log.info("医生添加成功，ID：{}", doctor.getId());
         return doctor.getId();
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> importHospitalLocations(MultipartFile file) {
+        log.info("管理员批量导入医院坐标，文件名：{}", file.getOriginalFilename());
+
+        if (file.isEmpty()) {
+            throw new ParameterException("导入文件不能为空");
+        }
+
+        // 一次性加载医院ID和名称，避免逐行查询
+        Map<String, Long> idByName = new HashMap<>();
+        Set<Long> hospitalIds = new HashSet<>();
+        for (Hospital hospital : hospitalMapper.selectAll()) {
+            idByName.put(hospital.getHospitalName(), hospital.getId());
+            hospitalIds.add(hospital.getId());
+        }
+
+        int total = 0;
+        int failCount = 0;
+        List<String> errors = new ArrayList<>();
+        Map<Long, Hospital> locations = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] columns = line.split(",", -1);
+                if (lineNo == 1 && columns.length >= 3 && !isNumber(csvValue(columns[1]))) {
+                    // 表头
+                    continue;
+                }
+                total++;
+
+                String error = null;
+                Long hospitalId = null;
+                BigDecimal latitude = null;
+                BigDecimal longitude = null;
+                if (columns.length < 3) {
+                    error = "列数不足";
+                } else {
+                    String key = csvValue(columns[0]);
+                    if (isNumber(key) && key.indexOf('.') < 0) {
+                        hospitalId = hospitalIds.contains(Long.valueOf(key)) ? Long.valueOf(key) : null;
+                    } else {
+                        hospitalId = idByName.get(key);
+                    }
+                    if (hospitalId == null) {
+                        error = "医院不存在：" + key;
+                    } else if (!isNumber(csvValue(columns[1])) || !isNumber(csvValue(columns[2]))) {
+                        error = "经纬度格式错误";
+                    } else {
+                        latitude = new BigDecimal(csvValue(columns[1]));
+                        longitude = new BigDecimal(csvValue(columns[2]));
+                        if (!GeoUtil.isValid(latitude, longitude)) {
+                            error = "经纬度超出范围";
+                        }
+                    }
+                }
+
+                if (error != null) {
+                    failCount++;
+                    if (errors.size() < 100) {
+                        errors.add("第" + lineNo + "行：" + error);
+                    }
+                    continue;
+                }
+                Hospital location = new Hospital();
+                location.setId(hospitalId);
+                location.setLatitude(latitude.setScale(6, RoundingMode.HALF_UP));
+                location.setLongitude(longitude.setScale(6, RoundingMode.HALF_UP));
+                // 同一医院出现多次时以最后一行为准
+                locations.remove(hospitalId);
+                locations.put(hospitalId, location);
+            }
+        } catch (IOException e) {
+            log.error("读取医院坐标文件失败", e);
+            throw new BusinessException("读取导入文件失败");
+        }
+
+        List<Hospital> batch = new ArrayList<>(locations.values());
+        for (int from = 0; from < batch.size(); from += LOCATION_BATCH_SIZE) {
+            hospitalMapper.updateLocationBatch(batch.subList(from, Math.min(from + LOCATION_BATCH_SIZE, batch.size())));
+        }
+        if (!batch.isEmpty()) {
+            // 批量变更不逐家发布，由索引整体重建
+            publishChange(CatalogChangeEvent.Target.HOSPITAL, null, null);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", total);
+        result.put("successCount", total - failCount);
+        result.put("failCount", failCount);
+        result.put("errors", errors);
+
+        log.info("批量导入医院坐标完成，总数：{}，成功：{}，失败：{}，更新医院数：{}",
+                total, total - failCount, failCount, batch.size());
+        return result;
+    }
+
+    private static String csvValue(String column) {
+        String value = column.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+
+    private static boolean isNumber(String value) {
+        return value.matches("-?\\d+(\\.\\d+)?");
+    }
+
     @Override
     public Map<String, Object> importDoctors(MultipartFile file) {
         log.info("管理员批量导入医生，文件名：{}", file.getOriginalFilename());
@@ -424,6 +579,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         }
 
         doctorMapper.deleteById(doctorId);
+        refreshDeptCapability(doctor.getHospitalId());
+        publishChange(CatalogChangeEvent.Target.DOCTOR, doctor.getHospitalId(), doctorId);
 
         log.info("医生删除成功，ID：{}", doctorId);
     }
@@ -456,7 +613,8 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
             throw new BusinessException("科室不属于该医院");
         }
 
-        // 5. 更新医生信息
+        // 5. 更新医生信息（记录原医院，医生调动时两家医院都需要刷新）
+        Long oldHospitalId = doctor.getHospitalId();
         doctor.setDoctorName(dto.getDoctorName());
         doctor.setHospitalId(dto.getHospitalId());
         doctor.setDeptId(dto.getDeptId());
@@ -474,10 +632,34 @@ public class AdminHospitalServiceImpl implements AdminHospitalService {
         doctor.setUpdateTime(LocalDateTime.now());
 
         doctorMapper.updateById(doctor);
+        refreshDeptCapability(dto.getHospitalId());
+        publishChange(CatalogChangeEvent.Target.DOCTOR, dto.getHospitalId(), doctorId);
+        if (oldHospitalId != null && !oldHospitalId.equals(dto.getHospitalId())) {
+            refreshDeptCapability(oldHospitalId);
+            publishChange(CatalogChangeEvent.Target.DOCTOR, oldHospitalId, doctorId);
+        }
 
         log.info("医生信息更新成功，ID：{}", doctorId);
     }
 
+    /**
+     * 重新生成医院的科室能力投影（与科室、医生变更处于同一事务）
+     */
+    private void refreshDeptCapability(Long hospitalId) {
+        if (hospitalId == null) {
+            return;
+        }
+        capabilityMapper.deleteByHospitalId(hospitalId);
+        capabilityMapper.insertByHospitalId(hospitalId);
+    }
+
+    /**
+     * 发布目录变更事件（监听方在事务提交后处理）
+     */
+    private void publishChange(CatalogChangeEvent.Target target, Long hospitalId, Long targetId) {
+        eventPublisher.publishEvent(new CatalogChangeEvent(this, target, hospitalId, targetId));
+    }
+
     /**
      * 调用BeanUtils.getNullPropertyNames获取null属性名
      */
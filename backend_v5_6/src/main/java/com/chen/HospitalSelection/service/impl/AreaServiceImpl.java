@@ -1,16 +1,16 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.event.CatalogChangeEvent;
 import com.chen.HospitalSelection.exception.BusinessException;
-import com.chen.HospitalSelection.mapper.AreaMapper;
+import com.chen.HospitalSelection.index.AreaDictionary;
 import com.chen.HospitalSelection.model.Area;
 import com.chen.HospitalSelection.service.AreaService;
 import com.chen.HospitalSelection.vo.AreaVO;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,50 +25,24 @@ import java.util.stream.Collectors;
 public class AreaServiceImpl implements AreaService {
 
     @Autowired
-    private AreaMapper areaMapper;
+    private AreaDictionary areaDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<AreaVO> getAreaTree() {
         log.info("获取省市区树");
 
-        // 查询所有省份
-        List<Area> provinceList = areaMapper.selectProvinces();
-
-        // 构建树形结构
-        List<AreaVO> tree = new ArrayList<>();
-        for (Area province : provinceList) {
-            AreaVO provinceVO = convertToVO(province);
-
-            // 查询该省份下的所有城市
-            List<Area> cityList = areaMapper.selectCitiesByProvince(province.getCode());
-            List<AreaVO> cityVOList = new ArrayList<>();
-
-            for (Area city : cityList) {
-                AreaVO cityVO = convertToVO(city);
-
-                // 查询该城市下的所有区县
-                List<Area> areaList = areaMapper.selectAreasByCity(city.getCode());
-                List<AreaVO> areaVOList = areaList.stream()
-                        .map(this::convertToVO)
-                        .collect(Collectors.toList());
-                cityVO.setChildren(areaVOList);
-                cityVOList.add(cityVO);
-            }
-
-            provinceVO.setChildren(cityVOList);
-            tree.add(provinceVO);
-        }
-
-        return tree;
+        // 树在字典加载时已组装好，直接返回
+        return areaDictionary.getTree();
     }
 
     @Override
     public List<AreaVO> getProvinces() {
         log.info("获取所有省份");
 
-        List<Area> provinceList = areaMapper.selectProvinces();
-
-        return provinceList.stream()
+        return areaDictionary.getProvinces().stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -77,9 +51,7 @@ public class AreaServiceImpl implements AreaService {
     public List<AreaVO> getCitiesByProvince(String provinceCode) {
         log.info("获取城市列表，省份编码：{}", provinceCode);
 
-        List<Area> cityList = areaMapper.selectCitiesByProvince(provinceCode);
-
-        return cityList.stream()
+        return areaDictionary.getChildren(provinceCode, 2).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -88,9 +60,7 @@ public class AreaServiceImpl implements AreaService {
     public List<AreaVO> getAreasByCity(String cityCode) {
         log.info("获取区县列表，城市编码：{}", cityCode);
 
-        List<Area> areaList = areaMapper.selectAreasByCity(cityCode);
-
-        return areaList.stream()
+        return areaDictionary.getChildren(cityCode, 3).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -99,7 +69,7 @@ public class AreaServiceImpl implements AreaService {
     public AreaVO getAreaByCode(String code) {
         log.info("根据编码查询地区，编码：{}", code);
 
-        Area area = areaMapper.selectByCode(code);
+        Area area = areaDictionary.getByCode(code);
         if (area == null) {
             throw new BusinessException("地区不存在");
         }
@@ -111,7 +81,7 @@ public class AreaServiceImpl implements AreaService {
     public AreaVO getAreaById(Long areaId) {
         log.info("根据ID查询地区，ID：{}", areaId);
 
-        Area area = areaMapper.selectById(areaId);
+        Area area = areaDictionary.getById(areaId);
         if (area == null) {
             throw new BusinessException("地区不存在");
         }
@@ -123,9 +93,7 @@ public class AreaServiceImpl implements AreaService {
     public List<AreaVO> searchAreasByName(String name) {
         log.info("搜索地区，地区名称：{}", name);
 
-        List<Area> areaList = areaMapper.searchByName(name);
-
-        return areaList.stream()
+        return areaDictionary.searchByName(name).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -134,33 +102,20 @@ public class AreaServiceImpl implements AreaService {
     public String getAreaPath(String areaCode) {
         log.info("获取地区路径，区县编码：{}", areaCode);
 
-        Area area = areaMapper.selectByCode(areaCode);
-        if (area == null) {
+        String path = areaDictionary.getPath(areaCode);
+        if (path == null) {
             throw new BusinessException("地区不存在");
         }
+        return path;
+    }
 
-        StringBuilder path = new StringBuilder(area.getName());
-
-        // 如果是区县级（level=3），需要查询市和省
-        if (area.getLevel() == 3) {
-            Area city = areaMapper.selectByCode(area.getParentCode());
-            if (city != null) {
-                path.insert(0, city.getName() + " > ");
-
-                Area province = areaMapper.selectByCode(city.getParentCode());
-                if (province != null) {
-                    path.insert(0, province.getName() + " > ");
-                }
-            }
-        } else if (area.getLevel() == 2) {
-            // 如果是市级（level=2），需要查询省
-            Area province = areaMapper.selectByCode(area.getParentCode());
-            if (province != null) {
-                path.insert(0, province.getName() + " > ");
-            }
-        }
-
-        return path.toString();
+    @Override
+    public int reloadAreas() {
+        log.info("重新加载地区字典");
+        int count = areaDictionary.reload();
+        // 医院详情中带有省市区名称，按批量变更处理（清空读缓存、更新版本戳）
+        eventPublisher.publishEvent(new CatalogChangeEvent(this, CatalogChangeEvent.Target.HOSPITAL, null, null));
+        return count;
     }
 
     /**
@@ -2,6 +2,7 @@ package com.chen.HospitalSelection.service.impl;
 
 import com.chen.HospitalSelection.dto.CollectionDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
+import com.chen.HospitalSelection.event.TopicChangeEvent;
 import com.chen.HospitalSelection.exception.BusinessException;
 import com.chen.HospitalSelection.mapper.CollectionMapper;
 import com.chen.HospitalSelection.mapper.DoctorMapper;
@@ -14,13 +15,13 @@ import com.chen.HospitalSelection.model.UserCollectionItem;
 import com.chen.HospitalSelection.model.User;
 import com.chen.HospitalSelection.service.CollectionService;
 import com.chen.HospitalSelection.service.NotificationService;
+import com.chen.HospitalSelection.util.CountFreePager;
 import com.chen.HospitalSelection.util.JwtUtil;
 import com.chen.HospitalSelection.vo.*;
-import com.github.pagehelper.PageHelper;
-import com.github.pagehelper.PageInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -55,6 +56,12 @@ public class CollectionServiceImpl implements CollectionService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CountFreePager countFreePager;
+
     @Autowired
     private com.chen.HospitalSelection.mapper.UserMapper userMapper;
 
@@ -72,6 +79,8 @@ public class CollectionServiceImpl implements CollectionService {
         // 尝试恢复已删除的收藏记录（如果存在）
         int recollected = collectionMapper.recollect(userId, dto.getTargetType(), dto.getTargetId());
         if (recollected > 0) {
+            countFreePager.invalidate("collection:" + userId + ":");
+            onTopicCollectChanged(dto, true);
             // 成功恢复旧记录，查询ID返回
             UserCollectionItem existing = collectionMapper.selectByUserAndTarget(userId, dto.getTargetType(), dto.getTargetId());
             log.info("收藏恢复成功，收藏ID：{}", existing.getId());
@@ -87,6 +96,8 @@ public class CollectionServiceImpl implements CollectionService {
         collection.setCreateTime(LocalDateTime.now());
 
         collectionMapper.insert(collection);
+        countFreePager.invalidate("collection:" + userId + ":");
+        onTopicCollectChanged(dto, true);
 
         // 如果是收藏话题，创建通知给话题作者（不给自己发通知）
         if (dto.getTargetType() == 3) {
@@ -112,6 +123,8 @@ public class CollectionServiceImpl implements CollectionService {
         }
 
         collectionMapper.cancelCollection(userId, dto.getTargetType(), dto.getTargetId());
+        countFreePager.invalidate("collection:" + userId + ":");
+        onTopicCollectChanged(dto, false);
 
         log.info("收藏取消成功");
     }
@@ -120,40 +133,30 @@ public class CollectionServiceImpl implements CollectionService {
     public PageResult<CollectionVO> getCollectionList(Long userId, Integer targetType, PageQueryDTO dto) {
         log.info("查询收藏列表，用户ID：{}，目标类型：{}", userId, targetType);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-
-        List<UserCollectionItem> collectionList;
-        if (targetType != null) {
-            // 根据类型查询（使用已有的方法）
-            if (targetType == 1) {
-                collectionList = collectionMapper.selectHospitalsByUserId(userId);
-            } else if (targetType == 2) {
-                collectionList = collectionMapper.selectDoctorsByUserId(userId);
-            } else if (targetType == 3) {
-                collectionList = collectionMapper.selectTopicsByUserId(userId);
-            } else {
-                collectionList = collectionMapper.selectByUserId(userId);
-            }
-        } else {
-            // 查询所有收藏
-            collectionList = collectionMapper.selectByUserId(userId);
-        }
-
-        PageInfo<UserCollectionItem> pageInfo = new PageInfo<>(collectionList);
+        CountFreePager.PageSlice<UserCollectionItem> slice = countFreePager.query(dto.getSkipCount(),
+                "collection:" + userId + ":" + targetType, dto.getPage(), dto.getPageSize(),
+                () -> selectCollections(userId, targetType));
 
-        // 获取当前页数据
-        int offset = (dto.getPage() - 1) * dto.getPageSize();
-        int end = Math.min(offset + dto.getPageSize(), collectionList.size());
-        List<UserCollectionItem> pagedList = offset < collectionList.size()
-            ? collectionList.subList(offset, end)
-            : new java.util.ArrayList<>();
-
-        List<CollectionVO> voList = pagedList.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        return slice.toResult(this::convertToVO);
+    }
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+    /**
+     * 按目标类型查询用户的收藏（在分页上下文中执行）
+     */
+    private List<UserCollectionItem> selectCollections(Long userId, Integer targetType) {
+        if (targetType == null) {
+            // 查询所有收藏
+            return collectionMapper.selectByUserId(userId);
+        }
+        // 根据类型查询（使用已有的方法）
+        if (targetType == 1) {
+            return collectionMapper.selectHospitalsByUserId(userId);
+        } else if (targetType == 2) {
+            return collectionMapper.selectDoctorsByUserId(userId);
+        } else if (targetType == 3) {
+            return collectionMapper.selectTopicsByUserId(userId);
+        }
+        return collectionMapper.selectByUserId(userId);
     }
 
     @Override
@@ -215,6 +218,22 @@ public class CollectionServiceImpl implements CollectionService {
         return getCollectionList(userId, 3, dto);
     }
 
+    /**
+     * 收藏/取消收藏话题时同步话题的收藏数，并通知热度索引
+     */
+    private void onTopicCollectChanged(CollectionDTO dto, boolean collected) {
+        if (dto.getTargetType() == null || dto.getTargetType() != 3) {
+            return;
+        }
+        if (collected) {
+            topicMapper.incrementCollectCount(dto.getTargetId());
+        } else {
+            topicMapper.decrementCollectCount(dto.getTargetId());
+        }
+        eventPublisher.publishEvent(new TopicChangeEvent(this, dto.getTargetId(),
+                collected ? TopicChangeEvent.Type.COLLECTED : TopicChangeEvent.Type.UNCOLLECTED));
+    }
+
     /**
      * 转换为收藏VO
      */
@@ -1,23 +1,27 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.cache.TopicViewCounter;
 import com.chen.HospitalSelection.dto.CommentDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.dto.TopicPublishDTO;
 import com.chen.HospitalSelection.dto.TopicUpdateDTO;
+import com.chen.HospitalSelection.event.TopicChangeEvent;
 import com.chen.HospitalSelection.exception.BusinessException;
+import com.chen.HospitalSelection.index.DiseaseTaxonomy;
+import com.chen.HospitalSelection.index.HotTopicIndex;
 import com.chen.HospitalSelection.mapper.CommentMapper;
-import com.chen.HospitalSelection.mapper.DiseaseMapper;
 import com.chen.HospitalSelection.mapper.LikeMapper;
 import com.chen.HospitalSelection.mapper.TopicMapper;
 import com.chen.HospitalSelection.mapper.UserMapper;
 import com.chen.HospitalSelection.model.Comment;
-import com.chen.HospitalSelection.model.Disease;
 import com.chen.HospitalSelection.model.Like;
 import com.chen.HospitalSelection.model.Topic;
 import com.chen.HospitalSelection.model.User;
 import com.chen.HospitalSelection.service.CommunityService;
 import com.chen.HospitalSelection.service.RoleService;
 import com.chen.HospitalSelection.service.NotificationService;
+import com.chen.HospitalSelection.util.CountFreePager;
+import com.chen.HospitalSelection.util.PageCursor;
 import com.chen.HospitalSelection.vo.CommentVO;
 import com.chen.HospitalSelection.vo.PageResult;
 import com.chen.HospitalSelection.vo.TopicDetailVO;
@@ -27,11 +31,15 @@ import com.github.pagehelper.PageInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -57,7 +65,7 @@ public class CommunityServiceImpl implements CommunityService {
     private UserMapper userMapper;
 
     @Autowired
-    private DiseaseMapper diseaseMapper;
+    private DiseaseTaxonomy diseaseTaxonomy;
 
     @Autowired
     private RoleService roleService;
@@ -65,70 +73,147 @@ public class CommunityServiceImpl implements CommunityService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private CountFreePager countFreePager;
+
+    @Autowired
+    private HotTopicIndex hotTopicIndex;
+
+    @Autowired
+    private TopicViewCounter topicViewCounter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 热门话题列表最多返回的条数
+     */
+    private static final int HOT_TOPICS_LIMIT = 100;
+
     @Override
     public PageResult<TopicVO> getTopicList(PageQueryDTO dto, String sortBy, String keyword) {
         log.info("分页查询话题列表，页码：{}，每页大小：{}，排序方式：{}，关键词：{}", dto.getPage(), dto.getPageSize(), sortBy, keyword);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
+        // 最新排序支持游标分页，热门排序的热度为计算值，仍使用页码分页
+        if (!"hot".equals(sortBy) && PageCursor.requested(dto.getCursorMode(), dto.getCursor())) {
+            return getLatestTopicsByCursor(null, null, keyword, dto);
+        }
 
-        List<Topic> topicList;
-        // 根据排序方式选择不同的查询方法
-        if ("hot".equals(sortBy)) {
-            topicList = topicMapper.selectHotTopicsByBoard(null, null, keyword);
-        } else {
-            // 默认按最新排序
-            topicList = topicMapper.selectLatestTopicsByBoard(null, null, keyword);
+        // 热门排序优先从热度索引读取
+        boolean hot = "hot".equals(sortBy);
+        if (hot) {
+            PageResult<TopicVO> indexed = getHotTopicsFromIndex(null, null, keyword, dto, Integer.MAX_VALUE);
+            if (indexed != null) {
+                return indexed;
+            }
         }
 
-        PageInfo<Topic> pageInfo = new PageInfo<>(topicList);
+        // 根据排序方式选择不同的查询方法（默认按最新排序）
+        CountFreePager.PageSlice<Topic> slice = countFreePager.query(dto.getSkipCount(),
+                "topic:" + hot + ":null:null:" + keyword, dto.getPage(), dto.getPageSize(),
+                () -> hot ? topicMapper.selectHotTopicsByBoard(null, null, keyword)
+                        : topicMapper.selectLatestTopicsByBoard(null, null, keyword));
 
-        List<TopicVO> voList = topicList.stream()
-                .map(this::convertToTopicVO)
-                .collect(Collectors.toList());
-
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(this::convertToTopicVO);
     }
 
     @Override
     public PageResult<TopicVO> getTopicsByBoard(String boardLevel1, String boardLevel2, PageQueryDTO dto, String sortBy, String keyword) {
         log.info("根据板块查询话题，一级板块：{}，二级板块：{}，排序方式：{}，关键词：{}", boardLevel1, boardLevel2, sortBy, keyword);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
+        if (!"hot".equals(sortBy) && PageCursor.requested(dto.getCursorMode(), dto.getCursor())) {
+            return getLatestTopicsByCursor(boardLevel1, boardLevel2, keyword, dto);
+        }
 
-        List<Topic> topicList;
-        // 根据排序方式选择不同的查询方法
-        if ("hot".equals(sortBy)) {
-            topicList = topicMapper.selectHotTopicsByBoard(boardLevel1, boardLevel2, keyword);
-        } else {
-            // 默认按最新排序
-            topicList = topicMapper.selectLatestTopicsByBoard(boardLevel1, boardLevel2, keyword);
+        // 热门排序优先从热度索引读取
+        boolean hot = "hot".equals(sortBy);
+        if (hot) {
+            PageResult<TopicVO> indexed = getHotTopicsFromIndex(boardLevel1, boardLevel2, keyword, dto, Integer.MAX_VALUE);
+            if (indexed != null) {
+                return indexed;
+            }
         }
 
-        PageInfo<Topic> pageInfo = new PageInfo<>(topicList);
+        // 根据排序方式选择不同的查询方法（默认按最新排序）
+        CountFreePager.PageSlice<Topic> slice = countFreePager.query(dto.getSkipCount(),
+                "topic:" + hot + ":" + boardLevel1 + ":" + boardLevel2 + ":" + keyword, dto.getPage(), dto.getPageSize(),
+                () -> hot ? topicMapper.selectHotTopicsByBoard(boardLevel1, boardLevel2, keyword)
+                        : topicMapper.selectLatestTopicsByBoard(boardLevel1, boardLevel2, keyword));
+
+        return slice.toResult(this::convertToTopicVO);
+    }
+
+    /**
+     * 从热度索引分页读取热门话题（按时间衰减后的热度降序），索引不可用时返回null
+     *
+     * @param maxTotal 最多返回的条数（超出部分视为不存在）
+     */
+    private PageResult<TopicVO> getHotTopicsFromIndex(String boardLevel1, String boardLevel2, String keyword,
+                                                      PageQueryDTO dto, int maxTotal) {
+        long offset = (long) (dto.getPage() - 1) * dto.getPageSize();
+        int limit = (int) Math.max(0, Math.min(dto.getPageSize(), maxTotal - offset));
+        HotTopicIndex.HotPage page = hotTopicIndex.page(boardLevel1, boardLevel2, keyword,
+                (int) Math.min(offset, Integer.MAX_VALUE), limit);
+        if (page == null) {
+            return null;
+        }
+
+        List<TopicVO> voList = new ArrayList<>(page.getIds().size());
+        if (!page.getIds().isEmpty()) {
+            Map<Long, Topic> topicsById = new HashMap<>();
+            for (Topic topic : topicMapper.selectByIds(page.getIds())) {
+                topicsById.put(topic.getId(), topic);
+            }
+            for (Long id : page.getIds()) {
+                Topic topic = topicsById.get(id);
+                if (topic != null) {
+                    voList.add(convertToTopicVO(topic));
+                }
+            }
+        }
+        long total = Math.min(page.getTotal(), maxTotal);
+        if (Boolean.TRUE.equals(dto.getSkipCount())) {
+            return PageResult.ofHasMore(total, false, dto.getPage(), dto.getPageSize(), voList,
+                    offset + page.getIds().size() < total);
+        }
+        return new PageResult<>(total, dto.getPage(), dto.getPageSize(), voList);
+    }
+
+    /**
+     * 游标分页查询最新话题：按(create_time, id)做seek，多取一条判断是否还有下一页，不统计总数
+     */
+    private PageResult<TopicVO> getLatestTopicsByCursor(String boardLevel1, String boardLevel2, String keyword, PageQueryDTO dto) {
+        PageCursor.TimeKey after = PageCursor.isFirstPage(dto.getCursor())
+                ? null : PageCursor.parseTime(dto.getCursor());
+
+        List<Topic> topicList = topicMapper.selectLatestTopicsByBoardAfter(
+                boardLevel1, boardLevel2, keyword,
+                after == null ? null : after.getCreateTime(),
+                after == null ? null : after.getId(),
+                dto.getPageSize() + 1);
+
+        String nextCursor = null;
+        if (topicList.size() > dto.getPageSize()) {
+            topicList = topicList.subList(0, dto.getPageSize());
+            Topic last = topicList.get(topicList.size() - 1);
+            nextCursor = PageCursor.ofTime(last.getCreateTime(), last.getId());
+        }
 
         List<TopicVO> voList = topicList.stream()
                 .map(this::convertToTopicVO)
                 .collect(Collectors.toList());
-
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return PageResult.ofCursor(dto.getPageSize(), voList, nextCursor);
     }
 
     @Override
     public PageResult<TopicVO> getTopicsByDisease(String diseaseCode, PageQueryDTO dto) {
         log.info("根据疾病查询话题，疾病编码：{}", diseaseCode);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Topic> topicList = topicMapper.selectByDiseaseCode(diseaseCode);
-        PageInfo<Topic> pageInfo = new PageInfo<>(topicList);
+        CountFreePager.PageSlice<Topic> slice = countFreePager.query(dto.getSkipCount(),
+                "topic:disease:" + diseaseCode, dto.getPage(), dto.getPageSize(),
+                () -> topicMapper.selectByDiseaseCode(diseaseCode));
 
-        List<TopicVO> voList = topicList.stream()
-                .map(this::convertToTopicVO)
-                .collect(Collectors.toList());
-
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(this::convertToTopicVO);
     }
 
     @Override
@@ -140,11 +225,12 @@ public class CommunityServiceImpl implements CommunityService {
             throw new BusinessException("话题不存在");
         }
 
-        // 增加浏览量
-        topicMapper.incrementViewCount(topicId);
+        // 增加浏览量（先记入内存缓冲，定时批量写入数据库）
+        topicViewCounter.increment(topicId);
 
         TopicDetailVO detailVO = new TopicDetailVO();
         BeanUtils.copyProperties(topic, detailVO);
+        detailVO.setViewCount(topicViewCounter.merge(topicId, topic.getViewCount()));
 
         // 查询作者信息 - 使用正确的字段名
         User author = userMapper.selectById(topic.getUserId());
@@ -190,6 +276,8 @@ public class CommunityServiceImpl implements CommunityService {
         topic.setUpdateTime(LocalDateTime.now());
 
         topicMapper.insert(topic);
+        publishTopicChange(topic.getId(), TopicChangeEvent.Type.SAVED);
+        countFreePager.invalidate("topic:");
 
         log.info("话题发布成功，话题ID：{}", topic.getId());
         return topic.getId();
@@ -227,6 +315,8 @@ public class CommunityServiceImpl implements CommunityService {
         topic.setUpdateTime(LocalDateTime.now());
 
         topicMapper.updateById(topic);
+        publishTopicChange(topicId, TopicChangeEvent.Type.SAVED);
+        countFreePager.invalidate("topic:");
 
         log.info("话题修改成功，话题ID：{}", topicId);
     }
@@ -250,6 +340,8 @@ public class CommunityServiceImpl implements CommunityService {
         }
 
         topicMapper.deleteById(topicId);
+        publishTopicChange(topicId, TopicChangeEvent.Type.DELETED);
+        countFreePager.invalidate("topic:");
 
         log.info("话题删除成功，话题ID：{}，操作者：{}", topicId, userId);
     }
@@ -258,16 +350,11 @@ public class CommunityServiceImpl implements CommunityService {
     public PageResult<CommentVO> getCommentList(Long topicId, PageQueryDTO dto) {
         log.info("查询评论列表，话题ID：{}", topicId);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Comment> commentList = commentMapper.selectByTopicId(topicId);
-        PageInfo<Comment> pageInfo = new PageInfo<>(commentList);
-
-        List<CommentVO> voList = commentList.stream()
-                .map(this::convertToCommentVO)
-                .collect(Collectors.toList());
+        CountFreePager.PageSlice<Comment> slice = countFreePager.query(dto.getSkipCount(),
+                "comment:topic:" + topicId, dto.getPage(), dto.getPageSize(),
+                () -> commentMapper.selectByTopicId(topicId));
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(this::convertToCommentVO);
     }
 
     @Override
@@ -291,6 +378,8 @@ public class CommunityServiceImpl implements CommunityService {
 
         // 更新话题的评论数
         topicMapper.incrementCommentCount(dto.getTopicId());
+        publishTopicChange(dto.getTopicId(), TopicChangeEvent.Type.COMMENTED);
+        countFreePager.invalidate("comment:topic:" + dto.getTopicId());
 
         // 创建通知
         if (dto.getParentId() != null && dto.getParentId() > 0) {
@@ -333,6 +422,8 @@ public class CommunityServiceImpl implements CommunityService {
 
         // 更新话题的评论数
         topicMapper.decrementCommentCount(comment.getTopicId());
+        publishTopicChange(comment.getTopicId(), TopicChangeEvent.Type.UNCOMMENTED);
+        countFreePager.invalidate("comment:topic:" + comment.getTopicId());
 
         log.info("评论删除成功，评论ID：{}，操作者：{}", commentId, userId);
     }
@@ -367,6 +458,7 @@ public class CommunityServiceImpl implements CommunityService {
 
         // 更新话题的点赞数
         topicMapper.incrementLikeCount(topicId);
+        publishTopicChange(topicId, TopicChangeEvent.Type.LIKED);
 
         // 创建点赞通知（不给自己发通知）
         Topic topic = topicMapper.selectById(topicId);
@@ -387,6 +479,7 @@ public class CommunityServiceImpl implements CommunityService {
 
         // 更新话题的点赞数
         topicMapper.decrementLikeCount(topicId);
+        publishTopicChange(topicId, TopicChangeEvent.Type.UNLIKED);
 
         log.info("取消点赞成功，话题ID：{}", topicId);
     }
@@ -476,18 +569,22 @@ public class CommunityServiceImpl implements CommunityService {
     }
 
     @Override
-    @Transactional
     public void incrementViewCount(Long topicId) {
-        topicMapper.incrementViewCount(topicId);
+        topicViewCounter.increment(topicId);
     }
 
     @Override
     public PageResult<TopicVO> getHotTopics(PageQueryDTO dto) {
         log.info("查询热门话题");
 
-        // 使用PageHelper进行物理分页
+        PageResult<TopicVO> indexed = getHotTopicsFromIndex(null, null, null, dto, HOT_TOPICS_LIMIT);
+        if (indexed != null) {
+            return indexed;
+        }
+
+        // 索引不可用时回退到数据库（使用PageHelper进行物理分页）
         PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Topic> topicList = topicMapper.selectHotTopics(100);
+        List<Topic> topicList = topicMapper.selectHotTopics(HOT_TOPICS_LIMIT);
         PageInfo<Topic> pageInfo = new PageInfo<>(topicList);
 
         List<TopicVO> voList = topicList.stream()
@@ -497,12 +594,20 @@ public class CommunityServiceImpl implements CommunityService {
         return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
     }
 
+    /**
+     * 发布话题变更事件（热度索引在事务提交后处理）
+     */
+    private void publishTopicChange(Long topicId, TopicChangeEvent.Type type) {
+        eventPublisher.publishEvent(new TopicChangeEvent(this, topicId, type));
+    }
+
     /**
      * 转换为话题VO
      */
     private TopicVO convertToTopicVO(Topic topic) {
         TopicVO vo = new TopicVO();
         BeanUtils.copyProperties(topic, vo);
+        vo.setViewCount(topicViewCounter.merge(topic.getId(), topic.getViewCount()));
 
         // 查询用户昵称和头像
         User user = userMapper.selectById(topic.getUserId());
@@ -511,13 +616,8 @@ public class CommunityServiceImpl implements CommunityService {
             vo.setAvatar(user.getAvatar());
         }
 
-        // 查询疾病名称
-        if (topic.getDiseaseCode() != null && !topic.getDiseaseCode().isEmpty()) {
-            Disease disease = diseaseMapper.selectByCode(topic.getDiseaseCode());
-            if (disease != null) {
-                vo.setDiseaseName(disease.getDiseaseName());
-            }
-        }
+        // 疾病名称从内存字典中取
+        vo.setDiseaseName(diseaseTaxonomy.getName(topic.getDiseaseCode()));
 
         return vo;
     }
@@ -578,6 +678,7 @@ public class CommunityServiceImpl implements CommunityService {
         topic.setStatus(status);
         topic.setUpdateTime(LocalDateTime.now());
         topicMapper.updateById(topic);
+        countFreePager.invalidate("topic:");
 
         // TODO: 可选 - 记录审核日志到审核历史表
         log.info("管理员审核话题，话题ID：{}，状态：{}，理由：{}，操作者：{}", topicId, status, reason, adminUserId);
@@ -597,6 +698,8 @@ public class CommunityServiceImpl implements CommunityService {
         }
 
         topicMapper.deleteById(topicId);
+        publishTopicChange(topicId, TopicChangeEvent.Type.DELETED);
+        countFreePager.invalidate("topic:");
         log.info("管理员删除话题，话题ID：{}，理由：{}，操作者：{}", topicId, reason, adminUserId);
     }
 
@@ -615,6 +718,8 @@ public class CommunityServiceImpl implements CommunityService {
 
         commentMapper.deleteById(commentId);
         topicMapper.decrementCommentCount(comment.getTopicId());
+        publishTopicChange(comment.getTopicId(), TopicChangeEvent.Type.UNCOMMENTED);
+        countFreePager.invalidate("comment:topic:" + comment.getTopicId());
         log.info("管理员删除评论，评论ID：{}，理由：{}，操作者：{}", commentId, reason, adminUserId);
     }
 
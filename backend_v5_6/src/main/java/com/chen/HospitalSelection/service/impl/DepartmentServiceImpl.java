@@ -1,5 +1,6 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.cache.CatalogCache;
 import com.chen.HospitalSelection.exception.ResourceNotFoundException;
 import com.chen.HospitalSelection.mapper.DepartmentMapper;
 import com.chen.HospitalSelection.model.Department;
@@ -28,40 +29,41 @@ public class DepartmentServiceImpl implements DepartmentService {
     @Autowired
     private DepartmentMapper departmentMapper;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     @Override
     public List<DepartmentVO> getAllDepartments() {
         log.info("查询所有有医生的科室列表");
 
         // 只查询那些至少有一个医生的科室
-        List<Department> departmentList = departmentMapper.selectDepartmentsWithDoctors();
-
-        return departmentList.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        return catalogCache.getGlobal(CatalogCache.Region.DEPARTMENTS_ALL, "all",
+                () -> departmentMapper.selectDepartmentsWithDoctors().stream()
+                        .map(this::convertToVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public List<DepartmentVO> getDepartmentsByHospital(Long hospitalId) {
         log.info("查询医院科室列表，医院ID：{}", hospitalId);
 
-        List<Department> departmentList = departmentMapper.selectByHospitalId(hospitalId);
-
-        return departmentList.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        return catalogCache.get(CatalogCache.Region.DEPARTMENTS_BY_HOSPITAL, hospitalId, hospitalId,
+                () -> departmentMapper.selectByHospitalId(hospitalId).stream()
+                        .map(this::convertToVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public List<DepartmentVO> getDepartmentsByHospital(Long hospitalId, Boolean includeDeleted) {
         log.info("查询医院科室列表，医院ID：{}，包含已删除：{}", hospitalId, includeDeleted);
 
-        List<Department> departmentList;
-        if (includeDeleted != null && includeDeleted) {
-            departmentList = departmentMapper.selectByHospitalIdIncludingDeleted(hospitalId, true);
-        } else {
-            departmentList = departmentMapper.selectByHospitalId(hospitalId);
+        if (includeDeleted == null || !includeDeleted) {
+            return getDepartmentsByHospital(hospitalId);
         }
 
+        // 包含已删除的科室只有管理端使用，不走缓存
+        List<Department> departmentList = departmentMapper.selectByHospitalIdIncludingDeleted(hospitalId, true);
+
         return departmentList.stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
@@ -72,23 +74,23 @@ public class DepartmentServiceImpl implements DepartmentService {
         log.info("查询医院医生所属科室列表，医院ID：{}", hospitalId);
 
         // 从医生表中获取该医院所有医生的所属科室（按科室名称去重）
-        List<Department> departmentList = departmentMapper.selectDepartmentsByHospitalDoctors(hospitalId);
-
-        return departmentList.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        return catalogCache.get(CatalogCache.Region.DEPARTMENTS_BY_HOSPITAL_DOCTORS, hospitalId, hospitalId,
+                () -> departmentMapper.selectDepartmentsByHospitalDoctors(hospitalId).stream()
+                        .map(this::convertToVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public DepartmentVO getDepartmentDetail(Long deptId) {
         log.info("查询科室详情，科室ID：{}", deptId);
 
-        Department department = departmentMapper.selectById(deptId);
-        if (department == null) {
-            throw ResourceNotFoundException.departmentNotFound();
-        }
-
-        return convertToVO(department);
+        return catalogCache.get(CatalogCache.Region.DEPARTMENT_DETAIL, deptId, DepartmentVO::getHospitalId, () -> {
+            Department department = departmentMapper.selectById(deptId);
+            if (department == null) {
+                throw ResourceNotFoundException.departmentNotFound();
+            }
+            return convertToVO(department);
+        });
     }
 
     @Override
@@ -106,12 +108,11 @@ public class DepartmentServiceImpl implements DepartmentService {
     public List<String> getAllDepartmentTypes() {
         log.info("获取所有科室类型");
 
-        List<Department> allDepartments = departmentMapper.selectByHospitalId(1L);
-
-        return allDepartments.stream()
-                .map(Department::getDeptName)
-                .distinct()
-                .collect(Collectors.toList());
+        return catalogCache.getGlobal(CatalogCache.Region.DEPARTMENT_TYPES, "all",
+                () -> departmentMapper.selectByHospitalId(1L).stream()
+                        .map(Department::getDeptName)
+                        .distinct()
+                        .collect(Collectors.toList()));
     }
 
     /**
@@ -1,16 +1,17 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.event.DiseaseTaxonomyChangeEvent;
 import com.chen.HospitalSelection.exception.BusinessException;
-import com.chen.HospitalSelection.mapper.DiseaseMapper;
+import com.chen.HospitalSelection.index.DiseaseTaxonomy;
 import com.chen.HospitalSelection.model.Disease;
 import com.chen.HospitalSelection.service.DiseaseService;
 import com.chen.HospitalSelection.vo.DiseaseVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,40 +26,24 @@ import java.util.stream.Collectors;
 public class DiseaseServiceImpl implements DiseaseService {
 
     @Autowired
-    private DiseaseMapper diseaseMapper;
+    private DiseaseTaxonomy diseaseTaxonomy;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<DiseaseVO> getDiseaseTree() {
         log.info("获取疾病分类树");
 
-        // 查询所有一级分类
-        List<Disease> level1List = diseaseMapper.selectLevel1();
-
-        // 构建树形结构
-        List<DiseaseVO> tree = new ArrayList<>();
-        for (Disease level1 : level1List) {
-            DiseaseVO level1VO = convertToVO(level1);
-
-            // 查询该一级分类下的所有二级分类
-            List<Disease> level2List = diseaseMapper.selectByParentId(level1.getId());
-            List<DiseaseVO> level2VOList = level2List.stream()
-                    .map(this::convertToVO)
-                    .collect(Collectors.toList());
-
-            level1VO.setChildren(level2VOList);
-            tree.add(level1VO);
-        }
-
-        return tree;
+        // 树在字典加载时已组装好，直接返回
+        return diseaseTaxonomy.getTree();
     }
 
     @Override
     public List<DiseaseVO> getLevel1Diseases() {
         log.info("获取所有一级分类");
 
-        List<Disease> level1List = diseaseMapper.selectLevel1();
-
-        return level1List.stream()
+        return diseaseTaxonomy.getChildren(0L).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -67,9 +52,7 @@ public class DiseaseServiceImpl implements DiseaseService {
     public List<DiseaseVO> getLevel2Diseases(Long parentId) {
         log.info("获取二级分类，父ID：{}", parentId);
 
-        List<Disease> level2List = diseaseMapper.selectByParentId(parentId);
-
-        return level2List.stream()
+        return diseaseTaxonomy.getChildren(parentId).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -78,7 +61,7 @@ public class DiseaseServiceImpl implements DiseaseService {
     public DiseaseVO getDiseaseByCode(String diseaseCode) {
         log.info("根据编码查询疾病，编码：{}", diseaseCode);
 
-        Disease disease = diseaseMapper.selectByCode(diseaseCode);
+        Disease disease = diseaseTaxonomy.getByCode(diseaseCode);
         if (disease == null) {
             throw new BusinessException("疾病分类不存在");
         }
@@ -90,9 +73,7 @@ public class DiseaseServiceImpl implements DiseaseService {
     public List<DiseaseVO> searchDiseasesByName(String diseaseName) {
         log.info("搜索疾病，疾病名称：{}", diseaseName);
 
-        List<Disease> diseaseList = diseaseMapper.searchByName(diseaseName);
-
-        return diseaseList.stream()
+        return diseaseTaxonomy.searchByName(diseaseName).stream()
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -101,25 +82,20 @@ public class DiseaseServiceImpl implements DiseaseService {
     public String getDiseasePath(Long diseaseId) {
         log.info("获取疾病路径，疾病ID：{}", diseaseId);
 
-        Disease disease = diseaseMapper.selectById(diseaseId);
-        if (disease == null) {
+        String path = diseaseTaxonomy.getPath(diseaseId);
+        if (path == null) {
             throw new BusinessException("疾病分类不存在");
         }
+        return path;
+    }
 
-        StringBuilder path = new StringBuilder(disease.getDiseaseName());
-
-        // 如果是一级分类，直接返回
-        if (disease.getParentId() == 0) {
-            return path.toString();
-        }
-
-        // 递归查询父级分类
-        Disease parent = diseaseMapper.selectById(disease.getParentId());
-        if (parent != null) {
-            path.insert(0, parent.getDiseaseName() + " > ");
-        }
-
-        return path.toString();
+    @Override
+    public int reloadDiseases() {
+        log.info("重新加载疾病分类字典");
+        int count = diseaseTaxonomy.reload();
+        // 疾病推荐排名和自动补全中的疾病词条都依赖字典，通知其重建
+        eventPublisher.publishEvent(new DiseaseTaxonomyChangeEvent(this));
+        return count;
     }
 
     /**
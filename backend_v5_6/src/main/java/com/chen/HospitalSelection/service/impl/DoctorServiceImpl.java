@@ -1,12 +1,15 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.cache.CatalogCache;
 import com.chen.HospitalSelection.dto.DoctorFilterDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.exception.BusinessException;
 import com.chen.HospitalSelection.exception.ResourceNotFoundException;
+import com.chen.HospitalSelection.index.DoctorSearchIndex;
 import com.chen.HospitalSelection.mapper.DoctorMapper;
 import com.chen.HospitalSelection.model.Doctor;
 import com.chen.HospitalSelection.service.DoctorService;
+import com.chen.HospitalSelection.util.PageCursor;
 import com.chen.HospitalSelection.vo.DoctorSimpleVO;
 import com.chen.HospitalSelection.vo.DoctorVO;
 import com.chen.HospitalSelection.vo.PageResult;
@@ -17,8 +20,12 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +41,12 @@ public class DoctorServiceImpl implements DoctorService {
     @Autowired
     private DoctorMapper doctorMapper;
 
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     @Override
     public PageResult<DoctorSimpleVO> getDoctorList(PageQueryDTO dto) {
         log.info("分页查询医生列表，页码：{}，每页大小：{}，包含已删除：{}",
@@ -63,6 +76,19 @@ public class DoctorServiceImpl implements DoctorService {
     public PageResult<DoctorSimpleVO> filterDoctors(DoctorFilterDTO dto) {
         log.info("多条件筛选医生，条件：{}", dto);
 
+        String keyword = StringUtils.hasText(dto.getKeyword()) ? dto.getKeyword().trim() : null;
+        // 游标分页只支持筛选条件，带关键词时按页码分页
+        if (keyword == null && PageCursor.requested(dto.getCursorMode(), dto.getCursor())) {
+            return filterDoctorsByCursor(dto);
+        }
+
+        // 优先走倒排索引（筛选条件与关键词求交集），索引不可用时回退到数据库查询
+        DoctorSearchIndex.SearchPage searchPage = doctorSearchIndex.search(keyword,
+                dto.getHospitalId(), dto.getDeptId(), dto.getTitle(), dto.getPage(), dto.getPageSize());
+        if (searchPage != null) {
+            return toPageResult(searchPage, dto.getPage(), dto.getPageSize());
+        }
+
         // 使用PageHelper进行物理分页
         PageHelper.startPage(dto.getPage(), dto.getPageSize());
 
@@ -70,7 +96,8 @@ public class DoctorServiceImpl implements DoctorService {
         List<Doctor> doctorList = doctorMapper.selectBySimpleCondition(
                 dto.getHospitalId(),
                 dto.getDeptId(),
-                dto.getTitle()
+                dto.getTitle(),
+                keyword
         );
 
         PageInfo<Doctor> pageInfo = new PageInfo<>(doctorList);
@@ -86,24 +113,25 @@ public class DoctorServiceImpl implements DoctorService {
     public DoctorVO getDoctorDetail(Long doctorId) {
         log.info("查询医生详情，医生ID：{}", doctorId);
 
-        // 使用关联查询获取医生详情（包含医院和科室名称）
-        Doctor doctor = doctorMapper.selectWithDetailsById(doctorId);
-        if (doctor == null) {
-            throw ResourceNotFoundException.doctorNotFound();  // 使用 ResourceNotFoundException，返回 404
-        }
-
-        return convertToVO(doctor);
+        return catalogCache.get(CatalogCache.Region.DOCTOR_DETAIL, doctorId, DoctorVO::getHospitalId, () -> {
+            // 使用关联查询获取医生详情（包含医院和科室名称）
+            Doctor doctor = doctorMapper.selectWithDetailsById(doctorId);
+            if (doctor == null) {
+                throw ResourceNotFoundException.doctorNotFound();  // 使用 ResourceNotFoundException，返回 404
+            }
+            return convertToVO(doctor);
+        });
     }
 
     @Override
     public List<DoctorSimpleVO> getDoctorsByDepartment(Long deptId) {
         log.info("查询科室医生列表，科室ID：{}", deptId);
 
-        List<Doctor> doctorList = doctorMapper.selectByDeptId(deptId);
-
-        return doctorList.stream()
-                .map(this::convertToSimpleVO)
-                .collect(Collectors.toList());
+        // 科室所属医院未知，作为全局条目缓存
+        return catalogCache.getGlobal(CatalogCache.Region.DOCTORS_BY_DEPT, deptId,
+                () -> doctorMapper.selectByDeptId(deptId).stream()
+                        .map(this::convertToSimpleVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
@@ -135,11 +163,10 @@ public class DoctorServiceImpl implements DoctorService {
     public List<DoctorSimpleVO> getDoctorsByHospitalAndDept(Long hospitalId, Long deptId) {
         log.info("查询医院科室医生列表，医院ID：{}，科室ID：{}", hospitalId, deptId);
 
-        List<Doctor> doctorList = doctorMapper.selectByHospitalAndDept(hospitalId, deptId);
-
-        return doctorList.stream()
-                .map(this::convertToSimpleVO)
-                .collect(Collectors.toList());
+        return catalogCache.get(CatalogCache.Region.DOCTORS_BY_HOSPITAL_DEPT, hospitalId + ":" + deptId, hospitalId,
+                () -> doctorMapper.selectByHospitalAndDept(hospitalId, deptId).stream()
+                        .map(this::convertToSimpleVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
@@ -157,6 +184,15 @@ public class DoctorServiceImpl implements DoctorService {
     public PageResult<DoctorSimpleVO> searchDoctors(String keyword, PageQueryDTO dto) {
         log.info("搜索医生，关键词：{}，包含已删除：{}", keyword, dto.getIncludeDeleted());
 
+        // 索引只包含未删除的医生，查询已删除医生时走数据库
+        if (!Boolean.TRUE.equals(dto.getIncludeDeleted())) {
+            DoctorSearchIndex.SearchPage searchPage = doctorSearchIndex.search(
+                    keyword == null ? "" : keyword, null, null, null, dto.getPage(), dto.getPageSize());
+            if (searchPage != null) {
+                return toPageResult(searchPage, dto.getPage(), dto.getPageSize());
+            }
+        }
+
         // 使用PageHelper进行物理分页
         PageHelper.startPage(dto.getPage(), dto.getPageSize());
 
@@ -189,6 +225,55 @@ public class DoctorServiceImpl implements DoctorService {
         return filterDoctors(filterDTO);
     }
 
+    /**
+     * 游标分页筛选医生：按(rating, review_count, id)做seek，多取一条判断是否还有下一页，不统计总数
+     */
+    private PageResult<DoctorSimpleVO> filterDoctorsByCursor(DoctorFilterDTO dto) {
+        PageCursor.RatingKey after = PageCursor.isFirstPage(dto.getCursor())
+                ? null : PageCursor.parseRating(dto.getCursor());
+
+        List<Doctor> doctorList = doctorMapper.selectBySimpleConditionAfter(
+                dto.getHospitalId(),
+                dto.getDeptId(),
+                dto.getTitle(),
+                after == null ? null : after.getRating(),
+                after == null ? null : after.getReviewCount(),
+                after == null ? null : after.getId(),
+                dto.getPageSize() + 1);
+
+        String nextCursor = null;
+        if (doctorList.size() > dto.getPageSize()) {
+            doctorList = doctorList.subList(0, dto.getPageSize());
+            Doctor last = doctorList.get(doctorList.size() - 1);
+            nextCursor = PageCursor.ofRating(last.getRating(), last.getReviewCount(), last.getId());
+        }
+
+        List<DoctorSimpleVO> voList = doctorList.stream()
+                .map(this::convertToSimpleVO)
+                .collect(Collectors.toList());
+        return PageResult.ofCursor(dto.getPageSize(), voList, nextCursor);
+    }
+
+    /**
+     * 按索引返回的ID顺序取当前页医生（主键IN查询）
+     */
+    private PageResult<DoctorSimpleVO> toPageResult(DoctorSearchIndex.SearchPage searchPage, Integer page, Integer pageSize) {
+        List<DoctorSimpleVO> voList = new ArrayList<>();
+        if (!searchPage.getDoctorIds().isEmpty()) {
+            Map<Long, Doctor> doctorById = new HashMap<>();
+            for (Doctor doctor : doctorMapper.selectWithDetailsByIds(searchPage.getDoctorIds())) {
+                doctorById.put(doctor.getId(), doctor);
+            }
+            for (Long doctorId : searchPage.getDoctorIds()) {
+                Doctor doctor = doctorById.get(doctorId);
+                if (doctor != null) {
+                    voList.add(convertToSimpleVO(doctor));
+                }
+            }
+        }
+        return new PageResult<>(searchPage.getTotal(), page, pageSize, voList);
+    }
+
     /**
      * 转换为医生简要VO
      */
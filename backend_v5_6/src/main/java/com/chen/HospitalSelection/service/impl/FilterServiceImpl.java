@@ -2,6 +2,15 @@ package com.chen.HospitalSelection.service.impl;
 
 import com.chen.HospitalSelection.dto.DoctorFilterDTO;
 import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.exception.BusinessException;
+import com.chen.HospitalSelection.exception.ParameterException;
+import com.chen.HospitalSelection.index.DiseaseHospitalIndex;
+import com.chen.HospitalSelection.index.HospitalFilterIndex;
+import com.chen.HospitalSelection.index.HospitalMatchScorer;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
+import com.chen.HospitalSelection.mapper.HospitalMapper;
+import com.chen.HospitalSelection.model.HospitalDeptCapability;
+import com.chen.HospitalSelection.model.Hospital;
 import com.chen.HospitalSelection.service.DoctorService;
 import com.chen.HospitalSelection.service.FilterService;
 import com.chen.HospitalSelection.service.HospitalService;
@@ -9,11 +18,18 @@ import com.chen.HospitalSelection.vo.DoctorSimpleVO;
 import com.chen.HospitalSelection.vo.HospitalSimpleVO;
 import com.chen.HospitalSelection.vo.PageResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 多条件筛选核心服务实现类
@@ -32,6 +48,35 @@ public class FilterServiceImpl implements FilterService {
     @Autowired
     private DoctorService doctorService;
 
+    @Autowired
+    private HospitalFilterIndex hospitalFilterIndex;
+
+    @Autowired
+    private HospitalMapper hospitalMapper;
+
+    @Autowired
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    @Autowired
+    private DiseaseHospitalIndex diseaseHospitalIndex;
+
+    /**
+     * 筛选统计结果缓存最大条数
+     */
+    private static final int STATS_CACHE_SIZE = 512;
+
+    /**
+     * 筛选统计结果缓存（key为索引版本号 + 规范化后的筛选条件，按LRU淘汰）
+     * 索引版本号随目录变更递增，旧版本的结果不会再被命中
+     */
+    private final Map<String, Map<String, Long>> statsCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, Map<String, Long>>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Long>> eldest) {
+                    return size() > STATS_CACHE_SIZE;
+                }
+            });
+
     @Override
     public PageResult<HospitalSimpleVO> filterHospitals(HospitalFilterDTO dto) {
         log.info("多条件筛选医院，筛选条件：{}", dto);
@@ -58,83 +103,141 @@ public class FilterServiceImpl implements FilterService {
     public Map<String, Long> getFilterStats(Map<String, Object> filterMap) {
         log.info("获取筛选条件统计数据，筛选条件：{}", filterMap);
 
-        Map<String, Long> stats = new HashMap<>();
+        HospitalFilterDTO filter = normalizeFilter(filterMap);
+        String cacheKey = hospitalFilterIndex.getVersion() + "|" + filterKey(filter);
+
+        Map<String, Long> stats = statsCache.get(cacheKey);
+        if (stats != null) {
+            log.debug("筛选统计命中缓存：{}", cacheKey);
+            return stats;
+        }
 
-        // TODO: 实现筛选条件统计逻辑
-        // 例如：
-        // - 各等级医院数量
-        // - 各城市医院数量
-        // - 各科室医生数量
-        // 等
+        // 在内存索引上单次遍历候选集，得到各维度（等级、省、市、区县、医保、科室）的取值计数
+        stats = hospitalFilterIndex.facetCounts(filter);
+        if (stats == null) {
+            log.warn("医院筛选索引不可用，返回空统计数据");
+            return new LinkedHashMap<>();
+        }
 
-        // 示例：统计各等级医院数量
-        // stats.put("grade3A", hospitalService.countByLevel("grade3A"));
-        // stats.put("grade2A", hospitalService.countByLevel("grade2A"));
+        stats = Collections.unmodifiableMap(stats);
+        // 用计算前的版本号作key，计算期间若发生变更，下次查询自然使用新版本重新计算
+        statsCache.put(cacheKey, stats);
 
-        log.info("统计完成，统计数据：{}", stats);
+        log.info("统计完成，满足条件的医院数：{}，统计项数：{}", stats.get("total"), stats.size());
         return stats;
     }
 
-    @Override
-    public PageResult<HospitalSimpleVO> recommendHospitalsByDisease(String diseaseCode, Integer pageNum, Integer pageSize) {
-        log.info("根据疾病推荐医院，疾病编码：{}，页码：{}，每页：{}", diseaseCode, pageNum, pageSize);
+    /**
+     * 将前端传入的筛选Map规范化为筛选条件（去除空值、首尾空格，科室名称取前缀）
+     */
+    private HospitalFilterDTO normalizeFilter(Map<String, Object> filterMap) {
+        HospitalFilterDTO filter = new HospitalFilterDTO();
+        if (filterMap == null) {
+            return filter;
+        }
+
+        filter.setHospitalLevel(textValue(filterMap, HospitalFilterIndex.FACET_LEVEL));
+        filter.setProvinceCode(textValue(filterMap, HospitalFilterIndex.FACET_PROVINCE));
+        filter.setCityCode(textValue(filterMap, HospitalFilterIndex.FACET_CITY));
+        filter.setAreaCode(textValue(filterMap, HospitalFilterIndex.FACET_AREA));
+
+        String deptName = textValue(filterMap, "deptName");
+        if (deptName != null) {
+            filter.setDeptName(HospitalFilterIndex.deptPrefix(deptName));
+        }
+
+        String insurance = textValue(filterMap, HospitalFilterIndex.FACET_INSURANCE);
+        if (insurance != null) {
+            if ("true".equalsIgnoreCase(insurance) || "1".equals(insurance)) {
+                filter.setIsMedicalInsurance(1);
+            } else if ("false".equalsIgnoreCase(insurance) || "0".equals(insurance)) {
+                filter.setIsMedicalInsurance(0);
+            } else {
+                throw new ParameterException("医保定点参数格式错误：" + insurance);
+            }
+        }
+        return filter;
+    }
 
-        // TODO: 实现基于疾病的智能推荐算法
-        // 考虑因素：
-        // 1. 疾病与医院重点科室的匹配度
-        // 2. 医院等级
-        // 3. 用户评价
-        // 4. 地理位置（如果有用户位置信息）
+    private String textValue(Map<String, Object> filterMap, String key) {
+        Object value = filterMap.get(key);
+        if (value == null || !StringUtils.hasText(value.toString())) {
+            return null;
+        }
+        return value.toString().trim();
+    }
+
+    private String filterKey(HospitalFilterDTO filter) {
+        return "level=" + nullToEmpty(filter.getHospitalLevel())
+                + "&province=" + nullToEmpty(filter.getProvinceCode())
+                + "&city=" + nullToEmpty(filter.getCityCode())
+                + "&area=" + nullToEmpty(filter.getAreaCode())
+                + "&insurance=" + (filter.getIsMedicalInsurance() == null ? "" : filter.getIsMedicalInsurance())
+                + "&dept=" + nullToEmpty(filter.getDeptName());
+    }
 
-        // 临时实现：不使用筛选条件，返回所有医院
-        HospitalFilterDTO filterDTO = new HospitalFilterDTO();
-        filterDTO.setPage(pageNum);
-        filterDTO.setPageSize(pageSize);
-        filterDTO.setSortBy("rating"); // 默认按评分排序
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
 
-        PageResult<HospitalSimpleVO> result = hospitalService.filterHospitals(filterDTO);
+    @Override
+    public PageResult<HospitalSimpleVO> recommendHospitalsByDisease(String diseaseCode, Integer pageNum, Integer pageSize) {
+        log.info("根据疾病推荐医院，疾病编码：{}，页码：{}，每页：{}", diseaseCode, pageNum, pageSize);
 
-        log.info("推荐完成，共推荐{}家医院", result.getTotal());
-        return result;
+        if (!StringUtils.hasText(diseaseCode)) {
+            throw new ParameterException("疾病编码不能为空");
+        }
+
+        // 在预先计算的疾病 -> 科室 -> 医院排名中截取当前页
+        DiseaseHospitalIndex.RankedPage ranked = diseaseHospitalIndex.page(diseaseCode.trim(), pageNum, pageSize);
+        if (ranked == null) {
+            log.warn("疾病推荐索引不可用，按评分返回医院列表");
+            HospitalFilterDTO filterDTO = new HospitalFilterDTO();
+            filterDTO.setPage(pageNum);
+            filterDTO.setPageSize(pageSize);
+            filterDTO.setSortBy("rating");
+            return hospitalService.filterHospitals(filterDTO);
+        }
+
+        List<Hospital> hospitals = hospitalFilterIndex.getCards(ranked.getHospitalIds());
+        if (hospitals == null) {
+            hospitals = new ArrayList<>(ranked.getHospitalIds().size());
+            for (Long hospitalId : ranked.getHospitalIds()) {
+                Hospital hospital = hospitalMapper.selectById(hospitalId);
+                if (hospital != null) {
+                    hospitals.add(hospital);
+                }
+            }
+        }
+
+        List<HospitalSimpleVO> voList = new ArrayList<>(hospitals.size());
+        for (Hospital hospital : hospitals) {
+            HospitalSimpleVO vo = new HospitalSimpleVO();
+            BeanUtils.copyProperties(hospital, vo);
+            voList.add(vo);
+        }
+
+        log.info("推荐完成，共推荐{}家医院", ranked.getTotal());
+        return new PageResult<>(ranked.getTotal(), pageNum, pageSize, voList);
     }
 
     @Override
     public Integer calculateMatchScore(Long hospitalId, HospitalFilterDTO dto) {
         log.debug("计算医院匹配度，医院ID：{}，筛选条件：{}", hospitalId, dto);
 
-        int score = 0;
-
-        // TODO: 实现医院匹配度计算算法
-        // 评分因素（满分100）：
-        // 1. 医院等级匹配（30分）
-        //    - 三甲：30分
-        //    - 三乙：25分
-        //    - 二甲：20分
-        //    - 其他：15分
-        //
-        // 2. 地理位置匹配（20分）
-        //    - 同区县：20分
-        //    - 同城市：15分
-        //    - 同省份：10分
-        //    - 其他：5分
-        //
-        // 3. 重点科室匹配（30分）
-        //    - 完全匹配：30分
-        //    - 部分匹配：15分
-        //    - 不匹配：0分
-        //
-        // 4. 医保定点（10分）
-        //    - 是医保定点：10分
-        //    - 否：0分
-        //
-        // 5. 用户评价（10分）
-        //    - 评分>=4.5：10分
-        //    - 评分>=4.0：8分
-        //    - 评分>=3.5：5分
-        //    - 其他：3分
-
-        // 临时实现：返回固定分数
-        score = 75;
+        // 评分规则（满分100）：等级30 + 地理位置20 + 重点科室30 + 医保定点10 + 用户评价10，详见HospitalMatchScorer
+        Integer score = hospitalFilterIndex.matchScore(hospitalId, dto);
+        if (score == null) {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            if (hospital == null) {
+                throw new BusinessException("医院不存在");
+            }
+            Set<String> prefixes = new HashSet<>();
+            for (HospitalDeptCapability capability : capabilityMapper.selectByHospitalId(hospitalId)) {
+                prefixes.add(capability.getDeptPrefix());
+            }
+            score = HospitalMatchScorer.score(hospital, dto, prefixes);
+        }
 
         log.debug("医院匹配度计算完成，得分：{}", score);
         return score;
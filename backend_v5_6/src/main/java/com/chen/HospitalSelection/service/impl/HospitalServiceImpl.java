@@ -1,25 +1,35 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.cache.CatalogCache;
 import com.chen.HospitalSelection.dto.AIQueryRequestDTO;
 import com.chen.HospitalSelection.dto.HospitalFilterDTO;
 import com.chen.HospitalSelection.dto.PageQueryDTO;
 import com.chen.HospitalSelection.exception.BusinessException;
-import com.chen.HospitalSelection.mapper.AreaMapper;
+import com.chen.HospitalSelection.exception.ParameterException;
+import com.chen.HospitalSelection.index.AreaDictionary;
+import com.chen.HospitalSelection.index.AutocompleteIndex;
+import com.chen.HospitalSelection.index.HospitalFilterIndex;
+import com.chen.HospitalSelection.index.HospitalMatchScorer;
+import com.chen.HospitalSelection.index.HospitalSearchIndex;
 import com.chen.HospitalSelection.mapper.DepartmentMapper;
 import com.chen.HospitalSelection.mapper.DoctorMapper;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
 import com.chen.HospitalSelection.mapper.HospitalMapper;
-import com.chen.HospitalSelection.model.Area;
 import com.chen.HospitalSelection.model.Department;
 import com.chen.HospitalSelection.model.Doctor;
+import com.chen.HospitalSelection.model.HospitalDeptCapability;
 import com.chen.HospitalSelection.model.Hospital;
 import com.chen.HospitalSelection.service.HospitalService;
+import com.chen.HospitalSelection.util.CountFreePager;
+import com.chen.HospitalSelection.util.GeoUtil;
+import com.chen.HospitalSelection.util.PageCursor;
 import com.chen.HospitalSelection.vo.DepartmentVO;
 import com.chen.HospitalSelection.vo.DoctorSimpleVO;
+import com.chen.HospitalSelection.vo.HospitalFullVO;
 import com.chen.HospitalSelection.vo.HospitalSimpleVO;
 import com.chen.HospitalSelection.vo.HospitalVO;
 import com.chen.HospitalSelection.vo.PageResult;
-import com.github.pagehelper.PageHelper;
-import com.github.pagehelper.PageInfo;
+import com.chen.HospitalSelection.vo.SuggestionVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,7 +37,27 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +70,42 @@ import java.util.stream.Collectors;
 @Service
 public class HospitalServiceImpl implements HospitalService {
 
+    /**
+     * 详情页聚合数据加载超时时间（秒）
+     */
+    private static final int FULL_PAGE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * 详情页聚合数据并发加载线程池（有界队列，队列满时由请求线程直接执行）
+     */
+    private final ThreadPoolExecutor pageLoadExecutor = new ThreadPoolExecutor(8, 8, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(200), new ThreadFactory() {
+                private final AtomicInteger sequence = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "hospital-page-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * AI推荐异步执行线程池（等待大模型期间不占用容器线程）
+     * 队列满时直接拒绝：由请求线程执行会重新阻塞容器线程，失去异步的意义
+     */
+    private final ThreadPoolExecutor aiRecommendExecutor = new ThreadPoolExecutor(16, 16, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(200), new ThreadFactory() {
+                private final AtomicInteger sequence = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ai-recommend-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.AbortPolicy());
+
     @Autowired
     private HospitalMapper hospitalMapper;
 
@@ -50,111 +116,259 @@ public class HospitalServiceImpl implements HospitalService {
     private DoctorMapper doctorMapper;
 
     @Autowired
-    private AreaMapper areaMapper;
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    @Autowired
+    private AreaDictionary areaDictionary;
 
     @Autowired
     private ZhipuAIService zhipuAIService;
 
+    @Autowired
+    private HospitalFilterIndex hospitalFilterIndex;
+
+    @Autowired
+    private HospitalSearchIndex hospitalSearchIndex;
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private CountFreePager countFreePager;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
     @Override
     public PageResult<HospitalSimpleVO> getHospitalList(PageQueryDTO dto) {
         log.info("分页查询医院列表，页码：{}，每页大小：{}", dto.getPage(), dto.getPageSize());
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Hospital> hospitalList = hospitalMapper.selectAll();
-        PageInfo<Hospital> pageInfo = new PageInfo<>(hospitalList);
+        if (PageCursor.requested(dto.getCursorMode(), dto.getCursor())) {
+            return getHospitalListByCursor(dto);
+        }
 
-        // 转换为VO
-        List<HospitalSimpleVO> voList = hospitalList.stream()
-                .map(this::convertToSimpleVO)
-                .collect(Collectors.toList());
+        CountFreePager.PageSlice<Hospital> slice = countFreePager.query(dto.getSkipCount(),
+                "hospital:all", dto.getPage(), dto.getPageSize(), hospitalMapper::selectAll);
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(this::convertToSimpleVO);
     }
 
     @Override
     public PageResult<HospitalSimpleVO> filterHospitals(HospitalFilterDTO dto) {
         log.info("多条件筛选医院，条件：{}", dto);
+        checkLocation(dto);
+
+        // 优先走内存位图索引，索引不可用时回退到数据库查询
+        HospitalFilterIndex.IndexPage indexPage = hospitalFilterIndex.query(dto);
+        if (indexPage != null) {
+            List<HospitalSimpleVO> voList = indexPage.getRows().stream()
+                    .map(this::convertToSimpleVO)
+                    .collect(Collectors.toList());
+            if (indexPage.getScores() != null) {
+                for (int i = 0; i < voList.size(); i++) {
+                    voList.get(i).setMatchScore(indexPage.getScores().get(i));
+                }
+            }
+            fillDistance(voList, dto);
+            return new PageResult<>(indexPage.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        }
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-
-        // 使用动态条件查询（在数据库层面过滤）
-        List<Hospital> hospitalList = hospitalMapper.selectByCondition(
-                dto.getHospitalLevel(),
-                dto.getProvinceCode(),
-                dto.getCityCode(),
-                dto.getAreaCode(),
-                dto.getIsMedicalInsurance(),
-                dto.getKeyDepartments(),
-                dto.getDeptName(),
-                dto.getSortBy()
-        );
+        if (HospitalMatchScorer.SORT_MATCH.equals(dto.getSortBy())) {
+            return filterHospitalsByMatch(dto);
+        }
+        if (HospitalFilterIndex.SORT_DISTANCE.equals(dto.getSortBy()) || dto.getRadiusKm() != null) {
+            return filterHospitalsByLocation(dto);
+        }
 
-        PageInfo<Hospital> pageInfo = new PageInfo<>(hospitalList);
+        // 使用动态条件查询（在数据库层面过滤），计数只与筛选条件有关，与排序无关
+        String countKey = "hospital:filter:" + dto.getHospitalLevel() + ":" + dto.getProvinceCode() + ":"
+                + dto.getCityCode() + ":" + dto.getAreaCode() + ":" + dto.getIsMedicalInsurance() + ":"
+                + dto.getKeyDepartments() + ":" + dto.getDeptName();
+        CountFreePager.PageSlice<Hospital> slice = countFreePager.query(dto.getSkipCount(), countKey,
+                dto.getPage(), dto.getPageSize(),
+                () -> hospitalMapper.selectByCondition(
+                        dto.getHospitalLevel(),
+                        dto.getProvinceCode(),
+                        dto.getCityCode(),
+                        dto.getAreaCode(),
+                        dto.getIsMedicalInsurance(),
+                        dto.getKeyDepartments(),
+                        dto.getDeptName(),
+                        dto.getSortBy()
+                ));
 
         // 转换为VO
-        List<HospitalSimpleVO> voList = hospitalList.stream()
+        List<HospitalSimpleVO> voList = slice.getRows().stream()
                 .map(this::convertToSimpleVO)
                 .collect(Collectors.toList());
+        fillDistance(voList, dto);
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(voList);
     }
 
     @Override
-    public HospitalVO getHospitalDetail(Long hospitalId) {
-        log.info("查询医院详情，医院ID：{}", hospitalId);
+    public List<HospitalSimpleVO> getNearbyHospitals(HospitalFilterDTO dto, Integer limit) {
+        log.info("查询附近医院，纬度：{}，经度：{}，半径：{}km", dto.getLatitude(), dto.getLongitude(), dto.getRadiusKm());
 
-        Hospital hospital = hospitalMapper.selectById(hospitalId);
-        if (hospital == null) {
-            throw new BusinessException("医院不存在");
+        if (!GeoUtil.isValid(dto.getLatitude(), dto.getLongitude())) {
+            throw new ParameterException("请提供有效的经纬度");
         }
+        dto.setSortBy(HospitalFilterIndex.SORT_DISTANCE);
+        dto.setPage(1);
+        dto.setPageSize(limit == null ? 10 : Math.max(1, Math.min(limit, 50)));
 
-        return convertToVO(hospital);
+        return filterHospitals(dto).getList();
+    }
+
+    @Override
+    public HospitalVO getHospitalDetail(Long hospitalId) {
+        log.info("查询医院详情，医院ID：{}", hospitalId);
+
+        return catalogCache.get(CatalogCache.Region.HOSPITAL_DETAIL, hospitalId, hospitalId, () -> {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            if (hospital == null) {
+                throw new BusinessException("医院不存在");
+            }
+            return convertToVO(hospital);
+        });
     }
 
     @Override
     public List<DepartmentVO> getHospitalDepartments(Long hospitalId) {
         log.info("查询医院科室列表，医院ID：{}", hospitalId);
 
-        List<Department> departmentList = departmentMapper.selectByHospitalId(hospitalId);
-
-        return departmentList.stream()
-                .map(this::convertToDepartmentVO)
-                .collect(Collectors.toList());
+        return catalogCache.get(CatalogCache.Region.HOSPITAL_DEPARTMENTS, hospitalId, hospitalId,
+                () -> departmentMapper.selectByHospitalId(hospitalId).stream()
+                        .map(this::convertToDepartmentVO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public List<DoctorSimpleVO> getHospitalDoctors(Long hospitalId) {
         log.info("查询医院医生列表，医院ID：{}", hospitalId);
 
-        List<Doctor> doctorList = doctorMapper.selectByHospitalId(hospitalId);
+        return catalogCache.get(CatalogCache.Region.HOSPITAL_DOCTORS, hospitalId, hospitalId,
+                () -> doctorMapper.selectByHospitalId(hospitalId).stream()
+                        .map(this::convertToDoctorSimpleVO)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public HospitalFullVO getHospitalFull(Long hospitalId) {
+        log.info("查询医院详情页聚合数据，医院ID：{}", hospitalId);
+
+        return catalogCache.get(CatalogCache.Region.HOSPITAL_FULL, hospitalId, hospitalId,
+                () -> loadHospitalFull(hospitalId));
+    }
+
+    /**
+     * 并发加载医院详情页聚合数据
+     */
+    private HospitalFullVO loadHospitalFull(Long hospitalId) {
+        // 医院、科室、医生三组查询互不依赖，并发执行
+        CompletableFuture<Hospital> hospitalFuture = CompletableFuture.supplyAsync(
+                () -> hospitalMapper.selectById(hospitalId), pageLoadExecutor);
+        CompletableFuture<List<Department>> departmentFuture = CompletableFuture.supplyAsync(
+                () -> departmentMapper.selectByHospitalId(hospitalId), pageLoadExecutor);
+        CompletableFuture<List<Doctor>> doctorFuture = CompletableFuture.supplyAsync(
+                () -> doctorMapper.selectByHospitalId(hospitalId), pageLoadExecutor);
+
+        try {
+            CompletableFuture.allOf(hospitalFuture, departmentFuture, doctorFuture)
+                    .get(FULL_PAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("医院信息加载被中断");
+        } catch (TimeoutException e) {
+            hospitalFuture.cancel(true);
+            departmentFuture.cancel(true);
+            doctorFuture.cancel(true);
+            log.error("医院详情页聚合数据加载超时，医院ID：{}", hospitalId);
+            throw new BusinessException("医院信息加载超时，请稍后重试");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException("医院信息加载失败");
+        }
+
+        Hospital hospital = hospitalFuture.join();
+        if (hospital == null) {
+            throw new BusinessException("医院不存在");
+        }
 
-        return doctorList.stream()
-                .map(this::convertToDoctorSimpleVO)
+        List<DepartmentVO> departments = departmentFuture.join().stream()
+                .map(this::convertToDepartmentVO)
                 .collect(Collectors.toList());
+
+        // 按科室分组医生：先按科室列表顺序，再追加科室列表中没有的科室
+        Map<Long, HospitalFullVO.DoctorGroup> groups = new LinkedHashMap<>();
+        for (DepartmentVO department : departments) {
+            groups.put(department.getId(),
+                    new HospitalFullVO.DoctorGroup(department.getId(), department.getDeptName(), new ArrayList<>()));
+        }
+        for (Doctor doctor : doctorFuture.join()) {
+            groups.computeIfAbsent(doctor.getDeptId(),
+                    deptId -> new HospitalFullVO.DoctorGroup(deptId, doctor.getDeptName(), new ArrayList<>()))
+                    .getDoctors().add(convertToDoctorSimpleVO(doctor));
+        }
+
+        return new HospitalFullVO(convertToVO(hospital), departments, new ArrayList<>(groups.values()));
+    }
+
+    @PreDestroy
+    public void shutdownPageLoadExecutor() {
+        pageLoadExecutor.shutdownNow();
+        aiRecommendExecutor.shutdownNow();
     }
 
     @Override
     public PageResult<HospitalSimpleVO> searchHospitals(String keyword, PageQueryDTO dto) {
         log.info("搜索医院，关键词：{}", keyword);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Hospital> hospitalList = hospitalMapper.searchByKeyword(keyword);
-        PageInfo<Hospital> pageInfo = new PageInfo<>(hospitalList);
+        // 优先走N-gram倒排索引，索引不可用时回退到LIKE查询
+        HospitalSearchIndex.SearchPage searchPage = hospitalSearchIndex.search(keyword, dto.getPage(), dto.getPageSize());
+        if (searchPage != null) {
+            List<HospitalSimpleVO> voList = loadHospitals(searchPage.getHospitalIds()).stream()
+                    .map(this::convertToSimpleVO)
+                    .collect(Collectors.toList());
+            return new PageResult<>(searchPage.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        }
 
-        List<HospitalSimpleVO> voList = hospitalList.stream()
-                .map(this::convertToSimpleVO)
-                .collect(Collectors.toList());
+        CountFreePager.PageSlice<Hospital> slice = countFreePager.query(dto.getSkipCount(),
+                "hospital:search:" + keyword, dto.getPage(), dto.getPageSize(),
+                () -> hospitalMapper.searchByKeyword(keyword));
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(this::convertToSimpleVO);
     }
 
     @Override
     public List<String> getSearchSuggestions(String keyword) {
         log.info("获取搜索建议，关键词：{}", keyword);
 
+        // 先按前缀补全（支持拼音和首字母），不足10条时用包含关键词的医院补齐
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        List<SuggestionVO> completions = autocompleteIndex.complete(keyword, AutocompleteIndex.Type.HOSPITAL,
+                AutocompleteIndex.TOP_N);
+        if (completions != null) {
+            completions.forEach(suggestion -> names.add(suggestion.getText()));
+        }
+        if (names.size() >= AutocompleteIndex.TOP_N) {
+            return new ArrayList<>(names);
+        }
+
+        // 索引中只取前10条，不需要物化全部命中
+        HospitalSearchIndex.SearchPage searchPage = hospitalSearchIndex.search(keyword, 1, 10);
+        if (searchPage != null) {
+            for (String name : searchPage.getHospitalNames()) {
+                if (names.size() >= AutocompleteIndex.TOP_N) {
+                    break;
+                }
+                names.add(name);
+            }
+            return new ArrayList<>(names);
+        }
+
         // 使用模糊搜索查询医院名称包含关键词的医院
         List<Hospital> hospitalList = hospitalMapper.searchByKeyword(keyword);
 
@@ -165,6 +379,32 @@ public class HospitalServiceImpl implements HospitalService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<SuggestionVO> getAutocomplete(String keyword, String type) {
+        if (!StringUtils.hasText(keyword)) {
+            return new ArrayList<>();
+        }
+
+        // 未指定类型时按医院、医生、科室、疾病依次各取若干条
+        if (!StringUtils.hasText(type)) {
+            List<SuggestionVO> result = new ArrayList<>();
+            for (AutocompleteIndex.Type t : AutocompleteIndex.Type.values()) {
+                List<SuggestionVO> completions = autocompleteIndex.complete(keyword, t, 3);
+                if (completions != null) {
+                    result.addAll(completions);
+                }
+            }
+            return result;
+        }
+
+        AutocompleteIndex.Type autocompleteType = AutocompleteIndex.Type.of(type);
+        if (autocompleteType == null) {
+            throw new ParameterException("不支持的补全类型：" + type);
+        }
+        List<SuggestionVO> completions = autocompleteIndex.complete(keyword, autocompleteType, AutocompleteIndex.TOP_N);
+        return completions == null ? new ArrayList<>() : completions;
+    }
+
     @Override
     public PageResult<HospitalSimpleVO> getHospitalsByCity(String cityCode, PageQueryDTO dto) {
         log.info("查询城市医院列表，城市编码：{}", cityCode);
@@ -204,6 +444,224 @@ public class HospitalServiceImpl implements HospitalService {
         return filterHospitals(filter);
     }
 
+    @Override
+    public CompletableFuture<PageResult<HospitalSimpleVO>> aiRecommendHospitalsAsync(AIQueryRequestDTO request,
+                                                                                    String clientKey) {
+        return analyzeQueryAsync(request, clientKey).thenCompose(this::filterHospitalsAsync);
+    }
+
+    @Override
+    public CompletableFuture<HospitalFilterDTO> analyzeQueryAsync(AIQueryRequestDTO request, String clientKey) {
+        return submitAIRecommendTask(() -> {
+            log.info("AI推荐医院（异步），用户查询：{}", request.getQuery());
+            HospitalFilterDTO filter = zhipuAIService.analyzeQuery(request.getQuery(), clientKey);
+            filter.setPage(request.getPageNum());
+            filter.setPageSize(request.getPageSize());
+            return filter;
+        });
+    }
+
+    @Override
+    public CompletableFuture<PageResult<HospitalSimpleVO>> filterHospitalsAsync(HospitalFilterDTO filter) {
+        return submitAIRecommendTask(() -> filterHospitals(filter));
+    }
+
+    /**
+     * 提交到AI推荐线程池，线程池已满时返回异常完成的Future
+     */
+    private <T> CompletableFuture<T> submitAIRecommendTask(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, aiRecommendExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("AI推荐线程池已满，拒绝请求，活跃线程：{}，排队：{}",
+                    aiRecommendExecutor.getActiveCount(), aiRecommendExecutor.getQueue().size());
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new BusinessException("503", "AI推荐请求过多，请稍后重试"));
+            return rejected;
+        }
+    }
+
+    /**
+     * 按ID顺序加载医院卡片数据（优先取筛选索引中的卡片）
+     */
+    private List<Hospital> loadHospitals(List<Long> hospitalIds) {
+        List<Hospital> hospitals = hospitalFilterIndex.getCards(hospitalIds);
+        if (hospitals != null) {
+            return hospitals;
+        }
+        hospitals = new ArrayList<>(hospitalIds.size());
+        for (Long hospitalId : hospitalIds) {
+            Hospital hospital = hospitalMapper.selectById(hospitalId);
+            if (hospital != null) {
+                hospitals.add(hospital);
+            }
+        }
+        return hospitals;
+    }
+
+    /**
+     * 游标分页查询医院列表：按(rating, review_count, id)做seek，多取一条判断是否还有下一页，不统计总数
+     */
+    private PageResult<HospitalSimpleVO> getHospitalListByCursor(PageQueryDTO dto) {
+        PageCursor.RatingKey after = PageCursor.isFirstPage(dto.getCursor())
+                ? null : PageCursor.parseRating(dto.getCursor());
+
+        List<Hospital> hospitalList = hospitalMapper.selectAllAfter(
+                after == null ? null : after.getRating(),
+                after == null ? null : after.getReviewCount(),
+                after == null ? null : after.getId(),
+                dto.getPageSize() + 1);
+
+        String nextCursor = null;
+        if (hospitalList.size() > dto.getPageSize()) {
+            hospitalList = hospitalList.subList(0, dto.getPageSize());
+            Hospital last = hospitalList.get(hospitalList.size() - 1);
+            nextCursor = PageCursor.ofRating(last.getRating(), last.getReviewCount(), last.getId());
+        }
+
+        List<HospitalSimpleVO> voList = hospitalList.stream()
+                .map(this::convertToSimpleVO)
+                .collect(Collectors.toList());
+        return PageResult.ofCursor(dto.getPageSize(), voList, nextCursor);
+    }
+
+    /**
+     * 索引不可用时按匹配度排序：查出全部候选医院，逐个评分后用Top-K堆取当前页
+     */
+    private PageResult<HospitalSimpleVO> filterHospitalsByMatch(HospitalFilterDTO dto) {
+        List<Hospital> candidates = hospitalMapper.selectByCondition(
+                dto.getHospitalLevel(),
+                dto.getProvinceCode(),
+                dto.getCityCode(),
+                dto.getAreaCode(),
+                dto.getIsMedicalInsurance(),
+                dto.getKeyDepartments(),
+                dto.getDeptName(),
+                "rating"
+        );
+
+        int total = candidates.size();
+        if (total == 0) {
+            return new PageResult<>(0L, dto.getPage(), dto.getPageSize(), new ArrayList<>());
+        }
+        int pages = (total + dto.getPageSize() - 1) / dto.getPageSize();
+        int offset = (Math.min(dto.getPage(), pages) - 1) * dto.getPageSize();
+
+        // 科室部分匹配同索引一样参考已开设科室，一次查出全部候选医院的科室能力
+        Map<Long, Set<String>> prefixesById = new HashMap<>();
+        if (HospitalMatchScorer.requestedDept(dto) != null) {
+            List<Long> hospitalIds = candidates.stream().map(Hospital::getId).collect(Collectors.toList());
+            for (HospitalDeptCapability capability : capabilityMapper.selectByHospitalIds(hospitalIds)) {
+                prefixesById.computeIfAbsent(capability.getHospitalId(), k -> new HashSet<>())
+                        .add(capability.getDeptPrefix());
+            }
+        }
+
+        // 高32位为得分，低32位为评分顺序位置取反，同分时保持评分优先
+        HospitalMatchScorer.TopK topK = new HospitalMatchScorer.TopK(offset + dto.getPageSize());
+        for (int i = 0; i < total; i++) {
+            Hospital hospital = candidates.get(i);
+            long score = HospitalMatchScorer.score(hospital, dto,
+                    prefixesById.getOrDefault(hospital.getId(), Collections.emptySet()));
+            topK.offer((score << 32) | (Integer.MAX_VALUE - i));
+        }
+
+        long[] ranked = topK.toSortedDescending();
+        List<HospitalSimpleVO> voList = new ArrayList<>();
+        for (int i = offset; i < ranked.length; i++) {
+            int index = Integer.MAX_VALUE - (int) (ranked[i] & 0xFFFFFFFFL);
+            HospitalSimpleVO vo = convertToSimpleVO(candidates.get(index));
+            vo.setMatchScore((int) (ranked[i] >>> 32));
+            voList.add(vo);
+        }
+        return new PageResult<>((long) total, dto.getPage(), dto.getPageSize(), voList);
+    }
+
+    /**
+     * 按距离排序或限定半径时必须提供有效坐标
+     */
+    private void checkLocation(HospitalFilterDTO dto) {
+        boolean byDistance = HospitalFilterIndex.SORT_DISTANCE.equals(dto.getSortBy());
+        if (!byDistance && dto.getRadiusKm() == null) {
+            return;
+        }
+        if (!GeoUtil.isValid(dto.getLatitude(), dto.getLongitude())) {
+            throw new ParameterException("按距离查询需要提供有效的经纬度");
+        }
+        if (dto.getRadiusKm() != null && dto.getRadiusKm() <= 0) {
+            throw new ParameterException("搜索半径必须大于0");
+        }
+    }
+
+    /**
+     * 提供了用户坐标时，为有坐标的医院填充距离
+     */
+    private void fillDistance(List<HospitalSimpleVO> voList, HospitalFilterDTO dto) {
+        if (!GeoUtil.isValid(dto.getLatitude(), dto.getLongitude())) {
+            return;
+        }
+        for (HospitalSimpleVO vo : voList) {
+            if (GeoUtil.isValid(vo.getLatitude(), vo.getLongitude())) {
+                vo.setDistance(GeoUtil.roundKm(GeoUtil.distanceKm(dto.getLatitude(), dto.getLongitude(),
+                        vo.getLatitude().doubleValue(), vo.getLongitude().doubleValue())));
+            }
+        }
+    }
+
+    /**
+     * 索引不可用时按距离排序或半径筛选：数据库按其他条件过滤后在内存中计算距离
+     */
+    private PageResult<HospitalSimpleVO> filterHospitalsByLocation(HospitalFilterDTO dto) {
+        boolean byDistance = HospitalFilterIndex.SORT_DISTANCE.equals(dto.getSortBy());
+        List<Hospital> candidates = hospitalMapper.selectByCondition(
+                dto.getHospitalLevel(),
+                dto.getProvinceCode(),
+                dto.getCityCode(),
+                dto.getAreaCode(),
+                dto.getIsMedicalInsurance(),
+                dto.getKeyDepartments(),
+                dto.getDeptName(),
+                byDistance ? "rating" : dto.getSortBy()
+        );
+
+        double lat = dto.getLatitude();
+        double lng = dto.getLongitude();
+        List<Hospital> located = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        for (Hospital hospital : candidates) {
+            if (!GeoUtil.isValid(hospital.getLatitude(), hospital.getLongitude())) {
+                continue;
+            }
+            double distance = GeoUtil.distanceKm(lat, lng,
+                    hospital.getLatitude().doubleValue(), hospital.getLongitude().doubleValue());
+            if (dto.getRadiusKm() == null || distance <= dto.getRadiusKm()) {
+                located.add(hospital);
+                distances.add(distance);
+            }
+        }
+
+        int total = located.size();
+        if (total == 0) {
+            return new PageResult<>(0L, dto.getPage(), dto.getPageSize(), new ArrayList<>());
+        }
+        List<Integer> order = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            order.add(i);
+        }
+        if (byDistance) {
+            order.sort(Comparator.comparingDouble(distances::get));
+        }
+
+        int pages = (total + dto.getPageSize() - 1) / dto.getPageSize();
+        int offset = (Math.min(dto.getPage(), pages) - 1) * dto.getPageSize();
+        List<HospitalSimpleVO> voList = new ArrayList<>();
+        for (int i = offset; i < Math.min(offset + dto.getPageSize(), total); i++) {
+            voList.add(convertToSimpleVO(located.get(order.get(i))));
+        }
+        fillDistance(voList, dto);
+        return new PageResult<>((long) total, dto.getPage(), dto.getPageSize(), voList);
+    }
+
     /**
      * 转换为医院简要VO
      */
@@ -220,29 +678,10 @@ public class HospitalServiceImpl implements HospitalService {
         HospitalVO vo = new HospitalVO();
         BeanUtils.copyProperties(hospital, vo);
 
-        // 查询省份名称
-        if (StringUtils.hasText(hospital.getProvinceCode())) {
-            Area province = areaMapper.selectByCode(hospital.getProvinceCode());
-            if (province != null) {
-                vo.setProvinceName(province.getName());
-            }
-        }
-
-        // 查询城市名称
-        if (StringUtils.hasText(hospital.getCityCode())) {
-            Area city = areaMapper.selectByCode(hospital.getCityCode());
-            if (city != null) {
-                vo.setCityName(city.getName());
-            }
-        }
-
-        // 查询区县名称
-        if (StringUtils.hasText(hospital.getAreaCode())) {
-            Area area = areaMapper.selectByCode(hospital.getAreaCode());
-            if (area != null) {
-                vo.setAreaName(area.getName());
-            }
-        }
+        // 地区名称从内存字典中取
+        vo.setProvinceName(areaDictionary.getName(hospital.getProvinceCode()));
+        vo.setCityName(areaDictionary.getName(hospital.getCityCode()));
+        vo.setAreaName(areaDictionary.getName(hospital.getAreaCode()));
 
         return vo;
     }
@@ -10,10 +10,9 @@ import com.chen.HospitalSelection.mapper.UserMapper;
 import com.chen.HospitalSelection.model.Message;
 import com.chen.HospitalSelection.model.User;
 import com.chen.HospitalSelection.service.MessageService;
+import com.chen.HospitalSelection.util.CountFreePager;
 import com.chen.HospitalSelection.vo.MessageVO;
 import com.chen.HospitalSelection.vo.PageResult;
-import com.github.pagehelper.PageHelper;
-import com.github.pagehelper.PageInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +40,9 @@ public class MessageServiceImpl implements MessageService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private CountFreePager countFreePager;
+
     @Override
     public List<MessageVO> getConversations(Long userId) {
         log.info("获取会话列表，用户ID：{}", userId);
@@ -118,12 +120,11 @@ public class MessageServiceImpl implements MessageService {
     public PageResult<MessageVO> getMessageHistory(Long currentUserId, Long otherUserId, PageQueryDTO dto) {
         log.info("获取聊天记录，当前用户ID：{}，对方用户ID：{}", currentUserId, otherUserId);
 
-        // 使用PageHelper进行物理分页
-        PageHelper.startPage(dto.getPage(), dto.getPageSize());
-        List<Message> messageList = messageMapper.selectBetweenUsersWithUser(currentUserId, otherUserId);
-        PageInfo<Message> pageInfo = new PageInfo<>(messageList);
+        CountFreePager.PageSlice<Message> slice = countFreePager.query(dto.getSkipCount(),
+                "message:" + currentUserId + ":" + otherUserId, dto.getPage(), dto.getPageSize(),
+                () -> messageMapper.selectBetweenUsersWithUser(currentUserId, otherUserId));
 
-        List<MessageVO> voList = messageList.stream()
+        List<MessageVO> voList = slice.getRows().stream()
                 .map(message -> {
                     MessageVO vo = new MessageVO();
                     BeanUtils.copyProperties(message, vo);
@@ -133,7 +134,7 @@ public class MessageServiceImpl implements MessageService {
                 })
                 .collect(Collectors.toList());
 
-        return new PageResult<>(pageInfo.getTotal(), dto.getPage(), dto.getPageSize(), voList);
+        return slice.toResult(voList);
     }
 
     @Override
@@ -161,6 +162,7 @@ public class MessageServiceImpl implements MessageService {
         message.setCreateTime(LocalDateTime.now());
 
         messageMapper.insert(message);
+        invalidateHistoryCount(senderId, dto.getReceiverId());
 
         log.info("私信发送成功，消息ID：{}", message.getId());
         return message.getId();
@@ -220,6 +222,7 @@ public class MessageServiceImpl implements MessageService {
         }
 
         messageMapper.deleteById(messageId);
+        invalidateHistoryCount(message.getSenderId(), message.getReceiverId());
 
         log.info("消息删除成功，消息ID：{}", messageId);
     }
@@ -230,6 +233,7 @@ public class MessageServiceImpl implements MessageService {
         log.info("清空聊天记录，当前用户ID：{}，对方用户ID：{}", currentUserId, otherUserId);
 
         messageMapper.deleteBetweenUsers(currentUserId, otherUserId);
+        invalidateHistoryCount(currentUserId, otherUserId);
 
         log.info("聊天记录清空成功");
     }
@@ -259,4 +263,12 @@ public class MessageServiceImpl implements MessageService {
                 })
                 .collect(Collectors.toList());
     }
+
+    /**
+     * 两人之间的消息增删后丢弃聊天记录的缓存总数（双方各自查询时的标识都要丢弃）
+     */
+    private void invalidateHistoryCount(Long userId, Long otherUserId) {
+        countFreePager.invalidate("message:" + userId + ":" + otherUserId);
+        countFreePager.invalidate("message:" + otherUserId + ":" + userId);
+    }
 }
@@ -1,16 +1,16 @@
 package com.chen.HospitalSelection.service.impl;
 
+import com.chen.HospitalSelection.cache.AIQueryCache;
+import com.chen.HospitalSelection.client.AIAdmissionGate;
+import com.chen.HospitalSelection.client.ZhipuAIClient;
 import com.chen.HospitalSelection.dto.HospitalFilterDTO;
+import com.chen.HospitalSelection.index.AreaGazetteer;
+import com.chen.HospitalSelection.index.QueryRuleParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 智谱AI服务（GLM-4）
@@ -23,18 +23,22 @@ import java.util.Map;
 @Service
 public class ZhipuAIService {
 
-    @Value("${zhipu.api.key}")
-    private String apiKey;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private ZhipuAIClient zhipuAIClient;
 
-    @Value("${zhipu.api.url}")
-    private String apiUrl;
+    @Autowired
+    private AIAdmissionGate aiAdmissionGate;
 
-    @Value("${zhipu.api.model:glm-4-flash}")
-    private String model;
+    @Autowired
+    private AIQueryCache aiQueryCache;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private QueryRuleParser queryRuleParser;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private AreaGazetteer areaGazetteer;
 
     /**
      * 分析用户查询，返回医院筛选条件
@@ -43,28 +47,80 @@ public class ZhipuAIService {
      * @return 筛选条件DTO
      */
     public HospitalFilterDTO analyzeQuery(String userQuery) {
-        try {
-            log.info("开始AI分析用户查询：{}", userQuery);
-
-            // 1. 构建提示词
-            String prompt = buildPrompt(userQuery);
-
-            // 2. 调用智谱AI API
-            String aiResponse = callZhipuAPI(prompt);
+        return analyzeQuery(userQuery, null);
+    }
 
-            // 3. 解析AI返回结果
-            HospitalFilterDTO filter = parseAIResponse(aiResponse);
+    /**
+     * 分析用户查询，返回医院筛选条件（按调用方限速）
+     *
+     * @param userQuery 用户的自然语言输入
+     * @param clientKey 调用方标识（用户ID或IP），为空时只受全局限速
+     * @return 筛选条件DTO
+     */
+    public HospitalFilterDTO analyzeQuery(String userQuery, String clientKey) {
+        QueryRuleParser.ParseResult local = null;
+        try {
+            // 本地词典能完整解释的查询直接返回，不调用API
+            local = queryRuleParser.parse(userQuery);
+            if (queryRuleParser.isConfident(local)) {
+                log.info("本地规则解析查询：{}，置信度：{}，结果：{}", userQuery, local.getConfidence(), local.getFilter());
+                return local.getFilter();
+            }
 
-            log.info("AI分析完成，结果：{}", filter);
+            // 相同（归一化后）的查询直接取缓存结果，并发的相同查询只调用一次API
+            HospitalFilterDTO filter = aiQueryCache.get(userQuery, query -> requestFilter(query, clientKey));
+            if (filter == null) {
+                // AI返回无法解析，或合并等待的同一查询调用失败：与异常时一样优先使用本地规则解析结果
+                if (local.getConfidence() > 0) {
+                    log.warn("AI未返回有效筛选条件，使用本地规则解析结果：{}，置信度：{}",
+                            local.getFilter(), local.getConfidence());
+                    return local.getFilter();
+                }
+                return new HospitalFilterDTO();
+            }
             return filter;
 
         } catch (Exception e) {
-            log.error("AI分析失败，返回默认筛选条件", e);
-            // 失败时返回空筛选条件，用户可以手动筛选
+            // 超出限速、排队超时、API超时、熔断或并发已满时降级：本地规则解析出部分条件则使用部分条件，否则返回空筛选条件，用户可以手动筛选
+            if (local != null && local.getConfidence() > 0) {
+                log.warn("AI分析失败，使用本地规则解析结果：{}，置信度：{}，原因：{}",
+                        local.getFilter(), local.getConfidence(), e.getMessage());
+                return local.getFilter();
+            }
+            log.error("AI分析失败，返回默认筛选条件：{}", e.getMessage());
             return new HospitalFilterDTO();
         }
     }
 
+    /**
+     * 调用智谱AI解析查询（缓存未命中时执行，相同查询并发时只有一个请求执行）
+     *
+     * @return 筛选条件，AI响应无法解析时返回null
+     */
+    private HospitalFilterDTO requestFilter(String userQuery, String clientKey) {
+        // 0. 准入控制：限速、排队（被拒绝时抛出异常，由analyzeQuery降级）
+        aiAdmissionGate.acquire(clientKey);
+
+        log.info("开始AI分析用户查询：{}", userQuery);
+
+        // 1. 构建提示词
+        String prompt = buildPrompt(userQuery);
+
+        // 2. 调用智谱AI API（超时、熔断、并发限制见ZhipuAIClient）
+        String aiResponse = zhipuAIClient.chat(prompt);
+
+        // 3. 解析AI返回结果
+        HospitalFilterDTO filter = parseAIResponse(aiResponse);
+
+        // 4. 大模型给出的地区编码可能不存在或与原话不符，按地名词典校正
+        if (filter != null) {
+            areaGazetteer.validate(filter, userQuery);
+        }
+
+        log.info("AI分析完成，结果：{}", filter);
+        return filter;
+    }
+
     /**
      * 构建AI提示词（关键！）
      * 使用结构化提示，让AI返回标准JSON
@@ -111,64 +167,10 @@ public class ZhipuAIService {
         return prompt.toString();
     }
 
-    /**
-     * 调用智谱AI API
-     */
-    private String callZhipuAPI(String prompt) {
-        // 构建请求体
-        Map<String, Object> request = new HashMap<>();
-        request.put("model", model);
-
-        // 构建消息
-        Map<String, String> userMessage = new HashMap<>();
-        userMessage.put("role", "user");
-        userMessage.put("content", prompt);
-
-        request.put("messages", new Object[]{userMessage});
-
-        // 设置参数（降低随机性，提高稳定性）
-        request.put("temperature", 0.3);
-        request.put("max_tokens", 1000);
-
-        // 设置请求头（智谱AI使用 Bearer {token} 格式）
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", "Bearer " + apiKey);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-
-        try {
-            // 发送POST请求
-            ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
-
-            // 解析响应
-            JsonNode rootNode = objectMapper.readTree(response.getBody());
-
-            // 检查是否有错误
-            if (rootNode.has("error")) {
-                String errorMsg = rootNode.get("error").get("message").asText();
-                throw new RuntimeException("智谱AI API错误: " + errorMsg);
-            }
-
-            // 提取AI返回的内容
-            String content = rootNode.get("choices").get(0).get("message").get("content").asText();
-
-            log.info("智谱AI API调用成功");
-            return content;
-
-        } catch (Exception e) {
-            log.error("智谱AI API调用失败", e);
-            throw new RuntimeException("AI服务暂时不可用: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * 解析AI返回的JSON
+     *
+     * @return 筛选条件，无法解析时返回null（不缓存）
      */
     private HospitalFilterDTO parseAIResponse(String aiResponse) {
         try {
@@ -178,7 +180,7 @@ public class ZhipuAIService {
 
             if (jsonStart == -1 || jsonEnd == 0) {
                 log.warn("AI响应中未找到JSON：{}", aiResponse);
-                return new HospitalFilterDTO();
+                return null;
             }
 
             String jsonStr = aiResponse.substring(jsonStart, jsonEnd);
@@ -235,7 +237,7 @@ public class ZhipuAIService {
 
         } catch (Exception e) {
             log.error("解析AI响应失败：{}", aiResponse, e);
-            return new HospitalFilterDTO();
+            return null;
         }
     }
 }
@@ -0,0 +1,73 @@
+package com.chen.HospitalSelection.task;
+
+import com.chen.HospitalSelection.index.DiseaseHospitalIndex;
+import com.chen.HospitalSelection.index.HospitalFilterIndex;
+import com.chen.HospitalSelection.mapper.HospitalDeptCapabilityMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 医院科室能力投影回填任务
+ * 应用启动完成后检查hospital_dept_capability，表为空时根据现有医生、科室数据一次性回填，
+ * 之后由AdminHospitalServiceImpl在科室、医生变更时增量维护。
+ * 回填先于HospitalFilterIndex、DiseaseHospitalIndex的预热执行；若两个索引已被提前的请求懒加载，
+ * 回填写入数据后重建它们，避免索引停留在空的科室能力数据上
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class DeptCapabilityBackfillTask {
+
+    @Autowired
+    private HospitalDeptCapabilityMapper capabilityMapper;
+
+    @Autowired
+    private HospitalFilterIndex hospitalFilterIndex;
+
+    @Autowired
+    private DiseaseHospitalIndex diseaseHospitalIndex;
+
+    /**
+     * 启动时一次性回填
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            int existing = capabilityMapper.count();
+            if (existing > 0) {
+                log.info("医院科室能力投影已存在{}条记录，跳过回填", existing);
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            int rows = capabilityMapper.insertAll();
+            log.info("医院科室能力投影回填完成，写入{}条记录，耗时：{}ms", rows, System.currentTimeMillis() - start);
+            if (rows > 0) {
+                rebuildIndexes();
+            }
+
+        } catch (Exception e) {
+            log.error("医院科室能力投影回填失败，请确认已执行db/migration/add_hospital_dept_capability.sql", e);
+        }
+    }
+
+    /**
+     * 重建依赖科室能力投影的内存索引，失败时索引保持原状，查询仍可回退SQL
+     */
+    private void rebuildIndexes() {
+        try {
+            hospitalFilterIndex.rebuild();
+            diseaseHospitalIndex.rebuild();
+        } catch (Exception e) {
+            log.warn("科室能力投影回填后重建索引失败：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.chen.HospitalSelection.util;
+
+import com.chen.HospitalSelection.vo.PageResult;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageInfo;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 免COUNT分页
+ *
+ * PageHelper.startPage会在查询前额外执行一次COUNT(*)，复杂查询（如医院筛选的doc_depts聚合）相当于执行两遍。
+ * 开启skipCount后改为多取一条（pageSize+1）判断是否还有下一页，不再同步统计总数；
+ * 总数取自按查询缓存的计数：30秒内直接使用，30秒~10分钟内先返回旧值并在后台刷新，超过10分钟视为无总数。
+ * 翻到最后一页时可直接得到准确总数，顺带更新缓存。
+ *
+ * @author chen
+ * @since 2025-03-01
+ */
+@Slf4j
+@Component
+public class CountFreePager {
+
+    /**
+     * 缓存计数在该时间内视为准确，不刷新
+     */
+    private static final long FRESH_MILLIS = 30_000;
+
+    /**
+     * 缓存计数的最大陈旧时间，超过后不再返回
+     */
+    private static final long MAX_STALE_MILLIS = 600_000;
+
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final int COUNT_QUEUE_CAPACITY = 64;
+
+    /**
+     * 查询标识 -> 计数（按访问顺序淘汰）
+     */
+    private final Map<String, CachedCount> counts = new LinkedHashMap<String, CachedCount>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * 正在后台刷新的查询标识，避免重复提交
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 后台计数线程（单线程，队列满时拒绝，下次请求会重新提交）
+     */
+    private final ThreadPoolExecutor countExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(COUNT_QUEUE_CAPACITY), r -> {
+                Thread thread = new Thread(r, "page-count-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * 分页查询
+     *
+     * @param skipCount 是否免COUNT（为null或false时与原来一样使用PageHelper统计总数）
+     * @param countKey  查询标识（查询方法+全部查询条件，不含页码），用于缓存计数
+     * @param page      页码
+     * @param pageSize  每页大小
+     * @param select    查询（在PageHelper分页上下文中执行的Mapper调用）
+     * @return 当前页数据及总数/是否有下一页
+     */
+    public <E> PageSlice<E> query(Boolean skipCount, String countKey, Integer page, Integer pageSize,
+                                  Supplier<List<E>> select) {
+        if (!Boolean.TRUE.equals(skipCount)) {
+            PageHelper.startPage(page, pageSize);
+            List<E> rows = select.get();
+            PageInfo<E> pageInfo = new PageInfo<>(rows);
+            return new PageSlice<>(rows, pageInfo.getTotal(), false, null, page, pageSize);
+        }
+
+        int offset = (page - 1) * pageSize;
+        PageHelper.offsetPage(offset, pageSize + 1, false);
+        List<E> rows = select.get();
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+        }
+
+        Long total;
+        boolean estimated;
+        if (!hasMore && (!rows.isEmpty() || page == 1)) {
+            // 最后一页：总数准确
+            total = (long) offset + rows.size();
+            estimated = false;
+            putCount(countKey, total);
+        } else {
+            total = cachedCount(countKey, select);
+            estimated = true;
+            if (total != null) {
+                // 缓存的计数不能小于已经看到的记录数
+                long seen = (long) offset + rows.size() + (hasMore ? 1 : 0);
+                total = Math.max(total, seen);
+            }
+        }
+        return new PageSlice<>(rows, total, estimated, hasMore, page, pageSize);
+    }
+
+    /**
+     * 数据变更后丢弃某类查询的缓存计数
+     *
+     * @param keyPrefix 查询标识前缀
+     */
+    public void invalidate(String keyPrefix) {
+        synchronized (counts) {
+            counts.keySet().removeIf(key -> key.startsWith(keyPrefix));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        countExecutor.shutdownNow();
+    }
+
+    private <E> Long cachedCount(String countKey, Supplier<List<E>> select) {
+        CachedCount cached;
+        synchronized (counts) {
+            cached = counts.get(countKey);
+        }
+        long age = cached == null ? Long.MAX_VALUE : System.currentTimeMillis() - cached.time;
+        if (age > FRESH_MILLIS) {
+            refreshAsync(countKey, select);
+        }
+        return age <= MAX_STALE_MILLIS ? cached.count : null;
+    }
+
+    private <E> void refreshAsync(String countKey, Supplier<List<E>> select) {
+        if (!refreshing.add(countKey)) {
+            return;
+        }
+        try {
+            countExecutor.execute(() -> {
+                try {
+                    putCount(countKey, PageHelper.count(select::get));
+                } catch (Exception e) {
+                    log.warn("分页计数刷新失败，查询：{}，{}", countKey, e.getMessage());
+                } finally {
+                    refreshing.remove(countKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 队列已满，允许下次请求重新提交
+            refreshing.remove(countKey);
+        }
+    }
+
+    private void putCount(String countKey, long count) {
+        synchronized (counts) {
+            counts.put(countKey, new CachedCount(count, System.currentTimeMillis()));
+        }
+    }
+
+    @AllArgsConstructor
+    private static class CachedCount {
+        private final long count;
+        private final long time;
+    }
+
+    /**
+     * 分页查询结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PageSlice<E> {
+
+        /**
+         * 当前页数据
+         */
+        private final List<E> rows;
+
+        /**
+         * 总记录数（免COUNT且无可用缓存时为null）
+         */
+        private final Long total;
+
+        /**
+         * 总数是否为缓存的估计值
+         */
+        private final boolean estimated;
+
+        /**
+         * 是否还有下一页（仅免COUNT时返回）
+         */
+        private final Boolean hasMore;
+
+        private final Integer page;
+
+        private final Integer pageSize;
+
+        /**
+         * 转换为分页结果
+         *
+         * @param mapper 数据转换（实体 -> VO）
+         */
+        public <V> PageResult<V> toResult(Function<E, V> mapper) {
+            List<V> list = new ArrayList<>(rows.size());
+            for (E row : rows) {
+                list.add(mapper.apply(row));
+            }
+            return toResult(list);
+        }
+
+        /**
+         * 使用已转换好的列表生成分页结果
+         */
+        public <V> PageResult<V> toResult(List<V> list) {
+            if (hasMore == null) {
+                return new PageResult<>(total, page, pageSize, list);
+            }
+            return PageResult.ofHasMore(total, estimated, page, pageSize, list, hasMore);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.chen.HospitalSelection.util;
+
+import com.chen.HospitalSelection.exception.ParameterException;
+import com.chen.HospitalSelection.vo.PageResult;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 稀疏字段集工具类（列表接口的 ?fields= 参数）
+ * 只保留客户端指定的字段，其余字段置为null，序列化时被忽略（default-property-inclusion: non_null），减小列表响应体积
+ *
+ * 用法：?fields=id,hospitalName,hospitalLevel,rating（逗号分隔的VO属性名，id始终返回）
+ * 选择时复制出新对象，不修改原对象（列表结果可能来自共享缓存）
+ */
+public class FieldSelector {
+
+    private static final String ALWAYS_INCLUDED = "id";
+
+    /**
+     * 单次最多选择的字段数
+     */
+    private static final int MAX_FIELDS = 50;
+
+    /**
+     * 解析字段参数
+     *
+     * @param fields 逗号分隔的字段名
+     * @return 字段集合，未指定时返回null（返回全部字段）
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        result.add(ALWAYS_INCLUDED);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!name.isEmpty()) {
+                result.add(name);
+            }
+        }
+        if (result.size() > MAX_FIELDS) {
+            throw new ParameterException("fields参数字段过多");
+        }
+        return result;
+    }
+
+    /**
+     * 按字段参数裁剪分页结果
+     *
+     * @param page   分页结果
+     * @param fields 逗号分隔的字段名（为空时原样返回）
+     */
+    public static <T> PageResult<T> select(PageResult<T> page, String fields) {
+        Set<String> selected = parse(fields);
+        if (selected == null || page == null || page.getList() == null) {
+            return page;
+        }
+        page.setList(select(page.getList(), selected));
+        return page;
+    }
+
+    /**
+     * 按字段参数裁剪列表
+     *
+     * @param list   列表
+     * @param fields 逗号分隔的字段名（为空时原样返回）
+     */
+    public static <T> List<T> select(List<T> list, String fields) {
+        Set<String> selected = parse(fields);
+        if (selected == null || list == null) {
+            return list;
+        }
+        return select(list, selected);
+    }
+
+    private static <T> List<T> select(List<T> list, Set<String> selected) {
+        if (list.isEmpty()) {
+            return list;
+        }
+        Class<?> type = list.get(0).getClass();
+        List<PropertyDescriptor> properties = resolve(type, selected);
+
+        List<T> result = new ArrayList<>(list.size());
+        for (T item : list) {
+            result.add(copy(item, properties));
+        }
+        return result;
+    }
+
+    /**
+     * 校验字段名并取出需要复制的属性
+     */
+    private static List<PropertyDescriptor> resolve(Class<?> type, Set<String> selected) {
+        List<PropertyDescriptor> properties = new ArrayList<>(selected.size());
+        for (String name : selected) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, name);
+            if (descriptor == null || descriptor.getReadMethod() == null || descriptor.getWriteMethod() == null) {
+                throw new ParameterException("不支持的字段：" + name);
+            }
+            properties.add(descriptor);
+        }
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T source, List<PropertyDescriptor> properties) {
+        T target = (T) BeanUtils.instantiateClass(source.getClass());
+        try {
+            for (PropertyDescriptor descriptor : properties) {
+                Method read = descriptor.getReadMethod();
+                descriptor.getWriteMethod().invoke(target, read.invoke(source));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("复制字段失败：" + source.getClass().getSimpleName(), e);
+        }
+        return target;
+    }
+}
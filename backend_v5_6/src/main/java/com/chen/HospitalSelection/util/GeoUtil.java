@@ -0,0 +1,59 @@
+package com.chen.HospitalSelection.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 地理距离工具类
+ * 坐标统一使用GCJ-02经纬度（与前端地图一致），距离单位为公里
+ */
+public class GeoUtil {
+
+    /**
+     * 地球平均半径（公里）
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * 每度纬度对应的距离（公里）
+     */
+    public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    /**
+     * 坐标是否合法（经纬度都不为空且在取值范围内）
+     *
+     * @param latitude  纬度
+     * @param longitude 经度
+     * @return true-合法
+     */
+    public static boolean isValid(Double latitude, Double longitude) {
+        return latitude != null && longitude != null
+                && latitude >= -90 && latitude <= 90
+                && longitude >= -180 && longitude <= 180;
+    }
+
+    public static boolean isValid(BigDecimal latitude, BigDecimal longitude) {
+        return latitude != null && longitude != null && isValid(latitude.doubleValue(), longitude.doubleValue());
+    }
+
+    /**
+     * 两点间球面距离（Haversine公式）
+     *
+     * @return 距离（公里）
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 距离保留两位小数（用于返回给前端）
+     */
+    public static double roundKm(double distanceKm) {
+        return BigDecimal.valueOf(distanceKm).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,70 @@
+package com.chen.HospitalSelection.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * HTTP条件请求工具类
+ * 处理ETag / Last-Modified，客户端缓存仍有效时返回304，不再序列化响应体
+ */
+public class HttpCacheUtil {
+
+    /**
+     * 允许客户端缓存，但每次使用前需向服务端校验
+     * （同时避免Spring Security默认写入no-store）
+     */
+    private static final String CACHE_CONTROL = "no-cache";
+
+    /**
+     * 校验If-None-Match / If-Modified-Since
+     *
+     * @param webRequest   当前请求
+     * @param etag         实体标签（不含引号）
+     * @param lastModified 最后修改时间（毫秒）
+     * @return true-客户端缓存有效（已设置304），控制器应直接返回null
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, String etag, long lastModified) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        return webRequest.checkNotModified(etag, lastModified);
+    }
+
+    /**
+     * 列表、搜索类接口按目录版本校验
+     *
+     * @param webRequest 当前请求
+     * @param version    目录版本戳（毫秒）
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, long version) {
+        return checkNotModified(webRequest, "c" + Long.toString(version, 36), version);
+    }
+
+    /**
+     * 单个实体按ID、更新时间和所属医院版本校验
+     *
+     * @param webRequest 当前请求
+     * @param type       资源类型前缀（区分同一ID的不同资源）
+     * @param id         实体ID
+     * @param updateTime 实体更新时间（可为null）
+     * @param version    所属医院的目录版本戳（毫秒）
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, String type, Long id,
+                                           LocalDateTime updateTime, long version) {
+        long updated = toMillis(updateTime);
+        String etag = type + id + "-" + Long.toString(updated, 36) + "-" + Long.toString(version, 36);
+        return checkNotModified(webRequest, etag, Math.max(updated, version));
+    }
+
+    /**
+     * 实体的毫秒时间戳（为null时返回0）
+     */
+    public static long toMillis(LocalDateTime time) {
+        return time == null ? 0L : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
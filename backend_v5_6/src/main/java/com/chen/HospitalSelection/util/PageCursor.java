@@ -0,0 +1,146 @@
+package com.chen.HospitalSelection.util;
+
+import com.chen.HospitalSelection.exception.ParameterException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页工具类
+ * 将上一页最后一条记录的排序键编码为不透明的游标字符串，下一页查询时解码为seek条件，
+ * 避免LIMIT offset的深翻页扫描和COUNT(*)统计
+ *
+ * 游标格式（Base64 URL编码前）：类型|字段1|字段2|...
+ * - r：按评分排序（rating, review_count, id）
+ * - t：按时间排序（create_time, id）
+ */
+public class PageCursor {
+
+    private static final String TYPE_RATING = "r";
+
+    private static final String TYPE_TIME = "t";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 是否使用游标分页（显式开启或携带了游标）
+     *
+     * @param cursorMode 是否使用游标分页
+     * @param cursor     游标
+     * @return true-游标分页，false-页码分页
+     */
+    public static boolean requested(Boolean cursorMode, String cursor) {
+        return Boolean.TRUE.equals(cursorMode) || (cursor != null && !cursor.trim().isEmpty());
+    }
+
+    /**
+     * 游标是否为空（首页）
+     */
+    public static boolean isFirstPage(String cursor) {
+        return cursor == null || cursor.trim().isEmpty();
+    }
+
+    /**
+     * 生成评分排序游标
+     *
+     * @param rating      评分
+     * @param reviewCount 评价数量
+     * @param id          记录ID
+     * @return 游标
+     */
+    public static String ofRating(BigDecimal rating, Integer reviewCount, Long id) {
+        return encode(TYPE_RATING,
+                (rating == null ? BigDecimal.ZERO : rating).toPlainString(),
+                String.valueOf(reviewCount == null ? 0 : reviewCount),
+                String.valueOf(id));
+    }
+
+    /**
+     * 生成时间排序游标
+     *
+     * @param createTime 创建时间
+     * @param id         记录ID
+     * @return 游标
+     */
+    public static String ofTime(LocalDateTime createTime, Long id) {
+        return encode(TYPE_TIME, createTime.toString(), String.valueOf(id));
+    }
+
+    /**
+     * 解析评分排序游标
+     *
+     * @param cursor 游标
+     * @return 排序键
+     */
+    public static RatingKey parseRating(String cursor) {
+        String[] parts = decode(cursor, TYPE_RATING, 4);
+        try {
+            return new RatingKey(new BigDecimal(parts[1]), Integer.valueOf(parts[2]), Long.valueOf(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new ParameterException("分页游标无效");
+        }
+    }
+
+    /**
+     * 解析时间排序游标
+     *
+     * @param cursor 游标
+     * @return 排序键
+     */
+    public static TimeKey parseTime(String cursor) {
+        String[] parts = decode(cursor, TYPE_TIME, 3);
+        try {
+            return new TimeKey(LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new ParameterException("分页游标无效");
+        }
+    }
+
+    private static String encode(String type, String... values) {
+        StringBuilder sb = new StringBuilder(type);
+        for (String value : values) {
+            sb.append(SEPARATOR).append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, String type, int parts) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException("分页游标无效");
+        }
+        String[] values = raw.split("\\|", -1);
+        if (values.length != parts || !type.equals(values[0])) {
+            throw new ParameterException("分页游标无效");
+        }
+        return values;
+    }
+
+    /**
+     * 评分排序键
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RatingKey {
+        private final BigDecimal rating;
+        private final Integer reviewCount;
+        private final Long id;
+    }
+
+    /**
+     * 时间排序键
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class TimeKey {
+        private final LocalDateTime createTime;
+        private final Long id;
+    }
+}
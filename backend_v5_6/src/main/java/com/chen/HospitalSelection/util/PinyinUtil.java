@@ -0,0 +1,87 @@
+package com.chen.HospitalSelection.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * 拼音工具类
+ * 将汉字转换为不带声调的小写拼音全拼和首字母，用于搜索自动补全
+ * 多音字取第一个读音；字母和数字原样保留（转小写），其他字符忽略
+ */
+public class PinyinUtil {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    /**
+     * 拼音全拼（如：北京协和医院 -> beijingxieheyiyuan）
+     *
+     * @param text 文本
+     * @return 全拼
+     */
+    public static String toPinyin(String text) {
+        return convert(text, false);
+    }
+
+    /**
+     * 拼音首字母（如：北京协和医院 -> bjxhyy）
+     *
+     * @param text 文本
+     * @return 首字母
+     */
+    public static String toInitials(String text) {
+        return convert(text, true);
+    }
+
+    /**
+     * 文本中是否包含汉字
+     *
+     * @param text 文本
+     * @return true-包含
+     */
+    public static boolean containsChinese(String text) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String convert(String text, boolean initialsOnly) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length() * (initialsOnly ? 1 : 4));
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && c < 128) {
+                sb.append(Character.toLowerCase(c));
+                continue;
+            }
+            String[] readings;
+            try {
+                readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            } catch (BadHanyuPinyinOutputFormatCombination e) {
+                readings = null;
+            }
+            if (readings == null || readings.length == 0) {
+                continue;
+            }
+            sb.append(initialsOnly ? readings[0].substring(0, 1) : readings[0]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.chen.HospitalSelection.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 医院详情页聚合返回对象
+ * 一次返回医院详情（含省市区名称）、科室列表和按科室分组的医生，减少详情页的请求次数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HospitalFullVO {
+
+    /**
+     * 医院详情
+     */
+    private HospitalVO hospital;
+
+    /**
+     * 科室列表
+     */
+    private List<DepartmentVO> departments;
+
+    /**
+     * 按科室分组的医生（顺序与科室列表一致，科室列表之外的医生排在最后）
+     */
+    private List<DoctorGroup> doctorGroups;
+
+    /**
+     * 科室医生分组
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DoctorGroup {
+
+        /**
+         * 科室ID
+         */
+        private Long deptId;
+
+        /**
+         * 科室名称
+         */
+        private String deptName;
+
+        /**
+         * 该科室的医生
+         */
+        private List<DoctorSimpleVO> doctors;
+    }
+}
@@ -50,6 +50,16 @@ public class HospitalSimpleVO {
      */
     private String address;
 
+    /**
+     * 纬度
+     */
+    private BigDecimal latitude;
+
+    /**
+     * 经度
+     */
+    private BigDecimal longitude;
+
     /**
      * 联系电话
      */
@@ -79,4 +89,14 @@ public class HospitalSimpleVO {
      * 是否已收藏（需要登录时返回）
      */
     private Boolean isCollected;
+
+    /**
+     * 匹配度分数（0-100，仅按匹配度排序时返回）
+     */
+    private Integer matchScore;
+
+    /**
+     * 距离（公里，仅按距离排序或附近查询时返回）
+     */
+    private Double distance;
 }
@@ -42,6 +42,21 @@ public class PageResult<T> {
      */
     private List<T> list;
 
+    /**
+     * 下一页游标（仅游标分页返回，没有更多数据时为null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据（仅游标分页、免COUNT分页返回）
+     */
+    private Boolean hasMore;
+
+    /**
+     * 总记录数是否为估计值（仅免COUNT分页返回，取自缓存的计数，可能略有滞后）
+     */
+    private Boolean totalEstimated;
+
     /**
      * 构造方法（自动计算总页数）
      *
@@ -59,6 +74,47 @@ public class PageResult<T> {
         this.pages = (int) Math.ceil((double) total / pageSize);
     }
 
+    /**
+     * 游标分页结果（不统计总记录数和总页数）
+     *
+     * @param pageSize   每页大小
+     * @param list       列表数据
+     * @param nextCursor 下一页游标，没有更多数据时为null
+     */
+    public static <T> PageResult<T> ofCursor(Integer pageSize, List<T> list, String nextCursor) {
+        PageResult<T> result = new PageResult<>();
+        result.setPageSize(pageSize);
+        result.setList(list);
+        result.setNextCursor(nextCursor);
+        result.setHasMore(nextCursor != null);
+        return result;
+    }
+
+    /**
+     * 免COUNT分页结果（总记录数可能为估计值或为null）
+     *
+     * @param total          总记录数，未知时为null
+     * @param totalEstimated 总记录数是否为估计值
+     * @param pageNum        当前页码
+     * @param pageSize       每页大小
+     * @param list           列表数据
+     * @param hasMore        是否还有下一页
+     */
+    public static <T> PageResult<T> ofHasMore(Long total, boolean totalEstimated, Integer pageNum, Integer pageSize,
+                                              List<T> list, boolean hasMore) {
+        PageResult<T> result = new PageResult<>();
+        result.setTotal(total);
+        result.setTotalEstimated(total != null && totalEstimated);
+        result.setPageNum(pageNum);
+        result.setPageSize(pageSize);
+        if (total != null) {
+            result.setPages((int) Math.ceil((double) total / pageSize));
+        }
+        result.setList(list);
+        result.setHasMore(hasMore);
+        return result;
+    }
+
     /**
      * 空结果构造方法
      */
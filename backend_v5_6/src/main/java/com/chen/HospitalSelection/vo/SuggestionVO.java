@@ -0,0 +1,35 @@
+package com.chen.HospitalSelection.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 搜索自动补全返回对象
+ * 用于搜索框输入时的候选项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionVO {
+
+    /**
+     * 候选类型（hospital = 医院，doctor = 医生，department = 科室，disease = 疾病）
+     */
+    private String type;
+
+    /**
+     * 对应记录ID（科室为按名称聚合的候选，无ID）
+     */
+    private Long id;
+
+    /**
+     * 候选文本
+     */
+    private String text;
+
+    /**
+     * 附加说明（医生所在医院、疾病编码等）
+     */
+    private String subtitle;
+}
@@ -0,0 +1,68 @@
+-- 疾病-科室映射表
+-- 描述每个疾病分类应就诊的科室及权重，DiseaseHospitalIndex据此结合医院重点科室、
+-- 在职医生科室（hospital_dept_capability）预先计算每个疾病的医院排名
+-- 二级疾病未配置映射时沿用其一级分类的映射
+-- 执行此SQL前请确保备份数据库
+
+CREATE TABLE IF NOT EXISTS `disease_department` (
+    `disease_code` VARCHAR(50) NOT NULL COMMENT '疾病编码（关联disease_type.disease_code）',
+    `dept_name` VARCHAR(50) NOT NULL COMMENT '科室名称',
+    `weight` INT NOT NULL DEFAULT 1 COMMENT '权重（1-3，值越大越相关）',
+    PRIMARY KEY (`disease_code`, `dept_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='疾病科室映射表';
+
+-- 一级分类
+INSERT IGNORE INTO `disease_department` (`disease_code`, `dept_name`, `weight`) VALUES
+('cardiovascular', '心血管内科', 3),
+('cardiovascular', '心内科', 3),
+('cardiovascular', '心血管外科', 2),
+('cardiovascular', '内科', 1),
+('endocrine', '内分泌科', 3),
+('endocrine', '内科', 1),
+('respiratory', '呼吸内科', 3),
+('respiratory', '呼吸科', 3),
+('respiratory', '内科', 1),
+('digestive', '消化内科', 3),
+('digestive', '肝胆外科', 2),
+('digestive', '内科', 1),
+('nervous', '神经内科', 3),
+('nervous', '神经外科', 2),
+('nervous', '老年病科', 1),
+('oncology', '肿瘤科', 3),
+('pediatrics', '儿科', 3),
+('gynecology', '妇产科', 3),
+('gynecology', '妇科', 3),
+('orthopedics', '骨科', 3),
+('orthopedics', '康复医学科', 1),
+('dermatology', '皮肤科', 3);
+
+-- 跨科室的二级分类
+INSERT IGNORE INTO `disease_department` (`disease_code`, `dept_name`, `weight`) VALUES
+('osteoporosis', '骨科', 3),
+('osteoporosis', '内分泌科', 2),
+('gout', '内分泌科', 3),
+('gout', '骨科', 2),
+('tuberculosis', '传染科', 3),
+('tuberculosis', '呼吸内科', 2),
+('lung_cancer', '肿瘤科', 3),
+('lung_cancer', '呼吸内科', 2),
+('hepatitis', '传染科', 3),
+('hepatitis', '消化内科', 2),
+('stroke', '神经内科', 3),
+('stroke', '康复医学科', 1),
+('alzheimer', '神经内科', 3),
+('alzheimer', '老年病科', 2),
+('liver_cancer', '肿瘤科', 3),
+('liver_cancer', '肝胆外科', 2),
+('gastric_cancer', '肿瘤科', 3),
+('gastric_cancer', '消化内科', 2),
+('colorectal_cancer', '肿瘤科', 3),
+('colorectal_cancer', '消化内科', 2),
+('breast_cancer', '肿瘤科', 3),
+('breast_cancer', '乳腺外科', 2),
+('cervical_cancer', '肿瘤科', 3),
+('cervical_cancer', '妇产科', 2),
+('prostate_cancer', '肿瘤科', 3),
+('prostate_cancer', '泌尿外科', 2),
+('mammary_hyperplasia', '乳腺外科', 3),
+('mammary_hyperplasia', '妇产科', 2);
@@ -0,0 +1,11 @@
+-- 医院别名表
+-- 保存医院的常用简称、旧称（如"省医"、"中山一院"），供HospitalSearchIndex建立搜索索引
+-- 执行此SQL前请确保备份数据库
+
+CREATE TABLE IF NOT EXISTS `hospital_alias` (
+    `hospital_id` BIGINT NOT NULL COMMENT '医院ID',
+    `alias` VARCHAR(50) NOT NULL COMMENT '别名',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`hospital_id`, `alias`),
+    KEY `idx_alias` (`alias`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='医院别名表';
@@ -0,0 +1,22 @@
+-- 医院科室能力投影表
+-- 按医院 + 科室名称前两个字聚合在职医生数量，替代筛选时对doctor_info/hospital_department的SUBSTRING子查询
+-- 由AdminHospitalServiceImpl在科室、医生变更时维护
+-- 执行此SQL前请确保备份数据库
+
+CREATE TABLE IF NOT EXISTS `hospital_dept_capability` (
+    `hospital_id` BIGINT NOT NULL COMMENT '医院ID',
+    `dept_prefix` VARCHAR(10) NOT NULL COMMENT '科室名称前缀（前两个字）',
+    `doctor_count` INT NOT NULL DEFAULT 0 COMMENT '在职医生数量',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`hospital_id`, `dept_prefix`),
+    KEY `idx_dept_prefix` (`dept_prefix`, `hospital_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='医院科室能力投影表';
+
+-- 回填已有数据（也可由应用启动时的DeptCapabilityBackfillTask在表为空时自动完成）
+INSERT INTO hospital_dept_capability (hospital_id, dept_prefix, doctor_count)
+SELECT d.hospital_id, SUBSTRING(dept.dept_name, 1, 2), COUNT(*)
+FROM doctor_info d
+INNER JOIN hospital_department dept ON d.dept_id = dept.id AND dept.is_deleted = 0
+WHERE d.is_deleted = 0
+GROUP BY d.hospital_id, SUBSTRING(dept.dept_name, 1, 2)
+ON DUPLICATE KEY UPDATE doctor_count = VALUES(doctor_count);
@@ -0,0 +1,8 @@
+-- 医院经纬度
+-- 供HospitalFilterIndex建立空间网格，支持附近医院查询和按距离排序
+-- 坐标为GCJ-02（与前端地图一致），由管理端CSV批量导入：POST /api/admin/hospital/location/import
+-- 执行此SQL前请确保备份数据库
+
+ALTER TABLE `hospital_info`
+    ADD COLUMN `latitude` DECIMAL(10,6) DEFAULT NULL COMMENT '纬度' AFTER `address`,
+    ADD COLUMN `longitude` DECIMAL(10,6) DEFAULT NULL COMMENT '经度' AFTER `latitude`;
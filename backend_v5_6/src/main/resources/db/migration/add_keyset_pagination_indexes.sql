@@ -0,0 +1,12 @@
+-- 游标分页索引
+-- 与游标分页的排序键一致，seek条件可直接在索引上定位，不再扫描并丢弃OFFSET之前的记录
+-- 执行此SQL前请确保备份数据库
+
+ALTER TABLE `hospital_info`
+    ADD INDEX `idx_rating_seek` (`is_deleted`, `rating`, `review_count`, `id`);
+
+ALTER TABLE `doctor_info`
+    ADD INDEX `idx_rating_seek` (`is_deleted`, `rating`, `review_count`, `id`);
+
+ALTER TABLE `community_topic`
+    ADD INDEX `idx_create_time_seek` (`is_deleted`, `create_time`, `id`);
@@ -76,6 +76,8 @@ CREATE TABLE hospital_info (
     city_code VARCHAR(20) NOT NULL,
     area_code VARCHAR(20) NOT NULL,
     address VARCHAR(255) NOT NULL,
+    latitude DECIMAL(10,6) DEFAULT NULL,
+    longitude DECIMAL(10,6) DEFAULT NULL,
     phone VARCHAR(50) DEFAULT NULL,
     key_departments VARCHAR(255) DEFAULT NULL,
     medical_equipment VARCHAR(255) DEFAULT NULL,
@@ -122,6 +124,36 @@ CREATE TABLE doctor_info (
 CREATE INDEX idx_doctor_hospital ON doctor_info(hospital_id);
 CREATE INDEX idx_doctor_dept ON doctor_info(dept_id);
 
+DROP TABLE IF EXISTS hospital_dept_capability;
+
+CREATE TABLE hospital_dept_capability (
+    hospital_id BIGINT NOT NULL,
+    dept_prefix VARCHAR(10) NOT NULL,
+    doctor_count INT NOT NULL DEFAULT 0,
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (hospital_id, dept_prefix)
+);
+
+CREATE INDEX idx_capability_prefix ON hospital_dept_capability(dept_prefix, hospital_id);
+
+DROP TABLE IF EXISTS hospital_alias;
+
+CREATE TABLE hospital_alias (
+    hospital_id BIGINT NOT NULL,
+    alias VARCHAR(50) NOT NULL,
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (hospital_id, alias)
+);
+
+DROP TABLE IF EXISTS disease_department;
+
+CREATE TABLE disease_department (
+    disease_code VARCHAR(50) NOT NULL,
+    dept_name VARCHAR(50) NOT NULL,
+    weight INT NOT NULL DEFAULT 1,
+    PRIMARY KEY (disease_code, dept_name)
+);
+
 -- 社区交流模块
 DROP TABLE IF EXISTS community_like;
 DROP TABLE IF EXISTS community_comment;
@@ -264,6 +296,13 @@ INSERT INTO disease_type (parent_id, disease_name, disease_code, sort) VALUES
 (2, '糖尿病', 'diabetes', 10),
 (3, '肺炎', 'pneumonia', 10);
 
+-- 疾病科室映射
+INSERT INTO disease_department (disease_code, dept_name, weight) VALUES
+('cardiovascular', '心血管内科', 3),
+('cardiovascular', '内科', 1),
+('endocrine', '内分泌科', 3),
+('respiratory', '呼吸内科', 3);
+
 -- 示例医院
 INSERT INTO hospital_info (hospital_name, hospital_level, province_code, city_code, area_code, address, phone, key_departments, intro, rating, review_count, is_medical_insurance) VALUES
 ('广东省人民医院', 'grade3A', '440000', '440100', '440104', '广州市越秀区中山二路106号', '020-83827812', '心血管内科,肿瘤科', '广东省最大的综合性医院之一', 4.8, 2563, 1),